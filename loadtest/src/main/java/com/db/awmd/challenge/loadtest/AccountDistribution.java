@@ -0,0 +1,30 @@
+package com.db.awmd.challenge.loadtest;
+
+import java.util.SplittableRandom;
+
+/**
+ * Picks the origin and destination accounts of every generated transfer.
+ */
+interface AccountDistribution {
+
+    /**
+     * Fill the pair with the indexes of the origin and destination accounts of the next transfer.
+     * @param random
+     * @param pair
+     */
+    void next(SplittableRandom random, int[] pair);
+
+    static AccountDistribution of(LoadTestOptions options) {
+        switch (options.distribution()) {
+            case "uniform":
+                return new UniformDistribution(options.accounts());
+            case "zipf":
+                return new ZipfDistribution(options.accounts(), options.zipfExponent());
+            case "opposing":
+                return new OpposingPairsDistribution(options.accounts());
+            default:
+                throw new IllegalArgumentException("Unknown distribution " + options.distribution()
+                        + ", use uniform, zipf or opposing");
+        }
+    }
+}
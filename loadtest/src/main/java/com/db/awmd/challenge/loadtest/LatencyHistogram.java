@@ -0,0 +1,76 @@
+package com.db.awmd.challenge.loadtest;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free latency histogram in microseconds. Values below 256 have their own bucket, larger values share
+ * <br /> 128 buckets per power of two, so every percentile is within 1% of the recorded value whatever the range.
+ */
+final class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 256;
+
+    private static final int SUB_BUCKETS = 128;
+
+    private static final int SUB_BUCKET_BITS = 7;
+
+    private final AtomicLongArray counts = new AtomicLongArray(LINEAR_BUCKETS + (63 - 8) * SUB_BUCKETS);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long micros) {
+        long value = Math.max(micros, 0);
+        this.counts.incrementAndGet(bucketOf(value));
+        this.count.incrementAndGet();
+        this.max.accumulateAndGet(value, Math::max);
+    }
+
+    long count() {
+        return this.count.get();
+    }
+
+    long max() {
+        return this.max.get();
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return long lowest value of the bucket holding the percentile, 0 when nothing has been recorded
+     */
+    long percentile(double percentile) {
+        long total = this.count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < this.counts.length(); bucket++) {
+            seen += this.counts.get(bucket);
+            if (seen >= target) {
+                return Math.min(valueOf(bucket), max());
+            }
+        }
+        return max();
+    }
+
+    private static int bucketOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        long top = value >>> (magnitude - SUB_BUCKET_BITS);
+        return LINEAR_BUCKETS + (magnitude - 8) * SUB_BUCKETS + (int) (top - SUB_BUCKETS);
+    }
+
+    private static long valueOf(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int magnitude = 8 + (bucket - LINEAR_BUCKETS) / SUB_BUCKETS;
+        long top = SUB_BUCKETS + (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        return top << (magnitude - SUB_BUCKET_BITS);
+    }
+}
@@ -0,0 +1,186 @@
+package com.db.awmd.challenge.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open loop load generator for the transfer API of a running server. Transfers are started at a fixed rate
+ * <br /> whatever the server latency, and every latency is measured from the time the transfer was meant to start,
+ * <br /> so a slow server shows up in the percentiles instead of silently lowering the load (coordinated omission).
+ * <br /> Run with {@code gradle :loadtest:run --args='--rate=2000 --distribution=zipf'}.
+ */
+public class LoadTest {
+
+    private final LoadTestOptions options;
+
+    private final HttpClient httpClient;
+
+    private final AccountDistribution accountDistribution;
+
+    private final SplittableRandom random;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        System.out.println("load test " + options);
+        new LoadTest(options).run();
+    }
+
+    LoadTest(LoadTestOptions options) {
+        this.options = options;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(options.timeout())
+                .build();
+        this.accountDistribution = AccountDistribution.of(options);
+        this.random = new SplittableRandom(options.seed());
+    }
+
+    void run() throws Exception {
+        createAccounts();
+
+        System.out.printf("warming up for %ds at %d transfers/s%n", this.options.warmUp().toSeconds(), this.options.rate());
+        runPhase(this.options.warmUp(), false);
+
+        System.out.printf("measuring for %ds at %d transfers/s%n", this.options.duration().toSeconds(), this.options.rate());
+        Phase phase = runPhase(this.options.duration(), true);
+        phase.report("total", phase.total, this.options.duration());
+    }
+
+    /**
+     * Create the accounts in a single import, accounts left by a previous run are reported as duplicates.
+     */
+    private void createAccounts() throws Exception {
+        StringBuilder accounts = new StringBuilder();
+        for (int account = 0; account < this.options.accounts(); account++) {
+            accounts.append("{\"accountId\":\"").append(accountId(account))
+                    .append("\",\"balance\":").append(this.options.initialBalance()).append("}\n");
+        }
+        HttpResponse<String> response = this.httpClient.send(HttpRequest.newBuilder()
+                        .uri(URI.create(this.options.baseUrl() + "/v1/accounts/import"))
+                        .header("Content-Type", "application/x-ndjson")
+                        .POST(HttpRequest.BodyPublishers.ofString(accounts.toString()))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Accounts not created: " + response.statusCode() + " " + response.body());
+        }
+        System.out.println("accounts " + response.body());
+    }
+
+    private Phase runPhase(Duration length, boolean recorded) throws InterruptedException {
+        Phase phase = new Phase();
+        double intervalNanos = 1_000_000_000d / this.options.rate();
+        long reportIntervalNanos = this.options.reportInterval().toNanos();
+        long start = System.nanoTime();
+        long end = start + length.toNanos();
+        long nextReport = start + reportIntervalNanos;
+        int[] pair = new int[2];
+
+        for (long sent = 0; ; sent++) {
+            long intendedStart = start + (long) (sent * intervalNanos);
+            if (intendedStart >= end) {
+                break;
+            }
+            long now;
+            while ((now = System.nanoTime()) < intendedStart) {
+                LockSupport.parkNanos(intendedStart - now);
+            }
+            if (recorded && now >= nextReport) {
+                LatencyHistogram interval = phase.interval.getAndSet(new LatencyHistogram());
+                phase.report("interval", interval, this.options.reportInterval());
+                nextReport += reportIntervalNanos;
+            }
+
+            phase.sent.increment();
+            if (this.inFlight.get() >= this.options.maxInFlight()) {
+                phase.dropped.increment();
+                continue;
+            }
+            this.accountDistribution.next(this.random, pair);
+            this.inFlight.incrementAndGet();
+            this.httpClient.sendAsync(transferRequest(pair), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        this.inFlight.decrementAndGet();
+                        phase.record(intendedStart, response, error);
+                    });
+        }
+
+        long drainDeadline = System.nanoTime() + this.options.timeout().toNanos();
+        while (this.inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        return phase;
+    }
+
+    private HttpRequest transferRequest(int[] pair) {
+        String body = "{\"from\":\"" + accountId(pair[0]) + "\",\"to\":\"" + accountId(pair[1])
+                + "\",\"amount\":" + this.options.amount() + "}";
+        return HttpRequest.newBuilder()
+                .uri(URI.create(this.options.baseUrl() + "/v1/accounts/transfer"))
+                .timeout(this.options.timeout())
+                .header("Content-Type", "application/json")
+                .header("X-Request-Timeout", String.valueOf(this.options.timeout().toMillis()))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private String accountId(int account) {
+        return this.options.accountPrefix() + account;
+    }
+
+    /**
+     * Outcome of the transfers started during a phase.
+     */
+    private final class Phase {
+
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder ok = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LatencyHistogram total = new LatencyHistogram();
+        private final AtomicReference<LatencyHistogram> interval = new AtomicReference<>(new LatencyHistogram());
+
+        private void record(long intendedStart, HttpResponse<Void> response, Throwable error) {
+            long micros = (System.nanoTime() - intendedStart) / 1_000;
+            this.total.record(micros);
+            this.interval.get().record(micros);
+            if (error != null) {
+                this.errors.increment();
+            } else if (response.statusCode() == 200) {
+                this.ok.increment();
+            } else if (response.statusCode() == 429) {
+                this.rejected.increment();
+            } else {
+                this.failed.increment();
+            }
+        }
+
+        private void report(String name, LatencyHistogram histogram, Duration length) {
+            System.out.printf("%-8s sent %d  ok %d  rejected %d  failed %d  errors %d  dropped %d%n",
+                    name, this.sent.sum(), this.ok.sum(), this.rejected.sum(), this.failed.sum(),
+                    this.errors.sum(), this.dropped.sum());
+            System.out.printf("%-8s throughput %.1f answers/s (target %d/s)%n",
+                    name, histogram.count() / (double) Math.max(length.toMillis(), 1) * 1000, options.rate());
+            System.out.printf("%-8s latency ms  p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+                    name, millis(histogram.percentile(50)), millis(histogram.percentile(90)),
+                    millis(histogram.percentile(99)), millis(histogram.percentile(99.9)), millis(histogram.max()));
+        }
+
+        private double millis(long micros) {
+            return micros / 1000d;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.db.awmd.challenge.loadtest;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Options of a load test run, passed as {@code --name=value}. Every option has a default.
+ */
+final class LoadTestOptions {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("base-url", "http://localhost:18080");
+        DEFAULTS.put("rate", "1000");
+        DEFAULTS.put("warm-up-s", "10");
+        DEFAULTS.put("duration-s", "60");
+        DEFAULTS.put("report-interval-s", "10");
+        DEFAULTS.put("accounts", "1000");
+        DEFAULTS.put("account-prefix", "load-");
+        DEFAULTS.put("initial-balance", "1000000000");
+        DEFAULTS.put("amount", "1");
+        DEFAULTS.put("distribution", "uniform");
+        DEFAULTS.put("zipf-exponent", "1.1");
+        DEFAULTS.put("max-in-flight", "10000");
+        DEFAULTS.put("timeout-ms", "5000");
+        DEFAULTS.put("seed", "42");
+    }
+
+    private final Map<String, String> values;
+
+    private LoadTestOptions(Map<String, String> values) {
+        this.values = values;
+    }
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            String name = arg.startsWith("--") && equals > 2 ? arg.substring(2, equals) : null;
+            if (name == null || !DEFAULTS.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown option " + arg + ", options and defaults: " + DEFAULTS);
+            }
+            values.put(name, arg.substring(equals + 1));
+        }
+        return new LoadTestOptions(values);
+    }
+
+    String baseUrl() {
+        return this.values.get("base-url");
+    }
+
+    /** Transfers started per second, whatever the latency of the server */
+    int rate() {
+        return Integer.parseInt(this.values.get("rate"));
+    }
+
+    Duration warmUp() {
+        return Duration.ofSeconds(Long.parseLong(this.values.get("warm-up-s")));
+    }
+
+    Duration duration() {
+        return Duration.ofSeconds(Long.parseLong(this.values.get("duration-s")));
+    }
+
+    Duration reportInterval() {
+        return Duration.ofSeconds(Long.parseLong(this.values.get("report-interval-s")));
+    }
+
+    int accounts() {
+        return Integer.parseInt(this.values.get("accounts"));
+    }
+
+    String accountPrefix() {
+        return this.values.get("account-prefix");
+    }
+
+    String initialBalance() {
+        return this.values.get("initial-balance");
+    }
+
+    String amount() {
+        return this.values.get("amount");
+    }
+
+    /** uniform, zipf or opposing */
+    String distribution() {
+        return this.values.get("distribution");
+    }
+
+    double zipfExponent() {
+        return Double.parseDouble(this.values.get("zipf-exponent"));
+    }
+
+    /** Transfers waiting for an answer above which new ones are counted as dropped instead of sent */
+    int maxInFlight() {
+        return Integer.parseInt(this.values.get("max-in-flight"));
+    }
+
+    Duration timeout() {
+        return Duration.ofMillis(Long.parseLong(this.values.get("timeout-ms")));
+    }
+
+    long seed() {
+        return Long.parseLong(this.values.get("seed"));
+    }
+
+    @Override
+    public String toString() {
+        return this.values.toString();
+    }
+}
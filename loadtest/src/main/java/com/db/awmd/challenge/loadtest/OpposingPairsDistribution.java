@@ -0,0 +1,27 @@
+package com.db.awmd.challenge.loadtest;
+
+import java.util.SplittableRandom;
+
+/**
+ * Accounts are paired up and every transfer goes one way or the other inside a pair, so concurrent transfers
+ * <br /> lock the same two accounts in opposite order: the worst case for lock ordering and contention.
+ */
+final class OpposingPairsDistribution implements AccountDistribution {
+
+    private final int pairs;
+
+    OpposingPairsDistribution(int accounts) {
+        if (accounts < 2) {
+            throw new IllegalArgumentException("At least two accounts are needed");
+        }
+        this.pairs = accounts / 2;
+    }
+
+    @Override
+    public void next(SplittableRandom random, int[] pair) {
+        int first = 2 * random.nextInt(this.pairs);
+        int direction = random.nextInt(2);
+        pair[0] = first + direction;
+        pair[1] = first + 1 - direction;
+    }
+}
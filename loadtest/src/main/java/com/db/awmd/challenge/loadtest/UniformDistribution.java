@@ -0,0 +1,25 @@
+package com.db.awmd.challenge.loadtest;
+
+import java.util.SplittableRandom;
+
+/**
+ * Every account is equally likely on both sides of a transfer, the least contended workload.
+ */
+final class UniformDistribution implements AccountDistribution {
+
+    private final int accounts;
+
+    UniformDistribution(int accounts) {
+        if (accounts < 2) {
+            throw new IllegalArgumentException("At least two accounts are needed");
+        }
+        this.accounts = accounts;
+    }
+
+    @Override
+    public void next(SplittableRandom random, int[] pair) {
+        pair[0] = random.nextInt(this.accounts);
+        // Any other account, so origin and destination never match
+        pair[1] = (pair[0] + 1 + random.nextInt(this.accounts - 1)) % this.accounts;
+    }
+}
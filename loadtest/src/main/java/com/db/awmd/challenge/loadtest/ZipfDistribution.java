@@ -0,0 +1,42 @@
+package com.db.awmd.challenge.loadtest;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Account k is picked with a probability proportional to 1 / (k + 1)^exponent, so a few hot accounts take
+ * <br /> most of the transfers, like merchants in a payment system. Sampled by binary search over the
+ * <br /> cumulative distribution.
+ */
+final class ZipfDistribution implements AccountDistribution {
+
+    private final double[] cumulative;
+
+    ZipfDistribution(int accounts, double exponent) {
+        if (accounts < 2) {
+            throw new IllegalArgumentException("At least two accounts are needed");
+        }
+        this.cumulative = new double[accounts];
+        double total = 0;
+        for (int account = 0; account < accounts; account++) {
+            total += 1 / Math.pow(account + 1, exponent);
+            this.cumulative[account] = total;
+        }
+        for (int account = 0; account < accounts; account++) {
+            this.cumulative[account] /= total;
+        }
+    }
+
+    @Override
+    public void next(SplittableRandom random, int[] pair) {
+        pair[0] = sample(random);
+        do {
+            pair[1] = sample(random);
+        } while (pair[1] == pair[0]);
+    }
+
+    private int sample(SplittableRandom random) {
+        int account = Arrays.binarySearch(this.cumulative, random.nextDouble());
+        return Math.min(account < 0 ? -account - 1 : account, this.cumulative.length - 1);
+    }
+}
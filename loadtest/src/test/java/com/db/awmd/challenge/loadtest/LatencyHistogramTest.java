@@ -0,0 +1,85 @@
+package com.db.awmd.challenge.loadtest;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramAnswersZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThat(histogram.count()).isZero();
+        assertThat(histogram.percentile(50)).isZero();
+        assertThat(histogram.percentile(99.9)).isZero();
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 200; micros++) {
+            histogram.record(micros);
+        }
+
+        assertThat(histogram.count()).isEqualTo(200);
+        assertThat(histogram.percentile(50)).isEqualTo(100);
+        assertThat(histogram.percentile(99)).isEqualTo(198);
+        assertThat(histogram.percentile(100)).isEqualTo(200);
+        assertThat(histogram.max()).isEqualTo(200);
+    }
+
+    @Test
+    public void largeValuesAreWithinOnePercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1_000; micros <= 1_000_000; micros += 1_000) {
+            histogram.record(micros);
+        }
+
+        assertPercentile(histogram, 50, 500_000);
+        assertPercentile(histogram, 90, 900_000);
+        assertPercentile(histogram, 99, 990_000);
+        assertThat(histogram.percentile(100)).isLessThanOrEqualTo(1_000_000);
+        assertThat(histogram.max()).isEqualTo(1_000_000);
+    }
+
+    @Test
+    public void percentileNeverExceedsTheMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE / 2);
+        histogram.record(-5);
+
+        assertThat(histogram.percentile(50)).isZero();
+        assertThat(histogram.percentile(100)).isBetween((long) ((Long.MAX_VALUE / 2) * 0.99), Long.MAX_VALUE / 2);
+    }
+
+    @Test
+    public void concurrentRecordsAreAllCounted() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int thread = 0; thread < 4; thread++) {
+            executor.execute(() -> {
+                for (int micros = 0; micros < 10_000; micros++) {
+                    histogram.record(micros);
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(histogram.count()).isEqualTo(40_000);
+        assertThat(histogram.max()).isEqualTo(9_999);
+        assertPercentile(histogram, 50, 5_000);
+    }
+
+    /**
+     * The percentile is the lowest value of its bucket, at most 1% below the recorded value.
+     */
+    private static void assertPercentile(LatencyHistogram histogram, double percentile, long expected) {
+        assertThat(histogram.percentile(percentile)).isBetween((long) (expected * 0.99), expected);
+    }
+}
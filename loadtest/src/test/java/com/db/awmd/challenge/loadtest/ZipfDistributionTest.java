@@ -0,0 +1,64 @@
+package com.db.awmd.challenge.loadtest;
+
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ZipfDistributionTest {
+
+    private static final int ACCOUNTS = 100;
+
+    private static final int SAMPLES = 100_000;
+
+    @Test
+    public void pairsAreDistinctAccountsInRange() {
+        int[] origins = sample(new ZipfDistribution(ACCOUNTS, 1.0));
+
+        for (int account = 0; account < ACCOUNTS; account++) {
+            assertThat(origins[account]).isPositive();
+        }
+    }
+
+    @Test
+    public void firstAccountsTakeMostTransfers() {
+        int[] origins = sample(new ZipfDistribution(ACCOUNTS, 1.0));
+
+        // Account 0 is picked with probability 1 / H(100), about 19%, account 99 a hundred times less often
+        assertThat(origins[0] / (double) SAMPLES).isBetween(0.17, 0.22);
+        assertThat(origins[0]).isGreaterThan(origins[1]).isGreaterThan(origins[9] * 5);
+        assertThat(origins[ACCOUNTS - 1]).isLessThan(origins[0] / 20);
+    }
+
+    @Test
+    public void exponentZeroIsUniform() {
+        int[] origins = sample(new ZipfDistribution(ACCOUNTS, 0));
+
+        for (int account = 0; account < ACCOUNTS; account++) {
+            assertThat(origins[account]).isBetween(SAMPLES / ACCOUNTS * 8 / 10, SAMPLES / ACCOUNTS * 12 / 10);
+        }
+    }
+
+    @Test
+    public void needsTwoAccounts() {
+        assertThatThrownBy(() -> new ZipfDistribution(1, 1.0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * @return int[] number of times every account was picked as the origin
+     */
+    private static int[] sample(ZipfDistribution distribution) {
+        SplittableRandom random = new SplittableRandom(42);
+        int[] origins = new int[ACCOUNTS];
+        int[] pair = new int[2];
+        for (int i = 0; i < SAMPLES; i++) {
+            distribution.next(random, pair);
+            assertThat(pair[0]).isBetween(0, ACCOUNTS - 1);
+            assertThat(pair[1]).isBetween(0, ACCOUNTS - 1).isNotEqualTo(pair[0]);
+            origins[pair[0]]++;
+        }
+        return origins;
+    }
+}
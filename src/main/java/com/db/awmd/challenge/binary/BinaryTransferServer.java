@@ -0,0 +1,179 @@
+package com.db.awmd.challenge.binary;
+
+import com.db.awmd.challenge.binary.TransferFrameCodec.TransferFrame;
+import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.enums.BinaryTransferStatus;
+import com.db.awmd.challenge.exception.AccountNotFoundException;
+import com.db.awmd.challenge.exception.InsufficientAmountException;
+import com.db.awmd.challenge.exception.TransferNotCompletedException;
+import com.db.awmd.challenge.exception.TransferRateLimitedException;
+import com.db.awmd.challenge.partition.PartitionRouter;
+import com.db.awmd.challenge.service.PartitionedTransferService;
+import com.db.awmd.challenge.service.TransferAdmissionControl;
+import com.db.awmd.challenge.service.TransferService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Plain TCP endpoint for clients sending transfers in the binary frames of {@link TransferFrameCodec}, skipping
+ * <br /> JSON binding and validation. Only started when binary.port is set. Every connection is served by its own
+ * <br /> virtual thread, which executes the transfers in order and answers them in order; frames can be pipelined
+ * <br /> and all the answers to the frames read together are written at once.
+ * <br /> Transfers go through {@link PartitionedTransferService}; a frame whose origin account belongs to another node
+ * <br /> is answered NOT_OWNER, the client has to send it to that node. A replica refuses to start the endpoint.
+ */
+@Component
+@ConditionalOnProperty(name = "binary.port")
+@Slf4j
+public class BinaryTransferServer {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final TransferService transferService;
+
+    private final PartitionedTransferService partitionedTransferService;
+
+    private final PartitionRouter partitionRouter;
+
+    private final TransferAdmissionControl transferAdmissionControl;
+
+    private final int port;
+
+    private final Set<SocketChannel> clients = ConcurrentHashMap.newKeySet();
+
+    private ServerSocketChannel serverChannel;
+
+    private volatile boolean running;
+
+    @Autowired
+    public BinaryTransferServer(TransferService transferService,
+                                PartitionedTransferService partitionedTransferService,
+                                PartitionRouter partitionRouter,
+                                TransferAdmissionControl transferAdmissionControl,
+                                @Value("${binary.port}") int port,
+                                @Value("${replication.role:none}") String replicationRole) {
+        if ("replica".equals(replicationRole)) {
+            throw new IllegalStateException("binary.port can not be set on a replica, send transfers to the primary");
+        }
+        this.transferService = transferService;
+        this.partitionedTransferService = partitionedTransferService;
+        this.partitionRouter = partitionRouter;
+        this.transferAdmissionControl = transferAdmissionControl;
+        this.port = port;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        this.serverChannel = ServerSocketChannel.open().bind(new InetSocketAddress(this.port));
+        this.running = true;
+        Thread.ofPlatform().daemon().name("binary-transfer-acceptor").start(this::acceptClients);
+        log.info("binary transfer endpoint on port {}", getPort());
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        this.running = false;
+        this.serverChannel.close();
+        for (SocketChannel client : this.clients) {
+            client.close();
+        }
+    }
+
+    /**
+     * @return int the port clients connect to
+     */
+    public int getPort() {
+        return this.serverChannel.socket().getLocalPort();
+    }
+
+    private void acceptClients() {
+        while (this.running) {
+            try {
+                SocketChannel client = this.serverChannel.accept();
+                client.socket().setTcpNoDelay(true);
+                this.clients.add(client);
+                Thread.ofVirtual().name("binary-transfer-" + client.getRemoteAddress()).start(() -> serve(client));
+            } catch (IOException e) {
+                if (this.running) {
+                    log.error("error accepting binary client", e);
+                }
+            }
+        }
+    }
+
+    private void serve(SocketChannel client) {
+        ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+        ByteBuffer output = ByteBuffer.allocate(BUFFER_SIZE);
+        try (client) {
+            try {
+                while (client.read(input) >= 0) {
+                    input.flip();
+                    TransferFrame frame;
+                    while ((frame = TransferFrameCodec.decodeRequest(input)) != null) {
+                        if (output.remaining() < TransferFrameCodec.RESPONSE_FRAME_LENGTH) {
+                            write(client, output);
+                        }
+                        TransferFrameCodec.encodeResponse(output, frame.correlationId(), execute(frame));
+                    }
+                    input.compact();
+                    write(client, output);
+                }
+            } catch (IllegalArgumentException e) {
+                log.info("closing binary client sending a malformed frame: {}", e.getMessage());
+                // The frames before the malformed one were executed, their answers go out before closing
+                write(client, output);
+            }
+        } catch (IOException e) {
+            log.debug("binary client disconnected", e);
+        } finally {
+            this.clients.remove(client);
+        }
+    }
+
+    private BinaryTransferStatus execute(TransferFrame frame) {
+        TransferRequest transferRequest = frame.transferRequest();
+        if (transferRequest.getAccountFromId().isEmpty() || transferRequest.getAccountToId().isEmpty()
+                || transferRequest.getAmountTransfer().signum() < 0 || transferRequest.getAmountTransfer().scale() < 0
+                || frame.timeoutMs() < 0) {
+            return BinaryTransferStatus.INVALID;
+        }
+        if (!this.partitionRouter.isLocal(transferRequest.getAccountFromId())) {
+            return BinaryTransferStatus.NOT_OWNER;
+        }
+        try {
+            this.transferAdmissionControl.admit(transferRequest);
+            this.partitionedTransferService.makeTransfer(transferRequest,
+                    this.transferService.deadlineAfter(frame.timeoutMs() == 0 ? null : (long) frame.timeoutMs()));
+            return BinaryTransferStatus.COMPLETED;
+        } catch (TransferRateLimitedException e) {
+            return BinaryTransferStatus.RATE_LIMITED;
+        } catch (InsufficientAmountException e) {
+            return BinaryTransferStatus.INSUFFICIENT_AMOUNT;
+        } catch (AccountNotFoundException e) {
+            return BinaryTransferStatus.ACCOUNT_NOT_FOUND;
+        } catch (TransferNotCompletedException e) {
+            return BinaryTransferStatus.NOT_COMPLETED;
+        }
+    }
+
+    private void write(SocketChannel client, ByteBuffer output) throws IOException {
+        output.flip();
+        while (output.hasRemaining()) {
+            client.write(output);
+        }
+        output.clear();
+    }
+}
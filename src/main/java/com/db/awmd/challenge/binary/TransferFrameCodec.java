@@ -0,0 +1,125 @@
+package com.db.awmd.challenge.binary;
+
+import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.enums.BinaryTransferStatus;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary frames of the transfer protocol, big endian, every frame prefixed by the length of the rest of it.
+ * <br /> Request: int length, long correlation id, int timeout ms (0 for the default), byte from length, from,
+ * <br /> byte to length, to, long unscaled amount, byte amount scale. Account ids are US-ASCII.
+ * <br /> Response: int length, long correlation id, byte status.
+ * <br /> Requests are decoded in place from the backing array of a heap buffer, without intermediate copies.
+ */
+public final class TransferFrameCodec {
+
+    /** Largest request frame accepted, two ids of 255 bytes and the fixed fields */
+    public static final int MAX_FRAME_LENGTH = 8 + 4 + 1 + 255 + 1 + 255 + 8 + 1;
+
+    public static final int RESPONSE_FRAME_LENGTH = 4 + 8 + 1;
+
+    private static final BinaryTransferStatus[] STATUSES = BinaryTransferStatus.values();
+
+    private TransferFrameCodec() {
+    }
+
+    /**
+     * Decode the next request of the buffer, from its position. The position moves past the frame only when the
+     * <br /> whole frame has been received.
+     * @param buffer heap buffer ready to be read
+     * @return TransferFrame null when the frame is not complete yet
+     * @exception IllegalArgumentException when the frame is malformed, the connection can not be trusted anymore
+     */
+    public static TransferFrame decodeRequest(ByteBuffer buffer) {
+        if (buffer.remaining() < 4) {
+            return null;
+        }
+        int start = buffer.position();
+        int length = buffer.getInt(start);
+        if (length < 8 + 4 + 1 + 1 + 8 + 1 || length > MAX_FRAME_LENGTH) {
+            throw new IllegalArgumentException("Invalid frame length " + length);
+        }
+        if (buffer.remaining() < 4 + length) {
+            return null;
+        }
+
+        byte[] array = buffer.array();
+        int offset = buffer.arrayOffset() + start + 4;
+        long correlationId = buffer.getLong(start + 4);
+        int timeoutMs = buffer.getInt(start + 12);
+        int fromLength = array[offset + 12] & 0xff;
+        if (13 + fromLength + 1 + 9 > length) {
+            throw new IllegalArgumentException("Frame length " + length + " does not match its account ids");
+        }
+        String from = new String(array, offset + 13, fromLength, StandardCharsets.US_ASCII);
+        int toOffset = offset + 13 + fromLength;
+        int toLength = array[toOffset] & 0xff;
+        if (13 + fromLength + 1 + toLength + 9 != length) {
+            throw new IllegalArgumentException("Frame length " + length + " does not match its account ids");
+        }
+        String to = new String(array, toOffset + 1, toLength, StandardCharsets.US_ASCII);
+        int amountIndex = toOffset + 1 + toLength - buffer.arrayOffset();
+        long unscaledAmount = buffer.getLong(amountIndex);
+        int scale = buffer.get(amountIndex + 8);
+        buffer.position(start + 4 + length);
+
+        return new TransferFrame(correlationId, timeoutMs, new TransferRequest()
+                .setAccountFromId(from)
+                .setAccountToId(to)
+                .setAmountTransfer(BigDecimal.valueOf(unscaledAmount, scale)));
+    }
+
+    /**
+     * Encode a request, used by clients and tests.
+     * @param buffer
+     * @param correlationId
+     * @param timeoutMs
+     * @param transferRequest amount with at most 18 digits and a scale up to 127
+     */
+    public static void encodeRequest(ByteBuffer buffer, long correlationId, int timeoutMs, TransferRequest transferRequest) {
+        byte[] from = transferRequest.getAccountFromId().getBytes(StandardCharsets.US_ASCII);
+        byte[] to = transferRequest.getAccountToId().getBytes(StandardCharsets.US_ASCII);
+        BigDecimal amount = transferRequest.getAmountTransfer();
+        buffer.putInt(8 + 4 + 1 + from.length + 1 + to.length + 8 + 1)
+                .putLong(correlationId)
+                .putInt(timeoutMs)
+                .put((byte) from.length)
+                .put(from)
+                .put((byte) to.length)
+                .put(to)
+                .putLong(amount.unscaledValue().longValueExact())
+                .put((byte) amount.scale());
+    }
+
+    public static void encodeResponse(ByteBuffer buffer, long correlationId, BinaryTransferStatus status) {
+        buffer.putInt(8 + 1)
+                .putLong(correlationId)
+                .put((byte) status.ordinal());
+    }
+
+    /**
+     * Decode the next response of the buffer, used by clients and tests.
+     * @param buffer
+     * @return TransferResponse null when the frame is not complete yet
+     */
+    public static TransferResponse decodeResponse(ByteBuffer buffer) {
+        if (buffer.remaining() < RESPONSE_FRAME_LENGTH) {
+            return null;
+        }
+        buffer.getInt();
+        long correlationId = buffer.getLong();
+        return new TransferResponse(correlationId, STATUSES[buffer.get()]);
+    }
+
+    /**
+     * A decoded request with the fields that are not part of the transfer itself.
+     */
+    public record TransferFrame(long correlationId, int timeoutMs, TransferRequest transferRequest) {
+    }
+
+    public record TransferResponse(long correlationId, BinaryTransferStatus status) {
+    }
+}
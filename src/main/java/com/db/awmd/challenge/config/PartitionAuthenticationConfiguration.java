@@ -0,0 +1,51 @@
+package com.db.awmd.challenge.config;
+
+import com.db.awmd.challenge.partition.PartitionClient;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * The two phase endpoints move money between nodes, only the other nodes may call them: every call has to carry
+ * <br /> partition.secret, which has to be set whenever partition.nodes is.
+ */
+@Configuration
+@ConditionalOnProperty(name = "partition.nodes")
+public class PartitionAuthenticationConfiguration implements WebMvcConfigurer {
+
+    public static final String UNKNOWN_NODE = "Only the nodes sharing the accounts may call this endpoint";
+
+    private final byte[] secret;
+
+    public PartitionAuthenticationConfiguration(@Value("${partition.secret:}") String secret) {
+        if (secret.isEmpty()) {
+            throw new IllegalStateException("partition.secret has to be set when partition.nodes is");
+        }
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+                    throws Exception {
+                String header = request.getHeader(PartitionClient.SECRET_HEADER);
+                if (header != null && MessageDigest.isEqual(secret, header.getBytes(StandardCharsets.UTF_8))) {
+                    return true;
+                }
+                response.sendError(HttpStatus.UNAUTHORIZED.value(), UNKNOWN_NODE);
+                return false;
+            }
+        }).addPathPatterns("/v1/partition/**");
+    }
+}
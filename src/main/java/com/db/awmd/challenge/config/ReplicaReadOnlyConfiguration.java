@@ -0,0 +1,36 @@
+package com.db.awmd.challenge.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * A replica only serves reads, every change has to go through the primary and arrive by replication.
+ */
+@Configuration
+@ConditionalOnProperty(name = "replication.role", havingValue = "replica")
+public class ReplicaReadOnlyConfiguration implements WebMvcConfigurer {
+
+    public static final String READ_ONLY_REPLICA = "Read only replica, send changes to the primary";
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+                    throws Exception {
+                if (HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod())) {
+                    return true;
+                }
+                response.sendError(HttpStatus.FORBIDDEN.value(), READ_ONLY_REPLICA);
+                return false;
+            }
+        }).addPathPatterns("/v1/**");
+    }
+}
@@ -0,0 +1,35 @@
+package com.db.awmd.challenge.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executor running transfers off the request threads. Follows {@code spring.threads.virtual.enabled}, the same
+ * <br /> switch that moves Tomcat request handling onto virtual threads.
+ */
+@Configuration
+public class TransferExecutorConfiguration {
+
+    public static final String TRANSFER_EXECUTOR = "transferExecutor";
+
+    /**
+     * One virtual thread per task, a transfer waiting for an account lock does not hold a platform thread.
+     */
+    @Bean(name = TRANSFER_EXECUTOR, destroyMethod = "shutdown")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public ExecutorService virtualThreadTransferExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean(name = TRANSFER_EXECUTOR, destroyMethod = "shutdown")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ExecutorService platformThreadTransferExecutor(@Value("${transfer.executor.threads:16}") int threads) {
+        return Executors.newFixedThreadPool(threads);
+    }
+}
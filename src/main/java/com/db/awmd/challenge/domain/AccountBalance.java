@@ -0,0 +1,27 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Data
+@Accessors(chain = true)
+public class AccountBalance {
+
+    /**
+     * Account ID
+     */
+    private String accountId;
+
+    /**
+     * Balance of the account at the requested time
+     */
+    private BigDecimal balance;
+
+    /**
+     * Time of the balance
+     */
+    private Instant asOf;
+}
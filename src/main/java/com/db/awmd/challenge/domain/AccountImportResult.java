@@ -0,0 +1,46 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+@Data
+@Accessors(chain = true)
+public class AccountImportResult {
+
+    /**
+     * Number of accounts created
+     */
+    private long imported;
+
+    /**
+     * Number of accounts skipped because their id already existed
+     */
+    private long duplicates;
+
+    /**
+     * Number of lines skipped because they are not a valid account
+     */
+    private long rejected;
+
+    /**
+     * First duplicated account ids found, to help locating the problem in the source
+     */
+    private List<String> duplicateAccountIds;
+
+    /**
+     * Number of accounts skipped because another node of the partition owns them
+     */
+    private long notOwned;
+
+    /**
+     * First account ids owned by another node, to import on their owner
+     */
+    private List<String> notOwnedAccountIds;
+
+    /**
+     * Time spent importing, in milliseconds
+     */
+    private long elapsedMillis;
+}
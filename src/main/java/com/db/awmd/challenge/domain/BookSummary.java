@@ -0,0 +1,41 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.math.BigDecimal;
+
+@Data
+@Accessors(chain = true)
+public class BookSummary {
+
+    /**
+     * Number of accounts in the book
+     */
+    private long accounts;
+
+    /**
+     * Sum of the balances of all accounts at the snapshot
+     */
+    private BigDecimal totalBalance;
+
+    /**
+     * Funds taken out of the accounts by active holds at the snapshot, not part of the total balance
+     */
+    private BigDecimal heldBalance;
+
+    /**
+     * Number of accounts whose balance is below zero at the snapshot, should always be zero
+     */
+    private long negativeBalances;
+
+    /**
+     * Ledger position the balances were read at
+     */
+    private long snapshot;
+
+    /**
+     * Time spent scanning the book, in milliseconds
+     */
+    private long elapsedMillis;
+}
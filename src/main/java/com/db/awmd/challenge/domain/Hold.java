@@ -0,0 +1,43 @@
+package com.db.awmd.challenge.domain;
+
+import com.db.awmd.challenge.enums.HoldStatus;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.math.BigDecimal;
+
+@Data
+@Accessors(chain = true)
+public class Hold {
+
+    /**
+     * Id for specific hold
+     */
+    private String id;
+
+    /**
+     * Account whose balance is held
+     */
+    private String accountId;
+
+    /**
+     * Amount taken out of the available balance of the account
+     */
+    private BigDecimal amount;
+
+    /**
+     * Time when the hold is released if not captured, in epoch milliseconds
+     */
+    private long expiresAt;
+
+    /**
+     * Held, captured, released, expired or failed. Only set by the caller that took the hold out of the active
+     * <br /> ones, once the outcome is known, and volatile so readers on other threads see it
+     */
+    private volatile HoldStatus status;
+
+    /**
+     * Transfer created when the hold is captured
+     */
+    private volatile String transferId;
+}
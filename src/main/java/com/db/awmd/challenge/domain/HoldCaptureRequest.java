@@ -0,0 +1,19 @@
+package com.db.awmd.challenge.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import jakarta.validation.constraints.NotEmpty;
+
+@Data
+@Accessors(chain = true)
+public class HoldCaptureRequest {
+
+    /**
+     * Destination Account ID receiving the held amount
+     */
+    @NotEmpty
+    @JsonProperty("to")
+    private String accountToId;
+}
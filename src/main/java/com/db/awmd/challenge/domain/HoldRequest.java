@@ -0,0 +1,37 @@
+package com.db.awmd.challenge.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import java.math.BigDecimal;
+
+@Data
+@Accessors(chain = true)
+public class HoldRequest {
+
+    /**
+     * Account whose balance is held
+     */
+    @NotEmpty
+    @JsonProperty("accountId")
+    private String accountId;
+
+    /**
+     * Amount held
+     */
+    @NotNull
+    @JsonProperty("amount")
+    @Min(value = 0, message = TransferRequest.AMOUNT_CAN_NOT_BE_EMPTY)
+    private BigDecimal amount;
+
+    /**
+     * Milliseconds before the hold is released if not captured, the configured default when not sent
+     */
+    @Min(1)
+    @JsonProperty("ttlMs")
+    private Long ttlMs;
+}
@@ -0,0 +1,42 @@
+package com.db.awmd.challenge.domain;
+
+import com.db.awmd.challenge.enums.LedgerEntryType;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.math.BigDecimal;
+
+@Data
+@Accessors(chain = true)
+public class LedgerEntry {
+
+    /**
+     * Position of the entry in the ledger
+     */
+    private long sequence;
+
+    /**
+     * Time when the entry was recorded, in epoch milliseconds
+     */
+    private long timestamp;
+
+    /**
+     * Account the entry belongs to
+     */
+    private String accountId;
+
+    /**
+     * Transfer that produced the entry, null for opening balances
+     */
+    private String transferId;
+
+    /**
+     * Opening balance, debit or credit
+     */
+    private LedgerEntryType type;
+
+    /**
+     * Amount of the entry, always positive
+     */
+    private BigDecimal amount;
+}
@@ -0,0 +1,29 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+@Data
+@Accessors(chain = true)
+public class PipelineStageStatus {
+
+    /**
+     * Name of the stage
+     */
+    private String name;
+
+    /**
+     * Items waiting in the queue of the stage
+     */
+    private int depth;
+
+    /**
+     * Maximum items the queue of the stage holds
+     */
+    private int capacity;
+
+    /**
+     * Threads draining the queue of the stage
+     */
+    private int threads;
+}
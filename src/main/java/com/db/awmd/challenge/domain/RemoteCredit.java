@@ -0,0 +1,46 @@
+package com.db.awmd.challenge.domain;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import java.math.BigDecimal;
+
+@Data
+@Accessors(chain = true)
+public class RemoteCredit {
+
+    /**
+     * Transfer created by the coordinator node
+     */
+    @NotNull
+    @NotEmpty
+    private String transferId;
+
+    /**
+     * Node owning the origin account, which decides whether the transfer commits
+     */
+    @NotNull
+    @NotEmpty
+    private String coordinator;
+
+    /**
+     * Origin account, already debited on the coordinator
+     */
+    @NotNull
+    @NotEmpty
+    private String accountFromId;
+
+    /**
+     * Destination account, owned by the node receiving the credit
+     */
+    @NotNull
+    @NotEmpty
+    private String accountToId;
+
+    @NotNull
+    @Min(value = 0, message = "Amount must be positive.")
+    private BigDecimal amount;
+}
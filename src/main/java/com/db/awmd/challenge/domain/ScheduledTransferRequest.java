@@ -0,0 +1,28 @@
+package com.db.awmd.challenge.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+
+@Data
+@Accessors(chain = true)
+public class ScheduledTransferRequest {
+
+    /**
+     * Transfer to be executed
+     */
+    @NotNull
+    @Valid
+    @JsonProperty("transfer")
+    private TransferRequest transfer;
+
+    /**
+     * Time when the transfer has to be executed, in epoch milliseconds
+     */
+    @NotNull
+    @JsonProperty("executeAt")
+    private Long executeAt;
+}
@@ -4,7 +4,7 @@ import com.db.awmd.challenge.enums.Status;
 import lombok.Data;
 import lombok.experimental.Accessors;
 
-import javax.validation.constraints.NotNull;
+import jakarta.validation.constraints.NotNull;
 
 @Data
 @Accessors(chain = true)
@@ -0,0 +1,24 @@
+package com.db.awmd.challenge.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import java.util.List;
+
+@Data
+@Accessors(chain = true)
+public class TransferBatchRequest {
+
+    /**
+     * Transfers to be executed together, in order
+     */
+    @NotNull
+    @NotEmpty
+    @Valid
+    @JsonProperty("transfers")
+    private List<TransferRequest> transfers;
+}
@@ -0,0 +1,45 @@
+package com.db.awmd.challenge.domain;
+
+import com.db.awmd.challenge.enums.Status;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.math.BigDecimal;
+
+@Data
+@Accessors(chain = true)
+public class TransferStatusEvent {
+
+    /**
+     * Position of the change in the stream, increasing by one for every change
+     */
+    private long sequence;
+
+    /**
+     * Id of the transfer whose status changed
+     */
+    private String transferId;
+
+    /**
+     * Origin Account ID
+     */
+    @JsonProperty("from")
+    private String accountFromId;
+
+    /**
+     * Destination Account ID
+     */
+    @JsonProperty("to")
+    private String accountToId;
+
+    /**
+     * Amount transfer
+     */
+    private BigDecimal amount;
+
+    /**
+     * Status the transfer moved to
+     */
+    private Status status;
+}
@@ -0,0 +1,6 @@
+package com.db.awmd.challenge.enums;
+
+public enum AccountImportFormat {
+    CSV,
+    NDJSON
+}
@@ -0,0 +1,11 @@
+package com.db.awmd.challenge.enums;
+
+public enum BinaryTransferStatus {
+    COMPLETED,
+    INSUFFICIENT_AMOUNT,
+    ACCOUNT_NOT_FOUND,
+    NOT_COMPLETED,
+    RATE_LIMITED,
+    INVALID,
+    NOT_OWNER
+}
@@ -0,0 +1,9 @@
+package com.db.awmd.challenge.enums;
+
+public enum HoldStatus {
+    HELD,
+    CAPTURED,
+    RELEASED,
+    EXPIRED,
+    FAILED
+}
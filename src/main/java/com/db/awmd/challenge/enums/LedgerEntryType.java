@@ -0,0 +1,7 @@
+package com.db.awmd.challenge.enums;
+
+public enum LedgerEntryType {
+    OPENING,
+    DEBIT,
+    CREDIT
+}
@@ -0,0 +1,6 @@
+package com.db.awmd.challenge.enums;
+
+public enum TransferDecision {
+    COMMITTED,
+    ABORTED
+}
@@ -0,0 +1,11 @@
+package com.db.awmd.challenge.exception;
+
+/**
+ * Exception when a hold has already been captured, released or has expired
+ */
+public class HoldNotActiveException extends RuntimeException {
+
+    public HoldNotActiveException(String message) {
+        super(message);
+    }
+}
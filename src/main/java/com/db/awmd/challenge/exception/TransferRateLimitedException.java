@@ -0,0 +1,11 @@
+package com.db.awmd.challenge.exception;
+
+/**
+ * Exception when the transfer is rejected because the account or the whole service is over its transfer rate.
+ */
+public class TransferRateLimitedException extends RuntimeException {
+
+    public TransferRateLimitedException(String message) {
+        super(message);
+    }
+}
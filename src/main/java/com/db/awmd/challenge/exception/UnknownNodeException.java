@@ -0,0 +1,11 @@
+package com.db.awmd.challenge.exception;
+
+/**
+ * Exception when a call between nodes names a node that is not one of partition.nodes
+ */
+public class UnknownNodeException extends RuntimeException {
+
+    public UnknownNodeException(String message) {
+        super(message);
+    }
+}
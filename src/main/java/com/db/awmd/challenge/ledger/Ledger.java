@@ -0,0 +1,454 @@
+package com.db.awmd.challenge.ledger;
+
+import com.db.awmd.challenge.domain.LedgerEntry;
+import com.db.awmd.challenge.enums.LedgerEntryType;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append only double entry ledger. Every transfer is recorded as a debit of the origin account and a credit
+ * <br /> of the destination account, and every account starts with an opening entry. Entries are never changed.
+ * <br /> Entries are stored column by column in primitive arrays, so audits are sequential scans, and the current
+ * <br /> balance of every account is kept as a materialized view. Every account also indexes the positions of its
+ * <br /> entries and checkpoints its balance every {@link #CHECKPOINT_INTERVAL} entries, so the balance at any time
+ * <br /> is found replaying at most that many entries, however long the history of the account is.
+ * <br /> Appends are serialized, reads never block: they only see the entries published before they started.
+ */
+@Component
+public class Ledger {
+
+    public static final int CHECKPOINT_INTERVAL = 64;
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+
+    /** Scale marking amounts that do not fit in a long, kept apart in bigAmounts */
+    private static final byte BIG_AMOUNT = Byte.MIN_VALUE;
+
+    private static final LedgerEntryType[] ENTRY_TYPES = LedgerEntryType.values();
+
+    private final Lock appendLock = new ReentrantLock();
+
+    private final Map<String, AccountView> accountViews = new ConcurrentHashMap<>();
+
+    private final Map<Integer, BigDecimal> bigAmounts = new ConcurrentHashMap<>();
+
+    private volatile Columns columns = new Columns(INITIAL_CAPACITY);
+
+    private volatile AccountView[] accountsByHandle = new AccountView[INITIAL_CAPACITY];
+
+    private volatile String[] transferIds = new String[INITIAL_CAPACITY];
+
+    private int transferCount;
+
+    private long lastTimestamp;
+
+    /** Number of published entries, written after the entries themselves */
+    private volatile int size;
+
+    /** Entries written but not published yet */
+    private int pendingEntries;
+
+    /**
+     * Record the opening balance of an account. Opening an account again starts its balance from scratch.
+     * @param accountId
+     * @param balance
+     */
+    public void open(String accountId, BigDecimal balance) {
+        open(accountId, balance, System.currentTimeMillis());
+    }
+
+    /**
+     * Same as {@link #open(String, BigDecimal)}, recorded at the time received instead of now. Used to replay
+     * <br /> entries recorded elsewhere; the timestamps of the ledger never go backwards.
+     * @param accountId
+     * @param balance
+     * @param timestamp epoch milliseconds of the opening
+     */
+    public void open(String accountId, BigDecimal balance, long timestamp) {
+        this.appendLock.lock();
+        try {
+            append(viewOf(accountId), -1, LedgerEntryType.OPENING, balance, timestamp);
+            publish();
+        } finally {
+            this.appendLock.unlock();
+        }
+    }
+
+    /**
+     * Record the opening balances of many accounts under a single acquisition of the append lock, all published
+     * <br /> together.
+     * @param balances opening balance by account id, recorded in iteration order
+     */
+    public void openAll(Map<String, BigDecimal> balances) {
+        long timestamp = System.currentTimeMillis();
+        this.appendLock.lock();
+        try {
+            balances.forEach((accountId, balance) ->
+                    append(viewOf(accountId), -1, LedgerEntryType.OPENING, balance, timestamp));
+            publish();
+        } finally {
+            this.appendLock.unlock();
+        }
+    }
+
+    /**
+     * Record a transfer as a debit of the origin account and a credit of the destination account.
+     * <br /> Both entries are published together, so no reader ever sees only one side of a transfer.
+     * @param transferId
+     * @param fromAccountId
+     * @param toAccountId
+     * @param amount
+     */
+    public void post(String transferId, String fromAccountId, String toAccountId, BigDecimal amount) {
+        post(transferId, fromAccountId, toAccountId, amount, System.currentTimeMillis());
+    }
+
+    /**
+     * Same as {@link #post(String, String, String, BigDecimal)}, recorded at the time received instead of now.
+     * @param transferId
+     * @param fromAccountId
+     * @param toAccountId
+     * @param amount
+     * @param timestamp epoch milliseconds of the transfer
+     */
+    public void post(String transferId, String fromAccountId, String toAccountId, BigDecimal amount, long timestamp) {
+        this.appendLock.lock();
+        try {
+            int transferHandle = transferHandle(transferId);
+            append(viewOf(fromAccountId), transferHandle, LedgerEntryType.DEBIT, amount, timestamp);
+            append(viewOf(toAccountId), transferHandle, LedgerEntryType.CREDIT, amount, timestamp);
+            publish();
+        } finally {
+            this.appendLock.unlock();
+        }
+    }
+
+    /**
+     * Return the current balance of the account from its materialized view.
+     * @param accountId
+     * @return BigDecimal null when the account has no entries
+     */
+    public BigDecimal getBalance(String accountId) {
+        AccountView accountView = this.accountViews.get(accountId);
+        return accountView == null ? null : accountView.balance;
+    }
+
+    /**
+     * Return the balance the account had at the given time.
+     * @param accountId
+     * @param timestamp epoch milliseconds, inclusive
+     * @return BigDecimal null when the account had no entries at that time
+     */
+    public BigDecimal getBalanceAt(String accountId, long timestamp) {
+        return balanceOf(accountId, this.size, timestamp);
+    }
+
+    /**
+     * Return the position up to which the ledger is published. The debit and credit of a transfer are always
+     * <br /> published together, so the balances of all accounts at the same snapshot are consistent.
+     * @return int the snapshot, to be used in {@link #getBalanceAtSnapshot(String, int)}
+     */
+    public int snapshot() {
+        return this.size;
+    }
+
+    /**
+     * Return the balance the account had when the snapshot was taken.
+     * @param accountId
+     * @param snapshot taken with {@link #snapshot()}
+     * @return BigDecimal null when the account had no entries at that snapshot
+     */
+    public BigDecimal getBalanceAtSnapshot(String accountId, int snapshot) {
+        return balanceOf(accountId, snapshot, Long.MAX_VALUE);
+    }
+
+    /**
+     * Find the last entry of the account published before the snapshot and recorded up to the timestamp,
+     * <br /> then replay the entries after the closest checkpoint before it.
+     */
+    private BigDecimal balanceOf(String accountId, int snapshot, long timestamp) {
+        AccountView accountView = this.accountViews.get(accountId);
+        if (accountView == null) {
+            return null;
+        }
+
+        // Read in the reverse order they are written, so every array covers the published entries
+        int count = accountView.count;
+        int[] positions = accountView.positions;
+        BigDecimal[] checkpoints = accountView.checkpoints;
+        Columns columns = this.columns;
+
+        int last = lastEntryAt(positions, count, snapshot, columns, timestamp);
+        if (last < 0) {
+            return null;
+        }
+
+        int checkpoint = (last + 1) / CHECKPOINT_INTERVAL - 1;
+        BigDecimal balance = checkpoint < 0 ? null : checkpoints[checkpoint];
+        for (int entry = (checkpoint + 1) * CHECKPOINT_INTERVAL; entry <= last; entry++) {
+            balance = apply(balance, columns, positions[entry]);
+        }
+        return balance;
+    }
+
+    /**
+     * Return every entry of the account, in the order they were recorded.
+     * @param accountId
+     * @return List<LedgerEntry>
+     */
+    public List<LedgerEntry> getEntries(String accountId) {
+        List<LedgerEntry> entries = new ArrayList<>();
+        AccountView accountView = this.accountViews.get(accountId);
+        if (accountView == null) {
+            return entries;
+        }
+
+        int size = this.size;
+        int count = accountView.count;
+        int[] positions = accountView.positions;
+        Columns columns = this.columns;
+        for (int entry = 0; entry < count && positions[entry] < size; entry++) {
+            entries.add(toEntry(columns, positions[entry]));
+        }
+        return entries;
+    }
+
+    /**
+     * Return the published entries between two positions of the ledger, in order.
+     * @param from first position, inclusive
+     * @param to last position, exclusive, capped to the published entries
+     * @return List<LedgerEntry>
+     */
+    public List<LedgerEntry> getEntries(int from, int to) {
+        int last = Math.min(to, this.size);
+        Columns columns = this.columns;
+        List<LedgerEntry> entries = new ArrayList<>(Math.max(last - from, 0));
+        for (int position = from; position < last; position++) {
+            entries.add(toEntry(columns, position));
+        }
+        return entries;
+    }
+
+    /**
+     * @return int number of entries recorded
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /** Delete all entries and balances of the ledger */
+    public void clear() {
+        this.appendLock.lock();
+        try {
+            this.size = 0;
+            this.columns = new Columns(INITIAL_CAPACITY);
+            this.accountsByHandle = new AccountView[INITIAL_CAPACITY];
+            this.transferIds = new String[INITIAL_CAPACITY];
+            this.transferCount = 0;
+            this.accountViews.clear();
+            this.bigAmounts.clear();
+        } finally {
+            this.appendLock.unlock();
+        }
+    }
+
+    private AccountView viewOf(String accountId) {
+        AccountView accountView = this.accountViews.get(accountId);
+        if (accountView == null) {
+            int handle = this.accountViews.size();
+            if (handle == this.accountsByHandle.length) {
+                this.accountsByHandle = Arrays.copyOf(this.accountsByHandle, handle * 2);
+            }
+            accountView = new AccountView(accountId, handle);
+            this.accountsByHandle[handle] = accountView;
+            this.accountViews.put(accountId, accountView);
+        }
+        return accountView;
+    }
+
+    private int transferHandle(String transferId) {
+        if (this.transferCount == this.transferIds.length) {
+            this.transferIds = Arrays.copyOf(this.transferIds, this.transferCount * 2);
+        }
+        this.transferIds[this.transferCount] = transferId;
+        return this.transferCount++;
+    }
+
+    /**
+     * Write an entry after the published ones and update the materialized balance. The entry is not visible
+     * <br /> to readers until {@link #publish()}.
+     */
+    private void append(AccountView accountView, int transferHandle, LedgerEntryType type, BigDecimal amount,
+                        long timestamp) {
+        int index = this.size + this.pendingEntries;
+        Columns columns = this.columns;
+        if (index == columns.capacity()) {
+            columns = columns.grow(index, index * 2);
+            this.columns = columns;
+        }
+
+        this.lastTimestamp = Math.max(this.lastTimestamp, timestamp);
+        columns.timestamps[index] = this.lastTimestamp;
+        columns.accounts[index] = accountView.handle;
+        columns.transfers[index] = transferHandle;
+        columns.types[index] = (byte) type.ordinal();
+        if (amount.scale() >= Byte.MIN_VALUE + 1 && amount.scale() <= Byte.MAX_VALUE && amount.unscaledValue().bitLength() < Long.SIZE) {
+            columns.amounts[index] = amount.unscaledValue().longValue();
+            columns.scales[index] = (byte) amount.scale();
+        } else {
+            this.bigAmounts.put(index, amount);
+            columns.scales[index] = BIG_AMOUNT;
+        }
+
+        accountView.balance = apply(accountView.balance, columns, index);
+        accountView.index(index);
+        this.pendingEntries++;
+    }
+
+    private void publish() {
+        this.size += this.pendingEntries;
+        this.pendingEntries = 0;
+    }
+
+    /**
+     * Binary search the last entry of the account that is published and recorded up to the timestamp.
+     * <br /> Positions grow with the ledger and timestamps never go back, so both conditions hold for a prefix.
+     * @return int the entry number within the account, -1 when there is none
+     */
+    private int lastEntryAt(int[] positions, int count, int size, Columns columns, long timestamp) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int position = positions[middle];
+            if (position < size && columns.timestamps[position] <= timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * Apply the entry at the index to the balance received by parameter, an account without opening entry
+     * <br /> starts from zero.
+     */
+    private BigDecimal apply(BigDecimal balance, Columns columns, int index) {
+        BigDecimal amount = amountAt(columns, index);
+        BigDecimal current = balance == null ? BigDecimal.ZERO : balance;
+        switch (ENTRY_TYPES[columns.types[index]]) {
+            case DEBIT:
+                return current.subtract(amount);
+            case CREDIT:
+                return current.add(amount);
+            default:
+                return amount;
+        }
+    }
+
+    private BigDecimal amountAt(Columns columns, int index) {
+        byte scale = columns.scales[index];
+        return scale == BIG_AMOUNT ? this.bigAmounts.get(index) : BigDecimal.valueOf(columns.amounts[index], scale);
+    }
+
+    private LedgerEntry toEntry(Columns columns, int index) {
+        int transferHandle = columns.transfers[index];
+        return new LedgerEntry()
+                .setSequence(index)
+                .setTimestamp(columns.timestamps[index])
+                .setAccountId(this.accountsByHandle[columns.accounts[index]].accountId)
+                .setTransferId(transferHandle < 0 ? null : this.transferIds[transferHandle])
+                .setType(ENTRY_TYPES[columns.types[index]])
+                .setAmount(amountAt(columns, index));
+    }
+
+    private static final class AccountView {
+
+        private final String accountId;
+        private final int handle;
+        private volatile BigDecimal balance;
+
+        /** Ledger positions of the entries of the account, in order */
+        private volatile int[] positions = new int[CHECKPOINT_INTERVAL];
+
+        /** Balance after every {@link #CHECKPOINT_INTERVAL} entries of the account */
+        private volatile BigDecimal[] checkpoints = new BigDecimal[4];
+
+        /** Number of entries of the account, written after positions and checkpoints */
+        private volatile int count;
+
+        private AccountView(String accountId, int handle) {
+            this.accountId = accountId;
+            this.handle = handle;
+        }
+
+        /**
+         * Add the ledger position of a new entry of the account, already applied to the balance.
+         */
+        private void index(int position) {
+            int entry = this.count;
+            if (entry == this.positions.length) {
+                this.positions = Arrays.copyOf(this.positions, entry * 2);
+            }
+            this.positions[entry] = position;
+
+            if ((entry + 1) % CHECKPOINT_INTERVAL == 0) {
+                int checkpoint = (entry + 1) / CHECKPOINT_INTERVAL - 1;
+                if (checkpoint == this.checkpoints.length) {
+                    this.checkpoints = Arrays.copyOf(this.checkpoints, checkpoint * 2);
+                }
+                this.checkpoints[checkpoint] = this.balance;
+            }
+            this.count = entry + 1;
+        }
+    }
+
+    private static final class Columns {
+
+        private final long[] timestamps;
+        private final int[] accounts;
+        private final int[] transfers;
+        private final long[] amounts;
+        private final byte[] scales;
+        private final byte[] types;
+
+        private Columns(int capacity) {
+            this(new long[capacity], new int[capacity], new int[capacity],
+                    new long[capacity], new byte[capacity], new byte[capacity]);
+        }
+
+        private Columns(long[] timestamps, int[] accounts, int[] transfers,
+                        long[] amounts, byte[] scales, byte[] types) {
+            this.timestamps = timestamps;
+            this.accounts = accounts;
+            this.transfers = transfers;
+            this.amounts = amounts;
+            this.scales = scales;
+            this.types = types;
+        }
+
+        private int capacity() {
+            return this.timestamps.length;
+        }
+
+        private Columns grow(int entries, int capacity) {
+            Columns grown = new Columns(capacity);
+            System.arraycopy(this.timestamps, 0, grown.timestamps, 0, entries);
+            System.arraycopy(this.accounts, 0, grown.accounts, 0, entries);
+            System.arraycopy(this.transfers, 0, grown.transfers, 0, entries);
+            System.arraycopy(this.amounts, 0, grown.amounts, 0, entries);
+            System.arraycopy(this.scales, 0, grown.scales, 0, entries);
+            System.arraycopy(this.types, 0, grown.types, 0, entries);
+            return grown;
+        }
+    }
+}
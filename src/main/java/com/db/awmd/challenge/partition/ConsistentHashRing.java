@@ -0,0 +1,88 @@
+package com.db.awmd.challenge.partition;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Consistent hash ring mapping keys to nodes. Every node is placed on the ring many times (virtual nodes) so
+ * <br /> keys spread evenly, and adding or removing a node only moves the keys of the ring segments it owns.
+ * <br /> The ring is immutable: its points are kept sorted in a primitive array and looked up by binary search.
+ */
+public class ConsistentHashRing {
+
+    private final long[] points;
+
+    private final String[] owners;
+
+    private final Set<String> nodes;
+
+    /**
+     * @param nodes the nodes of the ring, at least one
+     * @param virtualNodes number of points of every node on the ring
+     */
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes <= 0) {
+            throw new IllegalArgumentException("A ring needs at least one node and one virtual node per node");
+        }
+        this.nodes = new LinkedHashSet<>(nodes);
+
+        long[][] ring = new long[this.nodes.size() * virtualNodes][];
+        String[] nodeNames = this.nodes.toArray(new String[0]);
+        int index = 0;
+        for (int node = 0; node < nodeNames.length; node++) {
+            for (int virtualNode = 0; virtualNode < virtualNodes; virtualNode++) {
+                ring[index++] = new long[]{hash(nodeNames[node] + "#" + virtualNode), node};
+            }
+        }
+        Arrays.sort(ring, (left, right) -> Long.compare(left[0], right[0]));
+
+        this.points = new long[ring.length];
+        this.owners = new String[ring.length];
+        for (int point = 0; point < ring.length; point++) {
+            this.points[point] = ring[point][0];
+            this.owners[point] = nodeNames[(int) ring[point][1]];
+        }
+    }
+
+    /**
+     * Return the node owning the key: the first node clockwise from the hash of the key.
+     * @param key
+     * @return String
+     */
+    public String nodeFor(String key) {
+        int point = Arrays.binarySearch(this.points, hash(key));
+        if (point < 0) {
+            point = -point - 1;
+        }
+        return this.owners[point == this.points.length ? 0 : point];
+    }
+
+    /**
+     * @return Set<String> the nodes of the ring
+     */
+    public Set<String> getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * 64 bit FNV-1a of the UTF-8 bytes, finished with the MurmurHash3 mix so close keys land far apart.
+     * @param key
+     * @return long
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,99 @@
+package com.db.awmd.challenge.partition;
+
+import com.db.awmd.challenge.domain.RemoteCredit;
+import com.db.awmd.challenge.enums.TransferDecision;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+/**
+ * Calls the two phase endpoints of the other nodes. Every call is bounded by the partition timeout, carries the
+ * <br /> secret shared by the nodes and never throws: a node that does not answer in time is treated as a node
+ * <br /> that said no.
+ */
+@Component
+@Slf4j
+public class PartitionClient {
+
+    /** Header carrying partition.secret on every call between nodes */
+    public static final String SECRET_HEADER = "X-Partition-Secret";
+
+    private final RestTemplate restTemplate;
+
+    @Autowired
+    public PartitionClient(RestTemplateBuilder restTemplateBuilder,
+                           @Value("${partition.timeout-ms:1000}") long timeoutMs,
+                           @Value("${partition.secret:}") String secret) {
+        this.restTemplate = restTemplateBuilder
+                .defaultHeader(SECRET_HEADER, secret)
+                .setConnectTimeout(Duration.ofMillis(timeoutMs))
+                .setReadTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+    }
+
+    /**
+     * Ask the node owning the destination account to prepare the credit.
+     * @param node
+     * @param remoteCredit
+     * @return boolean true when the node has prepared the credit and waits for the decision
+     */
+    public boolean prepare(String node, RemoteCredit remoteCredit) {
+        try {
+            this.restTemplate.postForEntity(node + "/v1/partition/prepare", remoteCredit, Void.class);
+            return true;
+        } catch (RestClientException e) {
+            log.info("node {} did not prepare transfer {}: {}", node, remoteCredit.getTransferId(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @param node
+     * @param transferId
+     * @return boolean true when the node has received the commit, otherwise it recovers the decision later
+     */
+    public boolean commit(String node, String transferId) {
+        return send(node, "/v1/partition/transfers/" + transferId + "/commit");
+    }
+
+    /**
+     * @param node
+     * @param transferId
+     * @return boolean true when the node has received the abort, otherwise it recovers the decision later
+     */
+    public boolean abort(String node, String transferId) {
+        return send(node, "/v1/partition/transfers/" + transferId + "/abort");
+    }
+
+    /**
+     * Ask the coordinator of a transfer for its decision.
+     * @param node
+     * @param transferId
+     * @return TransferDecision null when the coordinator can not be reached
+     */
+    public TransferDecision decision(String node, String transferId) {
+        try {
+            return this.restTemplate.getForObject(node + "/v1/partition/transfers/" + transferId + "/decision",
+                    TransferDecision.class);
+        } catch (RestClientException e) {
+            log.info("coordinator {} of transfer {} not reachable: {}", node, transferId, e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean send(String node, String path) {
+        try {
+            this.restTemplate.postForEntity(node + path, null, Void.class);
+            return true;
+        } catch (RestClientException e) {
+            log.info("call {}{} failed: {}", node, path, e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.db.awmd.challenge.partition;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Decides which node owns every account. With no partition.nodes configured the service runs alone and
+ * <br /> owns every account; otherwise accounts are spread over the nodes by consistent hashing of the account id.
+ */
+@Component
+@Slf4j
+public class PartitionRouter {
+
+    /** Prefix of the ledger accounts recording the money moved to and from every other node */
+    public static final String CLEARING_ACCOUNT_PREFIX = "clearing:";
+
+    private final String self;
+
+    private final List<String> nodes;
+
+    private final ConsistentHashRing ring;
+
+    @Autowired
+    public PartitionRouter(@Value("${partition.nodes:}") String nodes,
+                           @Value("${partition.self:}") String self,
+                           @Value("${partition.virtual-nodes:160}") int virtualNodes) {
+        List<String> nodeList = Arrays.stream(nodes.split(","))
+                .map(String::trim)
+                .filter(node -> !node.isEmpty())
+                .collect(Collectors.toList());
+        this.self = self;
+        this.nodes = List.copyOf(nodeList);
+        if (nodeList.isEmpty()) {
+            this.ring = null;
+        } else {
+            if (!nodeList.contains(self)) {
+                throw new IllegalStateException("partition.self " + self + " is not one of partition.nodes " + nodeList);
+            }
+            this.ring = new ConsistentHashRing(nodeList, virtualNodes);
+            log.info("node {} of partitions {}", self, nodeList);
+        }
+    }
+
+    /**
+     * @return boolean true when accounts are spread over several nodes
+     */
+    public boolean isPartitioned() {
+        return this.ring != null;
+    }
+
+    /**
+     * @param node
+     * @return boolean true when the node is one of the other nodes sharing the accounts
+     */
+    public boolean isMember(String node) {
+        return node != null && !node.equals(this.self) && this.nodes.contains(node);
+    }
+
+    /**
+     * @param accountId
+     * @return boolean true when the account belongs to this node
+     */
+    public boolean isLocal(String accountId) {
+        return this.ring == null || this.self.equals(this.ring.nodeFor(accountId));
+    }
+
+    /**
+     * @param accountId
+     * @return String base url of the node owning the account
+     */
+    public String ownerOf(String accountId) {
+        return this.ring == null ? this.self : this.ring.nodeFor(accountId);
+    }
+
+    /**
+     * @return String base url of this node
+     */
+    public String getSelf() {
+        return this.self;
+    }
+
+    /**
+     * @param node
+     * @return String ledger account holding the money moved between this node and the one received
+     */
+    public static String clearingAccount(String node) {
+        return CLEARING_ACCOUNT_PREFIX + node;
+    }
+}
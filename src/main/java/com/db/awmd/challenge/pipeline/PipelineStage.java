@@ -0,0 +1,108 @@
+package com.db.awmd.challenge.pipeline;
+
+import com.db.awmd.challenge.domain.PipelineStageStatus;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A stage of the pipeline: a bounded queue drained in batches by its own threads. A full queue blocks the stage
+ * <br /> feeding it, so a slow stage pushes back up to the submitters instead of piling up work.
+ */
+@Slf4j
+class PipelineStage<T> {
+
+    /** Longest wait for a thread to finish its batch when the stage stops */
+    private static final long STOP_TIMEOUT_MS = 10_000;
+
+    private final String name;
+
+    private final BlockingQueue<T> queue;
+
+    private final int batchSize;
+
+    private final Consumer<List<T>> handler;
+
+    private final List<Thread> threads = new ArrayList<>();
+
+    private volatile boolean running;
+
+    PipelineStage(String name, int capacity, int threadCount, int batchSize, Consumer<List<T>> handler) {
+        this.name = name;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.handler = handler;
+        for (int thread = 0; thread < threadCount; thread++) {
+            this.threads.add(Thread.ofPlatform().daemon().name("pipeline-" + name + "-" + thread).unstarted(this::work));
+        }
+    }
+
+    void start() {
+        this.running = true;
+        this.threads.forEach(Thread::start);
+    }
+
+    /**
+     * Stop the threads, waiting for the batches they are handling, and take the items still queued.
+     * @return List<T> items queued but never handled, for the caller to settle
+     */
+    List<T> stop() {
+        this.running = false;
+        this.threads.forEach(Thread::interrupt);
+        try {
+            for (Thread thread : this.threads) {
+                thread.join(STOP_TIMEOUT_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<T> left = new ArrayList<>();
+        this.queue.drainTo(left);
+        return left;
+    }
+
+    /**
+     * Hand an item to the stage, waiting for room until the timeout.
+     * @return boolean false when the queue stayed full
+     */
+    boolean offer(T item, long timeoutNanos) throws InterruptedException {
+        return this.queue.offer(item, timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Hand an item to the stage from the previous stage, waiting as long as the queue is full.
+     */
+    void put(T item) throws InterruptedException {
+        this.queue.put(item);
+    }
+
+    PipelineStageStatus status() {
+        return new PipelineStageStatus()
+                .setName(this.name)
+                .setDepth(this.queue.size())
+                .setCapacity(this.queue.size() + this.queue.remainingCapacity())
+                .setThreads(this.threads.size());
+    }
+
+    private void work() {
+        List<T> batch = new ArrayList<>(this.batchSize);
+        while (this.running) {
+            try {
+                batch.add(this.queue.take());
+                this.queue.drainTo(batch, this.batchSize - 1);
+                this.handler.accept(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("error in pipeline stage {}", this.name, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.db.awmd.challenge.pipeline;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.PipelineStageStatus;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.enums.Status;
+import com.db.awmd.challenge.exception.AccountNotFoundException;
+import com.db.awmd.challenge.exception.InsufficientAmountException;
+import com.db.awmd.challenge.exception.TransferNotCompletedException;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.TransferRepository;
+import com.db.awmd.challenge.service.NotificationService;
+import com.db.awmd.challenge.service.TransferService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Executes transfers as a pipeline of stages, each with its own bounded queue and threads:
+ * <br /> resolve creates the Transfer records and looks up the accounts of a whole batch,
+ * <br /> apply locks the accounts and moves the money, the only stage holding account locks,
+ * <br /> persist records the outcome of every Transfer and answers the caller,
+ * <br /> notify tells the account owners, after the caller has its answer.
+ * <br /> Only used when transfer.pipeline.enabled is true; the depth of every stage is exposed to size them.
+ * <br /> A failure while handling a transfer only fails that transfer. Stopping settles every transfer still queued:
+ * <br /> those already applied are recorded, the others fail.
+ */
+@Service
+@ConditionalOnProperty(name = "transfer.pipeline.enabled", havingValue = "true")
+@Slf4j
+public class TransferPipeline {
+
+    private final TransferService transferService;
+
+    private final TransferRepository transferRepository;
+
+    private final AccountsRepository accountsRepository;
+
+    private final NotificationService notificationService;
+
+    private final PipelineStage<PipelinedTransfer> resolveStage;
+
+    private final PipelineStage<PipelinedTransfer> applyStage;
+
+    private final PipelineStage<PipelinedTransfer> persistStage;
+
+    private final PipelineStage<PipelinedTransfer> notifyStage;
+
+    private volatile boolean running;
+
+    @Autowired
+    public TransferPipeline(TransferService transferService,
+                            TransferRepository transferRepository,
+                            AccountsRepository accountsRepository,
+                            NotificationService notificationService,
+                            @Value("${transfer.pipeline.queue-capacity:10000}") int queueCapacity,
+                            @Value("${transfer.pipeline.batch-size:64}") int batchSize,
+                            @Value("${transfer.pipeline.resolve.threads:2}") int resolveThreads,
+                            @Value("${transfer.pipeline.apply.threads:16}") int applyThreads,
+                            @Value("${transfer.pipeline.persist.threads:2}") int persistThreads,
+                            @Value("${transfer.pipeline.notify.threads:2}") int notifyThreads) {
+        this.transferService = transferService;
+        this.transferRepository = transferRepository;
+        this.accountsRepository = accountsRepository;
+        this.notificationService = notificationService;
+        this.resolveStage = new PipelineStage<>("resolve", queueCapacity, resolveThreads, batchSize, this::resolve);
+        this.applyStage = new PipelineStage<>("apply", queueCapacity, applyThreads, 1, this::apply);
+        this.persistStage = new PipelineStage<>("persist", queueCapacity, persistThreads, batchSize, this::persist);
+        this.notifyStage = new PipelineStage<>("notify", queueCapacity, notifyThreads, batchSize, this::notifyOwners);
+    }
+
+    @PostConstruct
+    public void start() {
+        stages().forEach(PipelineStage::start);
+        this.running = true;
+    }
+
+    /**
+     * Stop the stages in pipeline order, so nothing is handed over to a stage already stopped, then settle
+     * <br /> the transfers left in their queues.
+     */
+    @PreDestroy
+    public void stop() {
+        this.running = false;
+        List<PipelinedTransfer> unresolved = this.resolveStage.stop();
+        List<PipelinedTransfer> unapplied = this.applyStage.stop();
+        List<PipelinedTransfer> unpersisted = this.persistStage.stop();
+        List<PipelinedTransfer> unnotified = this.notifyStage.stop();
+        unresolved.forEach(pipelinedTransfer -> fail(pipelinedTransfer, notCompleted()));
+        unapplied.forEach(pipelinedTransfer -> fail(pipelinedTransfer, notCompleted()));
+        persist(unpersisted);
+        if (unresolved.size() + unapplied.size() + unpersisted.size() + unnotified.size() > 0) {
+            log.info("pipeline stopped, {} transfers failed, {} recorded, {} notifications skipped",
+                    unresolved.size() + unapplied.size(), unpersisted.size(), unnotified.size());
+        }
+    }
+
+    /**
+     * Hand a transfer to the pipeline.
+     *
+     * @param transferRequest the request to be executed
+     * @param deadline the {@link System#nanoTime()} after which the transfer gives up waiting
+     * @return CompletableFuture<Transfer> completed once the outcome is recorded, exceptionally with the same
+     * <br /> exceptions as {@link TransferService#makeTransfer(TransferRequest, long)}
+     */
+    public CompletableFuture<Transfer> submit(TransferRequest transferRequest, long deadline) {
+        return enqueue(new PipelinedTransfer(transferRequest, deadline)).result;
+    }
+
+    /**
+     * Same as {@link #submit(TransferRequest, long)}, waiting for the outcome. The deadline only bounds the wait
+     * <br /> for the apply stage to take the transfer: one abandoned before is never applied, one taken before waits
+     * <br /> for its recorded outcome, so the caller is never told "not completed" about a completed transfer.
+     *
+     * @param transferRequest the request to be executed
+     * @param deadline the {@link System#nanoTime()} after which the transfer gives up waiting
+     * @return Transfer the completed transfer
+     * @exception AccountNotFoundException when one of accounts is not found
+     * @exception InsufficientAmountException when the origin account has not enough balance
+     * @exception TransferNotCompletedException when the transfer is not applied before the deadline
+     */
+    public Transfer execute(TransferRequest transferRequest, long deadline) {
+        PipelinedTransfer pipelinedTransfer = enqueue(new PipelinedTransfer(transferRequest, deadline));
+        try {
+            try {
+                return pipelinedTransfer.result.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (pipelinedTransfer.taken.compareAndSet(false, true)) {
+                    throw notCompleted();
+                }
+                // Taken by the apply stage before the deadline, its outcome is being recorded
+                return pipelinedTransfer.result.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw notCompleted();
+        }
+    }
+
+    private PipelinedTransfer enqueue(PipelinedTransfer pipelinedTransfer) {
+        long deadline = pipelinedTransfer.deadline;
+        try {
+            if (!this.running || !this.resolveStage.offer(pipelinedTransfer, deadline - System.nanoTime())) {
+                pipelinedTransfer.result.completeExceptionally(notCompleted());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pipelinedTransfer.result.completeExceptionally(notCompleted());
+        }
+        return pipelinedTransfer;
+    }
+
+    /**
+     * @return List<PipelineStageStatus> queue depth, capacity and threads of every stage, in pipeline order
+     */
+    public List<PipelineStageStatus> getStages() {
+        return stages().stream().map(PipelineStage::status).collect(Collectors.toList());
+    }
+
+    private List<PipelineStage<PipelinedTransfer>> stages() {
+        return Arrays.asList(this.resolveStage, this.applyStage, this.persistStage, this.notifyStage);
+    }
+
+    private void resolve(List<PipelinedTransfer> batch) {
+        for (PipelinedTransfer pipelinedTransfer : batch) {
+            try {
+                TransferRequest transferRequest = pipelinedTransfer.transferRequest;
+                if (!this.accountsRepository.exists(transferRequest.getAccountFromId())
+                        || !this.accountsRepository.exists(transferRequest.getAccountToId())) {
+                    pipelinedTransfer.result.completeExceptionally(
+                            new AccountNotFoundException("Origin or destination Account of the transfer does not exist"));
+                    continue;
+                }
+                pipelinedTransfer.transfer = this.transferRepository.getTransfer(
+                        this.transferRepository.createTransfer(transferRequest));
+                pipelinedTransfer.originAccount = this.accountsRepository.getAccount(transferRequest.getAccountFromId());
+                pipelinedTransfer.destinationAccount = this.accountsRepository.getAccount(transferRequest.getAccountToId());
+
+                if (pipelinedTransfer.originAccount == null || pipelinedTransfer.destinationAccount == null) {
+                    pipelinedTransfer.error = new AccountNotFoundException(
+                            "Origin or destination Account " + pipelinedTransfer.transfer.getId() + " does not exist");
+                    handOver(this.persistStage, pipelinedTransfer);
+                } else {
+                    handOver(this.applyStage, pipelinedTransfer);
+                }
+            } catch (RuntimeException e) {
+                log.error("error resolving transfer {}", pipelinedTransfer.transferRequest, e);
+                fail(pipelinedTransfer, e);
+            }
+        }
+    }
+
+    private void apply(List<PipelinedTransfer> batch) {
+        for (PipelinedTransfer pipelinedTransfer : batch) {
+            try {
+                if (System.nanoTime() - pipelinedTransfer.deadline > 0 || !pipelinedTransfer.taken.compareAndSet(false, true)) {
+                    throw notCompleted();
+                }
+                this.transferService.applyTransfer(pipelinedTransfer.transferRequest,
+                        pipelinedTransfer.originAccount,
+                        pipelinedTransfer.destinationAccount,
+                        pipelinedTransfer.transfer.getId(),
+                        pipelinedTransfer.deadline);
+            } catch (RuntimeException e) {
+                pipelinedTransfer.error = e;
+            }
+            handOver(this.persistStage, pipelinedTransfer);
+        }
+    }
+
+    private void persist(List<PipelinedTransfer> batch) {
+        for (PipelinedTransfer pipelinedTransfer : batch) {
+            try {
+                if (pipelinedTransfer.error == null) {
+                    updateStatus(pipelinedTransfer, Status.COMPLETED);
+                    pipelinedTransfer.result.complete(pipelinedTransfer.transfer);
+                    handOver(this.notifyStage, pipelinedTransfer);
+                } else {
+                    fail(pipelinedTransfer, pipelinedTransfer.error);
+                }
+            } catch (RuntimeException e) {
+                log.error("error recording transfer {}", pipelinedTransfer.transfer.getId(), e);
+                pipelinedTransfer.result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void notifyOwners(List<PipelinedTransfer> batch) {
+        for (PipelinedTransfer pipelinedTransfer : batch) {
+            try {
+                this.notificationService.notifyAboutTransfer(pipelinedTransfer.originAccount, TransferService.MONEY_SENT);
+                this.notificationService.notifyAboutTransfer(pipelinedTransfer.destinationAccount, TransferService.MONEY_RECEIVED);
+            } catch (RuntimeException e) {
+                log.error("error notifying transfer {}", pipelinedTransfer.transfer.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * Fail a transfer not applied, recording it as an error when its Transfer record exists.
+     */
+    private void fail(PipelinedTransfer pipelinedTransfer, RuntimeException error) {
+        try {
+            if (pipelinedTransfer.transfer != null) {
+                updateStatus(pipelinedTransfer, Status.ERROR);
+            }
+        } finally {
+            pipelinedTransfer.result.completeExceptionally(error);
+        }
+    }
+
+    private static TransferNotCompletedException notCompleted() {
+        return new TransferNotCompletedException(TransferService.TRANSFER_CAN_NOT_BE_PERFORM);
+    }
+
+    private void updateStatus(PipelinedTransfer pipelinedTransfer, Status status) {
+        pipelinedTransfer.transfer.setStatus(status);
+        this.transferRepository.updateStatus(pipelinedTransfer.transfer.getId(), status);
+    }
+
+    /**
+     * Pass a transfer to the next stage. Only interrupted when the pipeline stops: a transfer already applied
+     * <br /> is still recorded, one not applied yet fails and its notification is skipped.
+     */
+    private void handOver(PipelineStage<PipelinedTransfer> stage, PipelinedTransfer pipelinedTransfer) {
+        try {
+            stage.put(pipelinedTransfer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (stage == this.persistStage) {
+                persist(Collections.singletonList(pipelinedTransfer));
+            } else if (stage == this.applyStage) {
+                fail(pipelinedTransfer, notCompleted());
+            }
+        }
+    }
+
+    /**
+     * A transfer moving through the stages, each stage filling what the next ones need.
+     */
+    private static final class PipelinedTransfer {
+
+        private final TransferRequest transferRequest;
+        private final long deadline;
+        private final CompletableFuture<Transfer> result = new CompletableFuture<>();
+        /** Set by the apply stage taking the transfer or by the caller abandoning it, whichever comes first */
+        private final AtomicBoolean taken = new AtomicBoolean();
+        private Transfer transfer;
+        private Account originAccount;
+        private Account destinationAccount;
+        private RuntimeException error;
+
+        private PipelinedTransfer(TransferRequest transferRequest, long deadline) {
+            this.transferRequest = transferRequest;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.db.awmd.challenge.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock free token bucket. Instead of counting tokens it keeps the time when the bucket would be full again
+ * <br /> (the theoretical arrival time of the generic cell rate algorithm), so acquiring a permit is a single
+ * <br /> compare and set and never blocks.
+ */
+public class TokenBucket {
+
+    private final long nanosPerPermit;
+
+    private final long burstNanos;
+
+    private final LongSupplier nanoClock;
+
+    private final AtomicLong fullAt;
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    public TokenBucket(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        this.nanosPerPermit = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstNanos = this.nanosPerPermit * burst;
+        this.nanoClock = nanoClock;
+        this.fullAt = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /**
+     * Take a permit from the bucket when there is one available.
+     * @return boolean true when the permit has been granted
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            long now = this.nanoClock.getAsLong();
+            long current = this.fullAt.get();
+            long next = Math.max(current, now) + this.nanosPerPermit;
+            if (next - now > this.burstNanos) {
+                return false;
+            }
+            if (this.fullAt.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give back a permit acquired for a request that was rejected later on.
+     */
+    public void release() {
+        while (true) {
+            long current = this.fullAt.get();
+            if (current - this.nanoClock.getAsLong() <= 0
+                    || this.fullAt.compareAndSet(current, current - this.nanosPerPermit)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return boolean true when the bucket has refilled completely, dropping it then loses nothing
+     */
+    public boolean isFull() {
+        return this.fullAt.get() - this.nanoClock.getAsLong() <= 0;
+    }
+}
@@ -0,0 +1,52 @@
+package com.db.awmd.challenge.replication;
+
+import com.db.awmd.challenge.domain.LedgerEntry;
+import com.db.awmd.challenge.enums.LedgerEntryType;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Wire format of the ledger shipped from the primary to the replicas: a batch is the number of entries
+ * <br /> followed by every entry as type, timestamp, account id, transfer id (empty for openings) and amount.
+ */
+public final class LedgerEntryCodec {
+
+    private static final LedgerEntryType[] ENTRY_TYPES = LedgerEntryType.values();
+
+    private LedgerEntryCodec() {
+    }
+
+    public static void write(DataOutputStream output, List<LedgerEntry> entries) throws IOException {
+        output.writeInt(entries.size());
+        for (LedgerEntry entry : entries) {
+            output.writeByte(entry.getType().ordinal());
+            output.writeLong(entry.getTimestamp());
+            output.writeUTF(entry.getAccountId());
+            output.writeUTF(entry.getTransferId() == null ? "" : entry.getTransferId());
+            output.writeUTF(entry.getAmount().toString());
+        }
+    }
+
+    public static List<LedgerEntry> read(DataInputStream input) throws IOException {
+        int size = input.readInt();
+        List<LedgerEntry> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            LedgerEntryType type = ENTRY_TYPES[input.readByte()];
+            long timestamp = input.readLong();
+            String accountId = input.readUTF();
+            String transferId = input.readUTF();
+            entries.add(new LedgerEntry()
+                    .setType(type)
+                    .setTimestamp(timestamp)
+                    .setAccountId(accountId)
+                    .setTransferId(transferId.isEmpty() ? null : transferId)
+                    .setAmount(new BigDecimal(input.readUTF())));
+        }
+        return entries;
+    }
+}
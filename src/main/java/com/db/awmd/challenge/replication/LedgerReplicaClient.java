@@ -0,0 +1,154 @@
+package com.db.awmd.challenge.replication;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.LedgerEntry;
+import com.db.awmd.challenge.enums.LedgerEntryType;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.ledger.Ledger;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * Replica side of the replication. Connects to the primary, asks for the ledger from the position this replica
+ * <br /> has reached and applies every batch to the local accounts and ledger, so both ledgers stay identical.
+ * <br /> Reconnects from where it stopped when the connection is lost. The primary only ships to a replica sending
+ * <br /> the same partition.secret.
+ */
+@Component
+@ConditionalOnProperty(name = "replication.role", havingValue = "replica")
+@Slf4j
+public class LedgerReplicaClient {
+
+    private final Ledger ledger;
+
+    private final AccountsRepository accountsRepository;
+
+    private final String primaryHost;
+
+    private final int primaryPort;
+
+    private final String secret;
+
+    private final long retryMs;
+
+    private volatile Socket primary;
+
+    private volatile boolean running;
+
+    @Autowired
+    public LedgerReplicaClient(Ledger ledger,
+                               AccountsRepository accountsRepository,
+                               @Value("${replication.primary-host:localhost}") String primaryHost,
+                               @Value("${replication.port:18090}") int primaryPort,
+                               @Value("${partition.secret:}") String secret,
+                               @Value("${replication.retry-ms:1000}") long retryMs) {
+        if (secret.isEmpty()) {
+            throw new IllegalStateException("partition.secret has to be set when replication.role is replica");
+        }
+        this.ledger = ledger;
+        this.accountsRepository = accountsRepository;
+        this.primaryHost = primaryHost;
+        this.primaryPort = primaryPort;
+        this.secret = secret;
+        this.retryMs = retryMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        this.running = true;
+        Thread.ofPlatform().daemon().name("ledger-replica").start(this::replicate);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        this.running = false;
+        Socket socket = this.primary;
+        if (socket != null) {
+            socket.close();
+        }
+    }
+
+    private void replicate() {
+        while (this.running) {
+            try (Socket socket = new Socket(this.primaryHost, this.primaryPort)) {
+                this.primary = socket;
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                output.writeUTF(this.secret);
+                output.writeInt(this.ledger.size());
+                output.flush();
+                log.info("replicating from {}:{} at ledger position {}", this.primaryHost, this.primaryPort, this.ledger.size());
+
+                DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                while (this.running) {
+                    apply(LedgerEntryCodec.read(input));
+                }
+            } catch (IOException e) {
+                if (this.running) {
+                    log.warn("replication from {}:{} interrupted, retrying", this.primaryHost, this.primaryPort);
+                    pause();
+                }
+            }
+        }
+    }
+
+    /**
+     * Apply a batch of entries. The debit of a transfer is always followed by its credit in the same batch.
+     */
+    private void apply(List<LedgerEntry> entries) {
+        for (int i = 0; i < entries.size(); i++) {
+            LedgerEntry entry = entries.get(i);
+            if (entry.getType() == LedgerEntryType.OPENING) {
+                openAccount(entry);
+            } else {
+                applyTransfer(entry, entries.get(++i));
+            }
+        }
+    }
+
+    private void openAccount(LedgerEntry opening) {
+        try {
+            this.accountsRepository.createAccount(new Account(opening.getAccountId(), opening.getAmount()),
+                    opening.getTimestamp());
+        } catch (DuplicateAccountIdException e) {
+            // The account was opened again on the primary
+            this.accountsRepository.getAccount(opening.getAccountId()).setBalance(opening.getAmount());
+            this.ledger.open(opening.getAccountId(), opening.getAmount(), opening.getTimestamp());
+        }
+    }
+
+    private void applyTransfer(LedgerEntry debit, LedgerEntry credit) {
+        Account originAccount = this.accountsRepository.getAccount(debit.getAccountId());
+        Account destinationAccount = this.accountsRepository.getAccount(credit.getAccountId());
+        if (originAccount != null) {
+            originAccount.setBalance(originAccount.getBalance().subtract(debit.getAmount()));
+        }
+        if (destinationAccount != null) {
+            destinationAccount.setBalance(destinationAccount.getBalance().add(credit.getAmount()));
+        }
+        this.ledger.post(debit.getTransferId(), debit.getAccountId(), credit.getAccountId(), debit.getAmount(),
+                debit.getTimestamp());
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(this.retryMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.running = false;
+        }
+    }
+}
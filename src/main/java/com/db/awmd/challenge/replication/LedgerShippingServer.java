@@ -0,0 +1,165 @@
+package com.db.awmd.challenge.replication;
+
+import com.db.awmd.challenge.domain.LedgerEntry;
+import com.db.awmd.challenge.enums.LedgerEntryType;
+import com.db.awmd.challenge.ledger.Ledger;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Primary side of the replication. Every replica connects and sends the ledger position it has reached,
+ * <br /> then receives the committed ledger entries from there in batches: account openings and transfers.
+ * <br /> Each replica keeps its own position, so a slow replica never holds back the primary or other replicas.
+ * <br /> Listens on replication.bind-address, loopback unless set, and ships only to replicas sending partition.secret
+ * <br /> first, the secret the nodes sharing the accounts already authenticate each other with.
+ */
+@Component
+@ConditionalOnProperty(name = "replication.role", havingValue = "primary")
+@Slf4j
+public class LedgerShippingServer {
+
+    /** Time a replica has to send the secret and its position once connected */
+    private static final int HANDSHAKE_TIMEOUT_MS = 5000;
+
+    private final Ledger ledger;
+
+    private final String bindAddress;
+
+    private final int port;
+
+    private final byte[] secret;
+
+    private final int batchSize;
+
+    private final long pollMs;
+
+    private final Set<Socket> replicas = ConcurrentHashMap.newKeySet();
+
+    private ServerSocket serverSocket;
+
+    private volatile boolean running;
+
+    @Autowired
+    public LedgerShippingServer(Ledger ledger,
+                                @Value("${replication.bind-address:127.0.0.1}") String bindAddress,
+                                @Value("${replication.port:18090}") int port,
+                                @Value("${partition.secret:}") String secret,
+                                @Value("${replication.batch-size:1000}") int batchSize,
+                                @Value("${replication.poll-ms:5}") long pollMs) {
+        if (secret.isEmpty()) {
+            throw new IllegalStateException("partition.secret has to be set when replication.role is primary");
+        }
+        this.ledger = ledger;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.batchSize = batchSize;
+        this.pollMs = pollMs;
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        this.serverSocket = new ServerSocket(this.port, 50, InetAddress.getByName(this.bindAddress));
+        this.running = true;
+        Thread.ofPlatform().daemon().name("ledger-shipping-acceptor").start(this::acceptReplicas);
+        log.info("shipping ledger to replicas on {}:{}", this.bindAddress, getPort());
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        this.running = false;
+        this.serverSocket.close();
+        for (Socket replica : this.replicas) {
+            replica.close();
+        }
+    }
+
+    /**
+     * @return int the port replicas connect to
+     */
+    public int getPort() {
+        return this.serverSocket.getLocalPort();
+    }
+
+    private void acceptReplicas() {
+        while (this.running) {
+            try {
+                Socket replica = this.serverSocket.accept();
+                replica.setTcpNoDelay(true);
+                this.replicas.add(replica);
+                Thread.ofVirtual().name("ledger-shipping-" + replica.getRemoteSocketAddress()).start(() -> ship(replica));
+            } catch (IOException e) {
+                if (this.running) {
+                    log.error("error accepting replica", e);
+                }
+            }
+        }
+    }
+
+    private void ship(Socket replica) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(replica.getInputStream()));
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(replica.getOutputStream()))) {
+            replica.setSoTimeout(HANDSHAKE_TIMEOUT_MS);
+            byte[] replicaSecret = input.readUTF().getBytes(StandardCharsets.UTF_8);
+            int position = input.readInt();
+            replica.setSoTimeout(0);
+            if (!MessageDigest.isEqual(this.secret, replicaSecret)) {
+                log.warn("replica {} refused, it did not send partition.secret", replica.getRemoteSocketAddress());
+                return;
+            }
+            log.info("replica {} connected at ledger position {}", replica.getRemoteSocketAddress(), position);
+
+            while (this.running) {
+                int snapshot = this.ledger.snapshot();
+                if (position >= snapshot) {
+                    Thread.sleep(this.pollMs);
+                    continue;
+                }
+
+                int to = Math.min(snapshot, position + this.batchSize);
+                List<LedgerEntry> entries = this.ledger.getEntries(position, to);
+                // Never split the debit and credit of a transfer, they are published together so both are there
+                if (entries.get(entries.size() - 1).getType() == LedgerEntryType.DEBIT) {
+                    entries.addAll(this.ledger.getEntries(to, to + 1));
+                }
+                LedgerEntryCodec.write(output, entries);
+                output.flush();
+                position += entries.size();
+            }
+        } catch (IOException e) {
+            log.info("replica {} disconnected", replica.getRemoteSocketAddress());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.replicas.remove(replica);
+            closeQuietly(replica);
+        }
+    }
+
+    private void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.debug("error closing replica socket", e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.db.awmd.challenge.repository;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of the existing account ids. It never answers that an existing account is missing, and answers
+ * <br /> that an unknown account may exist only with the configured false positive probability while the number of
+ * <br /> accounts stays under the expected one. Lock free: bits are only ever set, with an atomic or on their word.
+ */
+public class AccountBloomFilter {
+
+    private final AtomicLongArray words;
+
+    private final long bitCount;
+
+    private final int hashCount;
+
+    /**
+     * @param expectedAccounts number of accounts the false positive probability is sized for
+     * @param falsePositiveProbability between 0 and 1
+     */
+    public AccountBloomFilter(long expectedAccounts, double falsePositiveProbability) {
+        double bitsNeeded = -expectedAccounts * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2));
+        int wordCount = (int) Math.max(1, Math.min(Integer.MAX_VALUE - 8, (long) Math.ceil(bitsNeeded / 64)));
+        this.words = new AtomicLongArray(wordCount);
+        this.bitCount = (long) wordCount * 64;
+        this.hashCount = (int) Math.max(1, Math.round((double) this.bitCount / Math.max(expectedAccounts, 1) * Math.log(2)));
+    }
+
+    public void add(String accountId) {
+        long hash = hash(accountId);
+        long step = mix(hash ^ 0x9e3779b97f4a7c15L) | 1;
+        for (int i = 0; i < this.hashCount; i++) {
+            long bit = Math.floorMod(hash + i * step, this.bitCount);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            if ((this.words.get(word) & mask) == 0) {
+                this.words.getAndAccumulate(word, mask, (current, added) -> current | added);
+            }
+        }
+    }
+
+    /**
+     * @param accountId
+     * @return boolean false when the account certainly does not exist
+     */
+    public boolean mightContain(String accountId) {
+        long hash = hash(accountId);
+        long step = mix(hash ^ 0x9e3779b97f4a7c15L) | 1;
+        for (int i = 0; i < this.hashCount; i++) {
+            long bit = Math.floorMod(hash + i * step, this.bitCount);
+            if ((this.words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void clear() {
+        for (int word = 0; word < this.words.length(); word++) {
+            this.words.set(word, 0);
+        }
+    }
+
+    private static long hash(String accountId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < accountId.length(); i++) {
+            hash ^= accountId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * MurmurHash3 finalizer, spreads every input bit over the whole hash.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
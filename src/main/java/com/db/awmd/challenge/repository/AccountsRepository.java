@@ -2,12 +2,43 @@ package com.db.awmd.challenge.repository;
 
 import com.db.awmd.challenge.domain.Account;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import java.util.Collection;
+import java.util.List;
 
 public interface AccountsRepository {
 
   void createAccount(Account account) throws DuplicateAccountIdException;
 
+  /**
+   * Same as {@link #createAccount(Account)}, with the opening entry recorded at the time received, to replay
+   * <br /> accounts opened elsewhere.
+   * @param account
+   * @param openedAt epoch milliseconds of the opening
+   */
+  void createAccount(Account account, long openedAt) throws DuplicateAccountIdException;
+
+  /**
+   * Create all the accounts, skipping the ones whose id already exists instead of failing.
+   * @param accounts
+   * @return List<String> ids of the accounts not created because they already existed
+   */
+  List<String> createAccounts(Collection<Account> accounts);
+
   Account getAccount(String accountId);
 
+  /**
+   * Tell whether the account exists, answering from memory for the ids that were never created so that a request
+   * <br /> naming an unknown account is turned away before anything is allocated or recorded for it.
+   * @param accountId
+   * @return boolean
+   */
+  boolean exists(String accountId);
+
+  /**
+   * Return a live view of all the accounts, to scan the whole book without copying it.
+   * @return Collection<Account>
+   */
+  Collection<Account> getAccounts();
+
   void clearAccounts();
 }
@@ -2,32 +2,175 @@ package com.db.awmd.challenge.repository;
 
 import com.db.awmd.challenge.domain.Account;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.ledger.Ledger;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public class AccountsRepositoryInMemory implements AccountsRepository {
 
-  private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+  private final Map<String, Account> accounts;
+
+  private final Ledger ledger;
+
+  private final AccountBloomFilter createdIds;
+
+  /**
+   * Ids looked up and found missing, so repeated requests for the same unknown account skip the map. Emptied
+   * <br /> when it reaches its size instead of evicting, unknown ids being cheap to find missing again.
+   */
+  private final Set<String> unknownIds;
+
+  private final int unknownIdsSize;
+
+  /**
+   * Ids being created, claimed before looking at the map so that only one creation of an id ever records its
+   * <br /> opening in the Ledger, whether it comes alone or in a batch.
+   */
+  private final Set<String> claimedIds = ConcurrentHashMap.newKeySet();
+
+  public AccountsRepositoryInMemory(Ledger ledger, int initialCapacity) {
+    this(ledger, initialCapacity, initialCapacity, 0.01, 1024);
+  }
+
+  @Autowired
+  public AccountsRepositoryInMemory(Ledger ledger,
+    @Value("${accounts.repository.initial-capacity:1024}") int initialCapacity,
+    @Value("${accounts.repository.bloom.expected-accounts:1000000}") long expectedAccounts,
+    @Value("${accounts.repository.bloom.false-positive-probability:0.01}") double falsePositiveProbability,
+    @Value("${accounts.repository.negative-cache.size:10000}") int unknownIdsSize) {
+    this.ledger = ledger;
+    this.accounts = new ConcurrentHashMap<>(initialCapacity);
+    this.createdIds = new AccountBloomFilter(expectedAccounts, falsePositiveProbability);
+    this.unknownIds = ConcurrentHashMap.newKeySet();
+    this.unknownIdsSize = unknownIdsSize;
+  }
 
   @Override
   public void createAccount(Account account) throws DuplicateAccountIdException {
-    Account previousAccount = accounts.putIfAbsent(account.getAccountId(), account);
-    if (previousAccount != null) {
+    createAccount(account, System.currentTimeMillis());
+  }
+
+  @Override
+  public void createAccount(Account account, long openedAt) throws DuplicateAccountIdException {
+    if (!putIfAbsent(account, openedAt)) {
       throw new DuplicateAccountIdException(
         "Account id " + account.getAccountId() + " already exists!");
     }
   }
 
+  /**
+   * Claim the ids of the batch, record the openings of the claimed ones in the Ledger at once, then store them.
+   * <br /> Batches of concurrent imports only contend on the Ledger once each, the map is filled in parallel.
+   */
+  @Override
+  public List<String> createAccounts(Collection<Account> accounts) {
+    List<String> duplicateAccountIds = new ArrayList<>();
+    Map<String, Account> claimed = new LinkedHashMap<>();
+    try {
+      for (Account account : accounts) {
+        if (claim(account.getAccountId())) {
+          claimed.put(account.getAccountId(), account);
+        } else {
+          duplicateAccountIds.add(account.getAccountId());
+        }
+      }
+      Map<String, BigDecimal> balances = new LinkedHashMap<>();
+      claimed.forEach((accountId, account) -> balances.put(accountId, account.getBalance()));
+      ledger.openAll(balances);
+      claimed.forEach(this::store);
+    } finally {
+      claimedIds.removeAll(claimed.keySet());
+    }
+    return duplicateAccountIds;
+  }
+
   @Override
   public Account getAccount(String accountId) {
     return accounts.get(accountId);
   }
 
+  /**
+   * The Bloom filter answers for the ids never created, the negative cache for the false positives already met,
+   * <br /> and only the rest reach the map. An id is put into the negative cache before the map is read again, and
+   * <br /> taken out by the creation after the account is stored, so a concurrent creation is never hidden.
+   */
+  @Override
+  public boolean exists(String accountId) {
+    if (!createdIds.mightContain(accountId) || unknownIds.contains(accountId)) {
+      return false;
+    }
+    if (accounts.containsKey(accountId)) {
+      return true;
+    }
+    if (unknownIds.size() >= unknownIdsSize) {
+      unknownIds.clear();
+    }
+    unknownIds.add(accountId);
+    if (accounts.containsKey(accountId)) {
+      unknownIds.remove(accountId);
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public Collection<Account> getAccounts() {
+    return Collections.unmodifiableCollection(accounts.values());
+  }
+
   @Override
   public void clearAccounts() {
     accounts.clear();
+    createdIds.clear();
+    unknownIds.clear();
+  }
+
+  /**
+   * Store the account when its id is free. The opening entry is recorded in the Ledger before the account
+   * is visible, so it precedes any transfer of the account.
+   */
+  private boolean putIfAbsent(Account account, long openedAt) {
+    if (!claim(account.getAccountId())) {
+      return false;
+    }
+    try {
+      ledger.open(account.getAccountId(), account.getBalance(), openedAt);
+      store(account.getAccountId(), account);
+      return true;
+    } finally {
+      claimedIds.remove(account.getAccountId());
+    }
+  }
+
+  /**
+   * @return boolean true when the id is neither stored nor being created, it is then reserved to the caller
+   */
+  private boolean claim(String accountId) {
+    if (!claimedIds.add(accountId)) {
+      return false;
+    }
+    if (accounts.containsKey(accountId)) {
+      claimedIds.remove(accountId);
+      return false;
+    }
+    return true;
+  }
+
+  private void store(String accountId, Account account) {
+    accounts.put(accountId, account);
+    createdIds.add(accountId);
+    unknownIds.remove(accountId);
   }
 
 }
@@ -2,6 +2,7 @@ package com.db.awmd.challenge.repository;
 
 import com.db.awmd.challenge.domain.Transfer;
 import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.enums.Status;
 
 import java.util.Map;
 
@@ -13,16 +14,22 @@ public interface TransferRepository {
      *  */
     String createTransfer(TransferRequest transferRequest);
 
-    /** Return a transfer from Repository from the account id send by parameter
+    /** Return a transfer from Repository from the account id send by parameter, as a copy of the stored one
      * @param transferId
      * @return Transfer
      *  */
     Transfer getTransfer(String transferId);
 
+    /** Record the new status of a transfer, the Transfer objects returned before are not updated
+     * @param transferId
+     * @param status
+     *  */
+    void updateStatus(String transferId, Status status);
+
     /** Delete all records on the Repository */
     void clearTransfers();
 
-    /** Return all the transfers stored on the Repository
+    /** Return all the transfers stored on the Repository, as a read only view
      * @return Map<String, Transfer>
      * */
     Map<String, Transfer> getAllTransfers();
@@ -3,42 +3,357 @@ package com.db.awmd.challenge.repository;
 import com.db.awmd.challenge.domain.Transfer;
 import com.db.awmd.challenge.domain.TransferRequest;
 import com.db.awmd.challenge.enums.Status;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Transfers stored column by column in fixed size segments instead of one object graph per transfer: account ids
+ * <br /> interned into int handles, amounts as an unscaled long and a scale, and the status as a byte, about 18 bytes
+ * <br /> per transfer. The id is not stored, it is the slot of the transfer behind a random prefix drawn per
+ * <br /> repository, so ids of several nodes do not collide. {@link Transfer} objects are only built when read.
+ */
 @Repository
 public class TransferRepositoryInMemory implements TransferRepository {
 
-    private final Map<String, Transfer> transfers = new ConcurrentHashMap<>();
+    private static final VarHandle STATUS = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    /** Scale stored for the amounts not fitting a long and a byte scale, kept aside as BigDecimal */
+    private static final byte LARGE_AMOUNT = Byte.MIN_VALUE;
+
+    /** Status byte of a slot taken but not written yet, the stored statuses are the ordinal plus one */
+    private static final byte UNPUBLISHED = 0;
+
+    private static final Status[] STATUSES = Status.values();
+
+    private final int segmentShift;
+
+    private final Map<String, Integer> accountHandles = new ConcurrentHashMap<>();
+
+    private volatile String[] accountIds = new String[1024];
+
+    /** Guards accountCount and accountIds growth, a lock rather than a monitor so virtual threads never pin */
+    private final Lock accountHandlesLock = new ReentrantLock();
+
+    private int accountCount;
+
+    private volatile Store store;
+
+    private volatile TransferStatusListener statusListener;
+
+    /**
+     * @param segmentShift log2 of the number of transfers per segment
+     */
+    @Autowired
+    public TransferRepositoryInMemory(@Value("${transfer.repository.segment-shift:14}") int segmentShift) {
+        this.segmentShift = segmentShift;
+        this.store = new Store();
+    }
+
+    /**
+     * @param statusListener told about the transfers created and the statuses recorded from now on
+     */
+    @Autowired(required = false)
+    public void setStatusListener(TransferStatusListener statusListener) {
+        this.statusListener = statusListener;
+    }
 
     @Override
     public String createTransfer(TransferRequest transferRequest) {
-        String id = UUID.randomUUID().toString();
+        Store store = this.store;
+        int slot = store.nextSlot.getAndIncrement();
+        if (slot < 0) {
+            throw new IllegalStateException("Transfer repository is full");
+        }
+        Segment segment = store.segmentFor(slot);
+        int index = slot & ((1 << this.segmentShift) - 1);
 
-        Transfer transfer = new Transfer()
-                .setId(UUID.randomUUID().toString())
-                .setTransfer(transferRequest)
-                .setStatus(Status.CREATED);
-        this.transfers.putIfAbsent(id, transfer);
+        segment.from[index] = accountHandle(transferRequest.getAccountFromId());
+        segment.to[index] = accountHandle(transferRequest.getAccountToId());
+        BigDecimal amount = transferRequest.getAmountTransfer();
+        if (amount.scale() > Byte.MAX_VALUE || amount.scale() <= LARGE_AMOUNT || amount.unscaledValue().bitLength() > 63) {
+            segment.scale[index] = LARGE_AMOUNT;
+            store.largeAmounts.put(slot, amount);
+        } else {
+            segment.scale[index] = (byte) amount.scale();
+            segment.unscaledAmount[index] = amount.unscaledValue().longValue();
+        }
+        // Release store, publishes the fields written above to the readers acquiring the status
+        STATUS.setRelease(segment.status, index, statusByte(Status.CREATED));
+        store.size.incrementAndGet();
+        statusChanged(store, slot, Status.CREATED);
 
-        return id;
+        return store.id(slot);
     }
 
     @Override
     public Transfer getTransfer(String transferId) {
-        return this.transfers.get(transferId);
+        Store store = this.store;
+        int slot = store.slotOf(transferId);
+        return slot < 0 ? null : store.read(slot);
+    }
+
+    @Override
+    public void updateStatus(String transferId, Status status) {
+        Store store = this.store;
+        int slot = store.slotOf(transferId);
+        if (slot >= 0) {
+            Segment segment = store.segmentAt(slot);
+            int index = slot & ((1 << this.segmentShift) - 1);
+            if (segment != null && (byte) STATUS.getAcquire(segment.status, index) != UNPUBLISHED) {
+                STATUS.setRelease(segment.status, index, statusByte(status));
+                statusChanged(store, slot, status);
+            }
+        }
     }
 
     @Override
     public void clearTransfers() {
-        this.transfers.clear();
+        this.store = new Store();
     }
 
+    /**
+     * @return Map<String, Transfer> read only view over the stored transfers, each one built when it is reached
+     */
     @Override
     public Map<String, Transfer> getAllTransfers() {
-        return this.transfers;
+        return new TransfersView(this.store);
+    }
+
+    private void statusChanged(Store store, int slot, Status status) {
+        TransferStatusListener statusListener = this.statusListener;
+        if (statusListener != null && statusListener.isListening()) {
+            // The status written, a concurrent update may already have replaced it in the store
+            statusListener.statusChanged(store.read(slot).setStatus(status));
+        }
+    }
+
+    private int accountHandle(String accountId) {
+        Integer handle = this.accountHandles.get(accountId);
+        if (handle != null) {
+            return handle;
+        }
+        this.accountHandlesLock.lock();
+        try {
+            handle = this.accountHandles.get(accountId);
+            if (handle == null) {
+                handle = this.accountCount++;
+                String[] ids = this.accountIds;
+                if (handle == ids.length) {
+                    ids = Arrays.copyOf(ids, ids.length * 2);
+                }
+                ids[handle] = accountId;
+                this.accountIds = ids;
+                this.accountHandles.put(accountId, handle);
+            }
+            return handle;
+        } finally {
+            this.accountHandlesLock.unlock();
+        }
+    }
+
+    private static byte statusByte(Status status) {
+        return (byte) (status.ordinal() + 1);
+    }
+
+    /**
+     * Columns of a segment of consecutive slots.
+     */
+    private static final class Segment {
+
+        private final int[] from;
+
+        private final int[] to;
+
+        private final long[] unscaledAmount;
+
+        private final byte[] scale;
+
+        private final byte[] status;
+
+        private Segment(int length) {
+            this.from = new int[length];
+            this.to = new int[length];
+            this.unscaledAmount = new long[length];
+            this.scale = new byte[length];
+            this.status = new byte[length];
+        }
+    }
+
+    /**
+     * Everything dropped by {@link #clearTransfers()}, replaced as a whole so that the ids given before the clear
+     * <br /> never resolve to the transfers created after it.
+     */
+    private final class Store {
+
+        private final long idPrefix = ThreadLocalRandom.current().nextLong();
+
+        private final AtomicInteger nextSlot = new AtomicInteger();
+
+        private final AtomicInteger size = new AtomicInteger();
+
+        private final Map<Integer, BigDecimal> largeAmounts = new ConcurrentHashMap<>();
+
+        private volatile Segment[] segments = new Segment[16];
+
+        private final Lock segmentsLock = new ReentrantLock();
+
+        private String id(int slot) {
+            return new UUID(this.idPrefix, slot).toString();
+        }
+
+        /**
+         * @return int the slot of the id, -1 when the id was not given by this store
+         */
+        private int slotOf(String transferId) {
+            UUID id;
+            try {
+                id = UUID.fromString(transferId);
+            } catch (IllegalArgumentException | NullPointerException e) {
+                return -1;
+            }
+            long slot = id.getLeastSignificantBits();
+            if (id.getMostSignificantBits() != this.idPrefix || slot < 0 || slot >= this.nextSlot.get()) {
+                return -1;
+            }
+            return (int) slot;
+        }
+
+        private Segment segmentAt(int slot) {
+            Segment[] segments = this.segments;
+            int segmentIndex = slot >>> TransferRepositoryInMemory.this.segmentShift;
+            return segmentIndex < segments.length ? segments[segmentIndex] : null;
+        }
+
+        private Segment segmentFor(int slot) {
+            Segment segment = segmentAt(slot);
+            if (segment != null) {
+                return segment;
+            }
+            this.segmentsLock.lock();
+            try {
+                int segmentIndex = slot >>> TransferRepositoryInMemory.this.segmentShift;
+                Segment[] segments = this.segments;
+                if (segmentIndex < segments.length && segments[segmentIndex] != null) {
+                    return segments[segmentIndex];
+                }
+                // Copied rather than filled in place, readers only ever see fully built segment arrays
+                segments = Arrays.copyOf(segments, Math.max(segments.length * (segmentIndex < segments.length ? 1 : 2),
+                        segmentIndex + 1));
+                segments[segmentIndex] = new Segment(1 << TransferRepositoryInMemory.this.segmentShift);
+                this.segments = segments;
+                return segments[segmentIndex];
+            } finally {
+                this.segmentsLock.unlock();
+            }
+        }
+
+        /**
+         * @return Transfer null when the slot is taken but its transfer is not written yet
+         */
+        private Transfer read(int slot) {
+            Segment segment = segmentAt(slot);
+            if (segment == null) {
+                return null;
+            }
+            int index = slot & ((1 << TransferRepositoryInMemory.this.segmentShift) - 1);
+            byte status = (byte) STATUS.getAcquire(segment.status, index);
+            if (status == UNPUBLISHED) {
+                return null;
+            }
+            String[] ids = TransferRepositoryInMemory.this.accountIds;
+            BigDecimal amount = segment.scale[index] == LARGE_AMOUNT
+                    ? this.largeAmounts.get(slot)
+                    : BigDecimal.valueOf(segment.unscaledAmount[index], segment.scale[index]);
+            return new Transfer()
+                    .setId(id(slot))
+                    .setTransfer(new TransferRequest()
+                            .setAccountFromId(ids[segment.from[index]])
+                            .setAccountToId(ids[segment.to[index]])
+                            .setAmountTransfer(amount))
+                    .setStatus(STATUSES[status - 1]);
+        }
+    }
+
+    private static final class TransfersView extends AbstractMap<String, Transfer> {
+
+        private final Store store;
+
+        private TransfersView(Store store) {
+            this.store = store;
+        }
+
+        @Override
+        public Transfer get(Object key) {
+            int slot = key instanceof String ? this.store.slotOf((String) key) : -1;
+            return slot < 0 ? null : this.store.read(slot);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public int size() {
+            return this.store.size.get();
+        }
+
+        @Override
+        public Set<Entry<String, Transfer>> entrySet() {
+            return new AbstractSet<Entry<String, Transfer>>() {
+
+                @Override
+                public int size() {
+                    return TransfersView.this.size();
+                }
+
+                @Override
+                public Iterator<Entry<String, Transfer>> iterator() {
+                    int end = TransfersView.this.store.nextSlot.get();
+                    return new Iterator<Entry<String, Transfer>>() {
+
+                        private int slot;
+
+                        private Transfer next;
+
+                        @Override
+                        public boolean hasNext() {
+                            while (this.next == null && this.slot < end) {
+                                this.next = TransfersView.this.store.read(this.slot++);
+                            }
+                            return this.next != null;
+                        }
+
+                        @Override
+                        public Entry<String, Transfer> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Transfer transfer = this.next;
+                            this.next = null;
+                            return new SimpleImmutableEntry<>(transfer.getId(), transfer);
+                        }
+                    };
+                }
+            };
+        }
     }
 }
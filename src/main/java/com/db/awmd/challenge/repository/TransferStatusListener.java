@@ -0,0 +1,19 @@
+package com.db.awmd.challenge.repository;
+
+import com.db.awmd.challenge.domain.Transfer;
+
+/**
+ * Told by the TransferRepository about every transfer created and every status recorded, on the thread recording it.
+ */
+public interface TransferStatusListener {
+
+    /** Checked before building the Transfer passed to {@link #statusChanged(Transfer)}, nothing is built while false
+     * @return boolean
+     *  */
+    boolean isListening();
+
+    /** Called once the new status is stored
+     * @param transfer copy of the stored transfer
+     *  */
+    void statusChanged(Transfer transfer);
+}
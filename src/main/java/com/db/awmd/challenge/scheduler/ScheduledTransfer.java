@@ -0,0 +1,25 @@
+package com.db.awmd.challenge.scheduler;
+
+import com.db.awmd.challenge.domain.TransferRequest;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+@Data
+@Accessors(chain = true)
+public class ScheduledTransfer {
+
+    /**
+     * Id for specific scheduled transfer
+     */
+    private String id;
+
+    /**
+     * Time when the transfer has to be executed, in epoch milliseconds
+     */
+    private long executeAt;
+
+    /**
+     * Request perform by the User
+     */
+    private TransferRequest transfer;
+}
@@ -0,0 +1,223 @@
+package com.db.awmd.challenge.scheduler;
+
+import com.db.awmd.challenge.domain.TransferRequest;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append only file keeping the scheduled transfers that are still pending, so they survive a restart.
+ * <br /> Every scheduled transfer writes a record, and a second record when it is handed to execution. Each call
+ * <br /> is a commit point: its records are forced to the disk before it returns. Once the file grows past the
+ * <br /> compaction threshold, and twice its size after the last compaction, it is rewritten with only the pending
+ * <br /> transfers. Not thread safe, callers must guard it.
+ */
+@Slf4j
+public class ScheduledTransferJournal implements Closeable {
+
+    private static final byte SCHEDULED = 'S';
+    private static final byte DISPATCHED = 'D';
+
+    private final Path path;
+
+    private final long compactionThresholdBytes;
+
+    /** The transfers scheduled and not dispatched yet, written again on every compaction */
+    private final Map<String, ScheduledTransfer> pending = new LinkedHashMap<>();
+
+    private FileChannel channel;
+
+    private DataOutputStream output;
+
+    /** Size of the file right after the last compaction */
+    private long compactedBytes;
+
+    public ScheduledTransferJournal(Path path, long compactionThresholdBytes) {
+        this.path = path;
+        this.compactionThresholdBytes = compactionThresholdBytes;
+    }
+
+    /**
+     * Read the journal and return the transfers scheduled and not dispatched yet, then rewrite the journal
+     * <br /> with only those transfers and open it for appending.
+     * @return List<ScheduledTransfer>
+     */
+    public List<ScheduledTransfer> recover() {
+        this.pending.clear();
+        if (Files.exists(this.path)) {
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(this.path)))) {
+                while (true) {
+                    byte type = input.readByte();
+                    String id = input.readUTF();
+                    if (type == SCHEDULED) {
+                        this.pending.put(id, readScheduledTransfer(id, input));
+                    } else {
+                        this.pending.remove(id);
+                    }
+                }
+            } catch (EOFException e) {
+                log.info("recovered {} pending scheduled transfers from {}", this.pending.size(), this.path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        compact();
+        return new ArrayList<>(this.pending.values());
+    }
+
+    /**
+     * Record a new scheduled transfer.
+     * @param scheduledTransfer
+     */
+    public void scheduled(ScheduledTransfer scheduledTransfer) {
+        try {
+            write(this.output, scheduledTransfer);
+            commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.pending.put(scheduledTransfer.getId(), scheduledTransfer);
+    }
+
+    /**
+     * Record that the scheduled transfers received by parameter have been handed to execution.
+     * @param scheduledTransfers
+     */
+    public void dispatched(Collection<ScheduledTransfer> scheduledTransfers) {
+        try {
+            for (ScheduledTransfer scheduledTransfer : scheduledTransfers) {
+                this.output.writeByte(DISPATCHED);
+                this.output.writeUTF(scheduledTransfer.getId());
+            }
+            commit();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        scheduledTransfers.forEach(scheduledTransfer -> this.pending.remove(scheduledTransfer.getId()));
+        if (needsCompaction()) {
+            compact();
+        }
+    }
+
+    /**
+     * @return long the size of the journal file in bytes
+     */
+    public long size() {
+        try {
+            return this.channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.output != null) {
+            this.output.close();
+            this.output = null;
+            this.channel = null;
+        }
+    }
+
+    private static void write(DataOutputStream output, ScheduledTransfer scheduledTransfer) throws IOException {
+        output.writeByte(SCHEDULED);
+        output.writeUTF(scheduledTransfer.getId());
+        output.writeLong(scheduledTransfer.getExecuteAt());
+        output.writeUTF(scheduledTransfer.getTransfer().getAccountFromId());
+        output.writeUTF(scheduledTransfer.getTransfer().getAccountToId());
+        output.writeUTF(scheduledTransfer.getTransfer().getAmountTransfer().toPlainString());
+    }
+
+    /**
+     * Write what is buffered and force it to the disk, the records survive a crash of the machine once it returns.
+     */
+    private void commit() throws IOException {
+        this.output.flush();
+        this.channel.force(false);
+    }
+
+    private boolean needsCompaction() {
+        long size = size();
+        return size >= this.compactionThresholdBytes && size >= 2 * this.compactedBytes;
+    }
+
+    private ScheduledTransfer readScheduledTransfer(String id, DataInputStream input) throws IOException {
+        long executeAt = input.readLong();
+        TransferRequest transferRequest = new TransferRequest()
+                .setAccountFromId(input.readUTF())
+                .setAccountToId(input.readUTF())
+                .setAmountTransfer(new BigDecimal(input.readUTF()));
+        return new ScheduledTransfer()
+                .setId(id)
+                .setExecuteAt(executeAt)
+                .setTransfer(transferRequest);
+    }
+
+    /**
+     * Rewrite the journal with only the pending transfers, forced to the disk, then replace the old file in a
+     * <br /> single move and force the directory so the move itself survives a crash.
+     */
+    private void compact() {
+        Path absolutePath = this.path.toAbsolutePath();
+        Path compacted = absolutePath.resolveSibling(absolutePath.getFileName() + ".compact");
+        try (FileChannel compactedChannel = FileChannel.open(compacted,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // Written aside, the journal in use stays untouched when the compaction fails
+            DataOutputStream compactedOutput = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(compactedChannel)));
+            for (ScheduledTransfer scheduledTransfer : this.pending.values()) {
+                write(compactedOutput, scheduledTransfer);
+            }
+            compactedOutput.flush();
+            compactedChannel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        try {
+            close();
+            Files.move(compacted, absolutePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            forceDirectory(absolutePath.getParent());
+            openOutput(absolutePath);
+            this.compactedBytes = size();
+            log.info("scheduled transfers journal {} compacted to {} pending transfers, {} bytes",
+                    this.path, this.pending.size(), this.compactedBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void openOutput(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(this.channel)));
+    }
+
+    private static void forceDirectory(Path directory) {
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (IOException e) {
+            // Not every platform opens directories, the move is then as durable as the platform makes it
+            log.debug("directory {} not forced: {}", directory, e.getMessage());
+        }
+    }
+}
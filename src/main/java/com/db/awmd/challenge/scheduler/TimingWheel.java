@@ -0,0 +1,168 @@
+package com.db.awmd.challenge.scheduler;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel. Every level has the same number of buckets, and the tick of a level is the
+ * <br /> whole interval of the level below it, so far future entries sit in coarse buckets and cascade down
+ * <br /> as time advances. Inserting is O(1) and every entry costs one fixed-size node.
+ * <br /> Not thread safe, callers must guard it.
+ *
+ * @param <T> the value scheduled in the wheel
+ */
+public class TimingWheel<T> {
+
+    private final Level<T> lowestLevel;
+
+    private long currentTime;
+
+    private int size;
+
+    public TimingWheel(long tickMs, int wheelSize, long startMs) {
+        // The wheel stays one tick behind the clock, a tick is only released once it has fully elapsed
+        this.currentTime = startMs - (startMs % tickMs) - tickMs;
+        this.lowestLevel = new Level<>(tickMs, wheelSize, this.currentTime);
+    }
+
+    /**
+     * Add a value to be released at the given time.
+     * @param expirationMs
+     * @param value
+     * @return boolean false when the expiration has already passed and the value has not been added
+     */
+    public boolean add(long expirationMs, T value) {
+        if (this.lowestLevel.add(new Entry<>(expirationMs, value))) {
+            this.size++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Advance the wheel tick by tick up to the time received by parameter, releasing every due value.
+     * @param nowMs
+     * @param dueConsumer receives the values whose expiration has been reached
+     * @return int number of values released
+     */
+    public int advanceTo(long nowMs, Consumer<T> dueConsumer) {
+        int released = 0;
+        long tickMs = this.lowestLevel.tickMs;
+        while (this.currentTime + 2 * tickMs <= nowMs) {
+            this.currentTime += tickMs;
+            this.lowestLevel.advanceTo(this.currentTime);
+            released += cascade(this.lowestLevel.overflow, dueConsumer);
+
+            Entry<T> entry = this.lowestLevel.bucketAt(this.currentTime).removeAll();
+            while (entry != null) {
+                Entry<T> next = entry.next;
+                dueConsumer.accept(entry.value);
+                released++;
+                entry = next;
+            }
+        }
+        this.size -= released;
+        return released;
+    }
+
+    /** @return int number of values waiting in the wheel */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Move the entries of the coarse buckets that have just been reached into the lower levels,
+     * <br /> starting from the highest level.
+     */
+    private int cascade(Level<T> level, Consumer<T> dueConsumer) {
+        if (level == null || this.currentTime % level.tickMs != 0) {
+            return 0;
+        }
+        int released = cascade(level.overflow, dueConsumer);
+
+        Entry<T> entry = level.bucketAt(this.currentTime).removeAll();
+        while (entry != null) {
+            Entry<T> next = entry.next;
+            entry.next = null;
+            if (!this.lowestLevel.add(entry)) {
+                dueConsumer.accept(entry.value);
+                released++;
+            }
+            entry = next;
+        }
+        return released;
+    }
+
+    private static final class Level<T> {
+
+        private final long tickMs;
+        private final int wheelSize;
+        private final long interval;
+        private final Bucket<T>[] buckets;
+        private long currentTime;
+        private Level<T> overflow;
+
+        @SuppressWarnings("unchecked")
+        private Level(long tickMs, int wheelSize, long startMs) {
+            this.tickMs = tickMs;
+            this.wheelSize = wheelSize;
+            this.interval = tickMs * wheelSize;
+            this.currentTime = startMs - (startMs % tickMs);
+            this.buckets = new Bucket[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                this.buckets[i] = new Bucket<>();
+            }
+        }
+
+        private boolean add(Entry<T> entry) {
+            if (entry.expirationMs < this.currentTime + this.tickMs) {
+                return false;
+            } else if (entry.expirationMs < this.currentTime + this.interval) {
+                bucketAt(entry.expirationMs).add(entry);
+                return true;
+            }
+            if (this.overflow == null) {
+                this.overflow = new Level<>(this.interval, this.wheelSize, this.currentTime);
+            }
+            return this.overflow.add(entry);
+        }
+
+        private void advanceTo(long timeMs) {
+            this.currentTime = timeMs - (timeMs % this.tickMs);
+            if (this.overflow != null) {
+                this.overflow.advanceTo(timeMs);
+            }
+        }
+
+        private Bucket<T> bucketAt(long timeMs) {
+            return this.buckets[(int) ((timeMs / this.tickMs) % this.wheelSize)];
+        }
+    }
+
+    private static final class Bucket<T> {
+
+        private Entry<T> head;
+
+        private void add(Entry<T> entry) {
+            entry.next = this.head;
+            this.head = entry;
+        }
+
+        private Entry<T> removeAll() {
+            Entry<T> entries = this.head;
+            this.head = null;
+            return entries;
+        }
+    }
+
+    private static final class Entry<T> {
+
+        private final long expirationMs;
+        private final T value;
+        private Entry<T> next;
+
+        private Entry(long expirationMs, T value) {
+            this.expirationMs = expirationMs;
+            this.value = value;
+        }
+    }
+}
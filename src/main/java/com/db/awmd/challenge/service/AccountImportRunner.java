@@ -0,0 +1,79 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.AccountImportResult;
+import com.db.awmd.challenge.enums.AccountImportFormat;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Offline loader: imports the accounts file set in {@code accounts.import.file} while the application starts,
+ * <br /> after the warm-up and before the web server listens, so no request sees a partly imported book.
+ * <br /> Files ending in .csv are read as CSV, anything else as NDJSON. A file that can not be read stops the start.
+ */
+@Component
+@Slf4j
+public class AccountImportRunner implements SmartLifecycle {
+
+    private final AccountImportService accountImportService;
+
+    private final String importFile;
+
+    private volatile boolean running;
+
+    @Autowired
+    public AccountImportRunner(AccountImportService accountImportService,
+                               @Value("${accounts.import.file:}") String importFile) {
+        this.accountImportService = accountImportService;
+        this.importFile = importFile;
+    }
+
+    /**
+     * Right after {@link TransferWarmUp}, which empties the book when it is over, and before the web server.
+     */
+    @Override
+    public int getPhase() {
+        return WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2048 + 1;
+    }
+
+    @Override
+    public void start() {
+        this.running = true;
+        if (this.importFile.isEmpty()) {
+            return;
+        }
+
+        Path path = Paths.get(this.importFile);
+        AccountImportFormat format = path.getFileName().toString().endsWith(".csv")
+                ? AccountImportFormat.CSV
+                : AccountImportFormat.NDJSON;
+        log.info("importing accounts from {} as {}", path, format);
+        try (InputStream input = Files.newInputStream(path)) {
+            AccountImportResult result = this.accountImportService.importAccounts(input, format);
+            log.info("imported {} accounts from {} in {} ms, {} duplicated, {} rejected",
+                    result.getImported(), path, result.getElapsedMillis(), result.getDuplicates(), result.getRejected());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Accounts file " + path + " can not be imported", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        this.running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+}
@@ -0,0 +1,175 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountImportResult;
+import com.db.awmd.challenge.enums.AccountImportFormat;
+import com.db.awmd.challenge.partition.PartitionRouter;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams accounts from CSV ({@code accountId,balance}) or NDJSON (one account per line) straight into
+ * <br /> AccountsRepository. Lines are parsed on the calling thread and stored in chunks in parallel, and
+ * <br /> duplicated ids are collected per chunk instead of failing account by account. On a partitioned node the
+ * <br /> accounts owned by another node are skipped and reported, they must be imported on their owner.
+ */
+@Service
+@Slf4j
+public class AccountImportService {
+
+    private static final int ACCOUNT_IDS_REPORTED = 100;
+
+    private final AccountsRepository accountsRepository;
+
+    private final PartitionRouter partitionRouter;
+
+    private final ObjectReader accountReader;
+
+    private final int chunkSize;
+
+    @Autowired
+    public AccountImportService(AccountsRepository accountsRepository,
+                                PartitionRouter partitionRouter,
+                                ObjectMapper objectMapper,
+                                @Value("${accounts.import.chunk-size:10000}") int chunkSize) {
+        this.accountsRepository = accountsRepository;
+        this.partitionRouter = partitionRouter;
+        this.accountReader = objectMapper.readerFor(Account.class);
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Create every valid account read from the input. Invalid lines are skipped and counted as rejected, accounts
+     * <br /> owned by another node are skipped and counted as not owned.
+     *
+     * @param input the accounts to import, in UTF-8
+     * @param format format of the input
+     * @return AccountImportResult counts of imported, duplicated, rejected and not owned accounts
+     * @throws IOException when the input can not be read
+     * */
+    public AccountImportResult importAccounts(InputStream input, AccountImportFormat format) throws IOException {
+        long start = System.nanoTime();
+        AtomicLong imported = new AtomicLong();
+        AtomicLong duplicates = new AtomicLong();
+        long rejected = 0;
+        long notOwned = 0;
+        List<String> duplicateAccountIds = new ArrayList<>();
+        List<String> notOwnedAccountIds = new ArrayList<>();
+
+        int parallelism = ForkJoinPool.commonPool().getParallelism();
+        // Bounds the chunks parsed but not stored yet, so a huge input never sits in memory at once
+        Semaphore chunksInFlight = new Semaphore(parallelism * 2);
+        List<CompletableFuture<Void>> storedChunks = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            List<Account> chunk = new ArrayList<>(this.chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || isHeader(line, format)) {
+                    continue;
+                }
+                Account account = parse(line, format);
+                if (account == null) {
+                    rejected++;
+                    continue;
+                }
+                if (!this.partitionRouter.isLocal(account.getAccountId())) {
+                    notOwned++;
+                    if (notOwnedAccountIds.size() < ACCOUNT_IDS_REPORTED) {
+                        notOwnedAccountIds.add(account.getAccountId());
+                    }
+                    continue;
+                }
+                chunk.add(account);
+                if (chunk.size() == this.chunkSize) {
+                    storedChunks.add(store(chunk, chunksInFlight, imported, duplicates, duplicateAccountIds));
+                    chunk = new ArrayList<>(this.chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                storedChunks.add(store(chunk, chunksInFlight, imported, duplicates, duplicateAccountIds));
+            }
+        } finally {
+            CompletableFuture.allOf(storedChunks.toArray(new CompletableFuture[0])).join();
+        }
+
+        AccountImportResult result = new AccountImportResult()
+                .setImported(imported.get())
+                .setDuplicates(duplicates.get())
+                .setRejected(rejected)
+                .setDuplicateAccountIds(duplicateAccountIds)
+                .setNotOwned(notOwned)
+                .setNotOwnedAccountIds(notOwnedAccountIds)
+                .setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        log.info("accounts import ended {}", result);
+        return result;
+    }
+
+    private CompletableFuture<Void> store(List<Account> chunk, Semaphore chunksInFlight, AtomicLong imported,
+                                         AtomicLong duplicates, List<String> duplicateAccountIds) {
+        chunksInFlight.acquireUninterruptibly();
+        return CompletableFuture.runAsync(() -> {
+            try {
+                List<String> duplicateIds = this.accountsRepository.createAccounts(chunk);
+                imported.addAndGet(chunk.size() - duplicateIds.size());
+                duplicates.addAndGet(duplicateIds.size());
+                synchronized (duplicateAccountIds) {
+                    int reported = Math.min(duplicateIds.size(), ACCOUNT_IDS_REPORTED - duplicateAccountIds.size());
+                    if (reported > 0) {
+                        duplicateAccountIds.addAll(duplicateIds.subList(0, reported));
+                    }
+                }
+            } finally {
+                chunksInFlight.release();
+            }
+        });
+    }
+
+    private boolean isHeader(String line, AccountImportFormat format) {
+        return format == AccountImportFormat.CSV && line.startsWith("accountId,");
+    }
+
+    /**
+     * Parse a line into an account, checking the same constraints as the Account creation endpoint.
+     * @return Account null when the line is not a valid account
+     */
+    private Account parse(String line, AccountImportFormat format) {
+        try {
+            Account account;
+            if (format == AccountImportFormat.CSV) {
+                int separator = line.indexOf(',');
+                if (separator < 0) {
+                    return null;
+                }
+                account = new Account(line.substring(0, separator).trim(),
+                        new BigDecimal(line.substring(separator + 1).trim()));
+            } else {
+                account = this.accountReader.readValue(line);
+            }
+
+            boolean valid = account.getAccountId() != null && !account.getAccountId().isEmpty()
+                    && account.getBalance() != null && account.getBalance().signum() >= 0;
+            return valid ? account : null;
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+}
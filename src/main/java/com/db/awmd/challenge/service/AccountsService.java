@@ -1,7 +1,13 @@
 package com.db.awmd.challenge.service;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountBalance;
+import com.db.awmd.challenge.domain.LedgerEntry;
+import com.db.awmd.challenge.ledger.Ledger;
 import com.db.awmd.challenge.repository.AccountsRepository;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
 import lombok.Getter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -12,9 +18,12 @@ public class AccountsService {
   @Getter
   private final AccountsRepository accountsRepository;
 
+  private final Ledger ledger;
+
   @Autowired
-  public AccountsService(AccountsRepository accountsRepository) {
+  public AccountsService(AccountsRepository accountsRepository, Ledger ledger) {
     this.accountsRepository = accountsRepository;
+    this.ledger = ledger;
   }
 
   public void createAccount(Account account) {
@@ -24,4 +33,25 @@ public class AccountsService {
   public Account getAccount(String accountId) {
     return this.accountsRepository.getAccount(accountId);
   }
+
+  /**
+   * Return the balance of the account at the given time, from the Ledger.
+   * @param accountId
+   * @param asOf
+   * @return AccountBalance null when the account did not exist at that time
+   */
+  public AccountBalance getBalanceAt(String accountId, Instant asOf) {
+    BigDecimal balance = this.ledger.getBalanceAt(accountId, asOf.toEpochMilli());
+    if (balance == null) {
+      return null;
+    }
+    return new AccountBalance()
+      .setAccountId(accountId)
+      .setBalance(balance)
+      .setAsOf(asOf);
+  }
+
+  public List<LedgerEntry> getLedgerEntries(String accountId) {
+    return this.ledger.getEntries(accountId);
+  }
 }
@@ -0,0 +1,118 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BookSummary;
+import com.db.awmd.challenge.ledger.Ledger;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Checks invariants over the whole book, like the total of all balances, without stopping transfers.
+ * <br /> All balances are read from the Ledger at the same snapshot, so a transfer is either fully inside the
+ * <br /> totals or not at all, and the scan is split across the fork join pool.
+ */
+@Service
+@Slf4j
+public class BookAggregationService {
+
+    private static final int ACCOUNTS_PER_TASK = 4096;
+
+    private final AccountsRepository accountsRepository;
+
+    private final Ledger ledger;
+
+    @Autowired
+    public BookAggregationService(AccountsRepository accountsRepository, Ledger ledger) {
+        this.accountsRepository = accountsRepository;
+        this.ledger = ledger;
+    }
+
+    /**
+     * Sum the balances of every account and count the ones below zero, at a single Ledger snapshot.
+     * <br /> The funds held by active holds are reported apart, since they are out of the account balances.
+     * @return BookSummary
+     */
+    public BookSummary summarize() {
+        long start = System.nanoTime();
+        int snapshot = this.ledger.snapshot();
+        Account[] accounts = this.accountsRepository.getAccounts().toArray(new Account[0]);
+
+        BookTotals totals = ForkJoinPool.commonPool().invoke(new BookTotalsTask(accounts, 0, accounts.length, snapshot));
+
+        BookSummary bookSummary = new BookSummary()
+                .setAccounts(totals.accounts)
+                .setTotalBalance(totals.totalBalance)
+                .setHeldBalance(heldBalanceAt(snapshot))
+                .setNegativeBalances(totals.negativeBalances)
+                .setSnapshot(snapshot)
+                .setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        log.info("book summary {}", bookSummary);
+        return bookSummary;
+    }
+
+    private BigDecimal heldBalanceAt(int snapshot) {
+        BigDecimal heldBalance = this.ledger.getBalanceAtSnapshot(HoldService.HELD_FUNDS_ACCOUNT, snapshot);
+        return heldBalance == null ? BigDecimal.ZERO : heldBalance;
+    }
+
+    private static final class BookTotals {
+
+        private long accounts;
+        private BigDecimal totalBalance = BigDecimal.ZERO;
+        private long negativeBalances;
+
+        private BookTotals add(BookTotals other) {
+            this.accounts += other.accounts;
+            this.totalBalance = this.totalBalance.add(other.totalBalance);
+            this.negativeBalances += other.negativeBalances;
+            return this;
+        }
+    }
+
+    private final class BookTotalsTask extends RecursiveTask<BookTotals> {
+
+        private final Account[] accounts;
+        private final int from;
+        private final int to;
+        private final int snapshot;
+
+        private BookTotalsTask(Account[] accounts, int from, int to, int snapshot) {
+            this.accounts = accounts;
+            this.from = from;
+            this.to = to;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        protected BookTotals compute() {
+            if (this.to - this.from > ACCOUNTS_PER_TASK) {
+                int middle = (this.from + this.to) >>> 1;
+                BookTotalsTask left = new BookTotalsTask(this.accounts, this.from, middle, this.snapshot);
+                left.fork();
+                BookTotals right = new BookTotalsTask(this.accounts, middle, this.to, this.snapshot).compute();
+                return right.add(left.join());
+            }
+
+            BookTotals totals = new BookTotals();
+            for (int i = this.from; i < this.to; i++) {
+                BigDecimal balance = ledger.getBalanceAtSnapshot(this.accounts[i].getAccountId(), this.snapshot);
+                if (balance == null) {
+                    // Created after the snapshot was taken
+                    continue;
+                }
+                totals.accounts++;
+                totals.totalBalance = totals.totalBalance.add(balance);
+                if (balance.signum() < 0) {
+                    totals.negativeBalances++;
+                }
+            }
+            return totals;
+        }
+    }
+}
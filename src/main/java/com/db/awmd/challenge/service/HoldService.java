@@ -0,0 +1,287 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Hold;
+import com.db.awmd.challenge.domain.HoldRequest;
+import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.enums.HoldStatus;
+import com.db.awmd.challenge.enums.Status;
+import com.db.awmd.challenge.exception.AccountNotFoundException;
+import com.db.awmd.challenge.exception.HoldNotActiveException;
+import com.db.awmd.challenge.exception.InsufficientAmountException;
+import com.db.awmd.challenge.exception.TransferNotCompletedException;
+import com.db.awmd.challenge.ledger.Ledger;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.TransferRepository;
+import com.db.awmd.challenge.scheduler.TimingWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Authorize then capture: a hold takes an amount out of the available balance of an account in a single
+ * <br /> adjustment under the account lock, and parks it in the held funds ledger account. Capturing moves it to
+ * <br /> the destination account, releasing or expiring gives it back. None of them locks more than one account,
+ * <br /> and the balance of an account is always its available balance, so it never waits for a capture.
+ * <br /> A hold expiring after its account was deleted fails, its funds are moved to the unclaimed holds ledger
+ * <br /> account under the hold id. Finished holds stay readable for holds.retention-ms, then they are forgotten.
+ */
+@Service
+@Slf4j
+public class HoldService {
+
+    /** Ledger account holding the funds of every active hold */
+    public static final String HELD_FUNDS_ACCOUNT = "suspense:holds";
+
+    /** Ledger account keeping the funds of the failed holds, whose account did not exist anymore */
+    public static final String UNCLAIMED_FUNDS_ACCOUNT = "suspense:unclaimed-holds";
+
+    private final TransferService transferService;
+
+    private final TransferRepository transferRepository;
+
+    private final AccountsRepository accountsRepository;
+
+    private final NotificationService notificationService;
+
+    private final Ledger ledger;
+
+    private final long defaultTtlMs;
+
+    private final long retentionMs;
+
+    private final Map<String, Hold> holds = new ConcurrentHashMap<>();
+
+    /** Holds still held, whoever removes a hold from here is the only one finishing it */
+    private final Set<String> activeHoldIds = ConcurrentHashMap.newKeySet();
+
+    private final TimingWheel<String> expiryWheel;
+
+    /** Holds already expired when they were added to the wheel, released on the next sweep */
+    private List<String> overdueHoldIds = new ArrayList<>();
+
+    private final Lock wheelLock = new ReentrantLock();
+
+    /** Finished holds in the order they finished, so in the order they are forgotten */
+    private final Queue<RetiredHold> retiredHolds = new ConcurrentLinkedQueue<>();
+
+    @Autowired
+    public HoldService(TransferService transferService,
+                       TransferRepository transferRepository,
+                       AccountsRepository accountsRepository,
+                       NotificationService notificationService,
+                       Ledger ledger,
+                       @Value("${holds.default-ttl-ms:600000}") long defaultTtlMs,
+                       @Value("${holds.retention-ms:600000}") long retentionMs,
+                       @Value("${holds.sweep-interval-ms:100}") long sweepIntervalMs,
+                       @Value("${holds.wheel-size:512}") int wheelSize) {
+        this.transferService = transferService;
+        this.transferRepository = transferRepository;
+        this.accountsRepository = accountsRepository;
+        this.notificationService = notificationService;
+        this.ledger = ledger;
+        this.defaultTtlMs = defaultTtlMs;
+        this.retentionMs = retentionMs;
+        this.expiryWheel = new TimingWheel<>(sweepIntervalMs, wheelSize, System.currentTimeMillis());
+    }
+
+    /**
+     * Hold an amount of the account until it is captured, released or expires.
+     *
+     * @param holdRequest the account, amount and time to live of the hold
+     * @param deadline the {@link System#nanoTime()} after which it gives up waiting for the account lock
+     * @return Hold
+     * @exception AccountNotFoundException when the account is not found
+     * @exception InsufficientAmountException when the available balance of the account is not enough
+     * @exception TransferNotCompletedException when the account lock is not acquired before the deadline
+     * */
+    public Hold reserve(HoldRequest holdRequest, long deadline) {
+        if (!this.accountsRepository.exists(holdRequest.getAccountId())) {
+            throw new AccountNotFoundException("Account " + holdRequest.getAccountId() + " does not exist");
+        }
+        long ttlMs = holdRequest.getTtlMs() == null ? this.defaultTtlMs : holdRequest.getTtlMs();
+        Hold hold = new Hold()
+                .setId(UUID.randomUUID().toString())
+                .setAccountId(holdRequest.getAccountId())
+                .setAmount(holdRequest.getAmount())
+                .setExpiresAt(System.currentTimeMillis() + ttlMs)
+                .setStatus(HoldStatus.HELD);
+
+        this.transferService.withdraw(hold.getAccountId(), hold.getAmount(), deadline);
+        this.ledger.post(hold.getId(), hold.getAccountId(), HELD_FUNDS_ACCOUNT, hold.getAmount());
+
+        this.holds.put(hold.getId(), hold);
+        this.activeHoldIds.add(hold.getId());
+        scheduleExpiry(hold);
+
+        log.info("hold {} of {} on account {}", hold.getId(), hold.getAmount(), hold.getAccountId());
+        return hold;
+    }
+
+    /**
+     * Move the held amount to the destination account, recording it as a completed transfer. The hold is active
+     * <br /> again when the amount can not be moved, an expired hold is left to the sweep releasing it.
+     *
+     * @param holdId the hold to be captured
+     * @param accountToId the destination account
+     * @return Hold
+     * @exception AccountNotFoundException when the destination account is not found
+     * @exception HoldNotActiveException when the hold is unknown, already finished or expired
+     * */
+    public Hold capture(String holdId, String accountToId) {
+        Account destinationAccount = this.accountsRepository.getAccount(accountToId);
+        if (destinationAccount == null) {
+            throw new AccountNotFoundException("Destination Account " + accountToId + " does not exist");
+        }
+        Hold hold = finish(holdId);
+        if (hold.getExpiresAt() <= System.currentTimeMillis()) {
+            restore(hold);
+            throw new HoldNotActiveException("Hold " + holdId + " expired");
+        }
+
+        TransferRequest transferRequest = new TransferRequest()
+                .setAccountFromId(hold.getAccountId())
+                .setAccountToId(accountToId)
+                .setAmountTransfer(hold.getAmount());
+        String transferId = this.transferRepository.createTransfer(transferRequest);
+        try {
+            this.transferService.deposit(accountToId, hold.getAmount());
+        } catch (RuntimeException e) {
+            this.transferRepository.updateStatus(transferId, Status.ERROR);
+            restore(hold);
+            throw e;
+        }
+        this.ledger.post(transferId, HELD_FUNDS_ACCOUNT, accountToId, hold.getAmount());
+        this.transferRepository.updateStatus(transferId, Status.COMPLETED);
+        hold.setTransferId(transferId).setStatus(HoldStatus.CAPTURED);
+        retire(hold);
+
+        this.notificationService.notifyAboutTransfer(
+                this.accountsRepository.getAccount(hold.getAccountId()), TransferService.MONEY_SENT);
+        this.notificationService.notifyAboutTransfer(destinationAccount, TransferService.MONEY_RECEIVED);
+        log.info("hold {} captured by transfer {}", holdId, transferId);
+        return hold;
+    }
+
+    /**
+     * Give the held amount back to the account.
+     *
+     * @param holdId the hold to be released
+     * @return Hold
+     * @exception HoldNotActiveException when the hold is unknown, already finished or expired
+     * */
+    public Hold release(String holdId) {
+        Hold hold = finish(holdId);
+        giveBack(hold);
+        hold.setStatus(HoldStatus.RELEASED);
+        retire(hold);
+        log.info("hold {} released", holdId);
+        return hold;
+    }
+
+    /**
+     * @param holdId
+     * @return Hold null when the hold does not exist or finished more than the retention ago
+     */
+    public Hold getHold(String holdId) {
+        return this.holds.get(holdId);
+    }
+
+    /**
+     * Release the holds whose time to live is over and forget the ones finished more than the retention ago.
+     * <br /> Advancing the wheel only touches the expired holds.
+     */
+    @Scheduled(fixedDelayString = "${holds.sweep-interval-ms:100}")
+    public void expireHolds() {
+        List<String> expiredHoldIds;
+        this.wheelLock.lock();
+        try {
+            expiredHoldIds = this.overdueHoldIds;
+            this.overdueHoldIds = new ArrayList<>();
+            this.expiryWheel.advanceTo(System.currentTimeMillis(), expiredHoldIds::add);
+        } finally {
+            this.wheelLock.unlock();
+        }
+
+        for (String holdId : expiredHoldIds) {
+            if (this.activeHoldIds.remove(holdId)) {
+                Hold hold = this.holds.get(holdId);
+                try {
+                    giveBack(hold);
+                    hold.setStatus(HoldStatus.EXPIRED);
+                    log.info("hold {} expired", holdId);
+                } catch (AccountNotFoundException e) {
+                    this.ledger.post(holdId, HELD_FUNDS_ACCOUNT, UNCLAIMED_FUNDS_ACCOUNT, hold.getAmount());
+                    hold.setStatus(HoldStatus.FAILED);
+                    log.error("hold {} failed, account {} does not exist anymore, funds moved to {}",
+                            holdId, hold.getAccountId(), UNCLAIMED_FUNDS_ACCOUNT);
+                }
+                retire(hold);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        RetiredHold retiredHold;
+        while ((retiredHold = this.retiredHolds.peek()) != null && retiredHold.forgetAt() <= now) {
+            this.retiredHolds.poll();
+            this.holds.remove(retiredHold.holdId());
+        }
+    }
+
+    /**
+     * Take the hold out of the active ones, only one caller can finish a hold and set its status.
+     * @param holdId
+     * @return Hold
+     */
+    private Hold finish(String holdId) {
+        if (!this.activeHoldIds.remove(holdId)) {
+            throw new HoldNotActiveException("Hold " + holdId + " is not active");
+        }
+        return this.holds.get(holdId);
+    }
+
+    /**
+     * Put back a hold whose capture failed, still HELD. It is added to the wheel again since the wheel may have
+     * <br /> fired for it while it was not active; expiring twice is harmless, only one of them finds it active.
+     */
+    private void restore(Hold hold) {
+        this.activeHoldIds.add(hold.getId());
+        scheduleExpiry(hold);
+    }
+
+    private void scheduleExpiry(Hold hold) {
+        this.wheelLock.lock();
+        try {
+            if (!this.expiryWheel.add(hold.getExpiresAt(), hold.getId())) {
+                this.overdueHoldIds.add(hold.getId());
+            }
+        } finally {
+            this.wheelLock.unlock();
+        }
+    }
+
+    private void retire(Hold hold) {
+        this.retiredHolds.add(new RetiredHold(hold.getId(), System.currentTimeMillis() + this.retentionMs));
+    }
+
+    private void giveBack(Hold hold) {
+        this.transferService.deposit(hold.getAccountId(), hold.getAmount());
+        this.ledger.post(hold.getId(), HELD_FUNDS_ACCOUNT, hold.getAccountId(), hold.getAmount());
+    }
+
+    private record RetiredHold(String holdId, long forgetAt) {
+    }
+}
@@ -0,0 +1,264 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.RemoteCredit;
+import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.enums.Status;
+import com.db.awmd.challenge.enums.TransferDecision;
+import com.db.awmd.challenge.exception.AccountNotFoundException;
+import com.db.awmd.challenge.exception.InsufficientAmountException;
+import com.db.awmd.challenge.exception.TransferNotCompletedException;
+import com.db.awmd.challenge.exception.UnknownNodeException;
+import com.db.awmd.challenge.ledger.Ledger;
+import com.db.awmd.challenge.partition.PartitionClient;
+import com.db.awmd.challenge.partition.PartitionRouter;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.TransferRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes transfers when accounts are partitioned over several nodes. Transfers between accounts of this node
+ * <br /> go straight to TransferService. Transfers to an account of another node use a two phase protocol where
+ * <br /> the node owning the origin account is the coordinator:
+ * <br /> 1. the coordinator takes the amount out of the origin account,
+ * <br /> 2. the node owning the destination account prepares the credit,
+ * <br /> 3. the coordinator records its decision and sends it, giving the amount back when it aborts.
+ * <br /> A prepared credit that never hears the decision asks the coordinator for it. A coordinator asked before
+ * <br /> deciding records an abort, so both sides always agree (presumed abort).
+ * <br /> A commit is kept and sent again until the participant acknowledges it, so a transfer once committed is
+ * <br /> never answered with an abort. Acknowledged commits and aborts are forgotten after
+ * <br /> partition.decision-retention-ms, a participant asking later never prepared or already applied them.
+ */
+@Service
+@Slf4j
+public class PartitionedTransferService {
+
+    private final TransferService transferService;
+
+    private final TransferRepository transferRepository;
+
+    private final AccountsRepository accountsRepository;
+
+    private final NotificationService notificationService;
+
+    private final Ledger ledger;
+
+    private final PartitionRouter partitionRouter;
+
+    private final PartitionClient partitionClient;
+
+    /** Decisions taken as coordinator, kept to answer the participants recovering a transfer */
+    private final Map<String, Decision> decisions = new ConcurrentHashMap<>();
+
+    /** Credits prepared as participant, waiting for the decision of their coordinator */
+    private final Map<String, PreparedCredit> preparedCredits = new ConcurrentHashMap<>();
+
+    private final long recoverAfterNanos;
+
+    private final long decisionRetentionNanos;
+
+    @Autowired
+    public PartitionedTransferService(TransferService transferService,
+                                      TransferRepository transferRepository,
+                                      AccountsRepository accountsRepository,
+                                      NotificationService notificationService,
+                                      Ledger ledger,
+                                      PartitionRouter partitionRouter,
+                                      PartitionClient partitionClient,
+                                      @Value("${partition.recover-after-ms:5000}") long recoverAfterMs,
+                                      @Value("${partition.decision-retention-ms:600000}") long decisionRetentionMs) {
+        this.transferService = transferService;
+        this.transferRepository = transferRepository;
+        this.accountsRepository = accountsRepository;
+        this.notificationService = notificationService;
+        this.ledger = ledger;
+        this.partitionRouter = partitionRouter;
+        this.partitionClient = partitionClient;
+        this.recoverAfterNanos = TimeUnit.MILLISECONDS.toNanos(recoverAfterMs);
+        this.decisionRetentionNanos = TimeUnit.MILLISECONDS.toNanos(decisionRetentionMs);
+    }
+
+    /**
+     * Execute a transfer whose origin account belongs to this node.
+     *
+     * @param transferRequest the request to be executed
+     * @param deadline the {@link System#nanoTime()} after which the transfer gives up waiting for locks
+     * @exception AccountNotFoundException when one of accounts is not found
+     * @exception InsufficientAmountException when the origin account has not enough balance
+     * @exception TransferNotCompletedException when the transfer is not completed
+     * */
+    public void makeTransfer(TransferRequest transferRequest, long deadline) {
+        if (this.partitionRouter.isLocal(transferRequest.getAccountToId())) {
+            this.transferService.makeTransfer(transferRequest, deadline);
+            return;
+        }
+
+        String participant = this.partitionRouter.ownerOf(transferRequest.getAccountToId());
+        log.info("transfer between {} and {} coordinated with node {}",
+                transferRequest.getAccountFromId(), transferRequest.getAccountToId(), participant);
+
+        if (!this.accountsRepository.exists(transferRequest.getAccountFromId())) {
+            throw new AccountNotFoundException("Origin Account " + transferRequest.getAccountFromId() + " does not exist");
+        }
+
+        String transferId = this.transferRepository.createTransfer(transferRequest);
+        try {
+            this.transferService.withdraw(transferRequest.getAccountFromId(), transferRequest.getAmountTransfer(), deadline);
+        } catch (RuntimeException e) {
+            this.transferRepository.updateStatus(transferId, Status.ERROR);
+            throw e;
+        }
+
+        RemoteCredit remoteCredit = new RemoteCredit()
+                .setTransferId(transferId)
+                .setCoordinator(this.partitionRouter.getSelf())
+                .setAccountFromId(transferRequest.getAccountFromId())
+                .setAccountToId(transferRequest.getAccountToId())
+                .setAmount(transferRequest.getAmountTransfer());
+
+        if (this.partitionClient.prepare(participant, remoteCredit)
+                && decide(transferId, participant, TransferDecision.COMMITTED)) {
+            this.ledger.post(transferId, transferRequest.getAccountFromId(),
+                    PartitionRouter.clearingAccount(participant), transferRequest.getAmountTransfer());
+            this.transferRepository.updateStatus(transferId, Status.COMPLETED);
+            sendCommit(transferId);
+            this.notificationService.notifyAboutTransfer(
+                    this.accountsRepository.getAccount(transferRequest.getAccountFromId()), TransferService.MONEY_SENT);
+        } else {
+            decide(transferId, participant, TransferDecision.ABORTED);
+            this.transferService.deposit(transferRequest.getAccountFromId(), transferRequest.getAmountTransfer());
+            this.transferRepository.updateStatus(transferId, Status.ERROR);
+            this.partitionClient.abort(participant, transferId);
+            throw new TransferNotCompletedException(TransferService.TRANSFER_CAN_NOT_BE_PERFORM);
+        }
+    }
+
+    /**
+     * Prepare the credit of a transfer coordinated by another node.
+     *
+     * @param remoteCredit the credit to be prepared
+     * @exception UnknownNodeException when the coordinator is not one of the other nodes
+     * @exception AccountNotFoundException when the destination account does not belong to this node
+     * */
+    public void prepare(RemoteCredit remoteCredit) {
+        if (!this.partitionRouter.isMember(remoteCredit.getCoordinator())) {
+            throw new UnknownNodeException("Coordinator " + remoteCredit.getCoordinator() + " is not one of the nodes");
+        }
+        if (!this.partitionRouter.isLocal(remoteCredit.getAccountToId())
+                || this.accountsRepository.getAccount(remoteCredit.getAccountToId()) == null) {
+            throw new AccountNotFoundException("Destination Account " + remoteCredit.getAccountToId() + " does not exist");
+        }
+        this.preparedCredits.putIfAbsent(remoteCredit.getTransferId(), new PreparedCredit(remoteCredit, System.nanoTime()));
+    }
+
+    /**
+     * Apply a prepared credit. Receiving the same commit again does nothing.
+     * @param transferId
+     */
+    public void commit(String transferId) {
+        PreparedCredit preparedCredit = this.preparedCredits.remove(transferId);
+        if (preparedCredit == null) {
+            return;
+        }
+        RemoteCredit remoteCredit = preparedCredit.remoteCredit();
+        this.transferService.deposit(remoteCredit.getAccountToId(), remoteCredit.getAmount());
+        this.ledger.post(transferId, PartitionRouter.clearingAccount(remoteCredit.getCoordinator()),
+                remoteCredit.getAccountToId(), remoteCredit.getAmount());
+        this.notificationService.notifyAboutTransfer(
+                this.accountsRepository.getAccount(remoteCredit.getAccountToId()), TransferService.MONEY_RECEIVED);
+        log.info("transfer {} from node {} committed", transferId, remoteCredit.getCoordinator());
+    }
+
+    /**
+     * Drop a prepared credit.
+     * @param transferId
+     */
+    public void abort(String transferId) {
+        if (this.preparedCredits.remove(transferId) != null) {
+            log.info("transfer {} aborted", transferId);
+        }
+    }
+
+    /**
+     * Return the decision taken as coordinator. A transfer not decided yet is aborted straight away, so a
+     * <br /> coordinator still waiting for the prepare answer can not commit it anymore.
+     * @param transferId
+     * @return TransferDecision
+     */
+    public TransferDecision decision(String transferId) {
+        decide(transferId, null, TransferDecision.ABORTED);
+        return this.decisions.get(transferId).state();
+    }
+
+    /**
+     * Ask the coordinators for the decision of the credits prepared too long ago, send again the commits not
+     * <br /> acknowledged yet, and forget the old decisions no participant can be waiting for anymore.
+     */
+    @Scheduled(fixedDelayString = "${partition.recovery-interval-ms:1000}")
+    public void recover() {
+        long now = System.nanoTime();
+        this.preparedCredits.forEach((transferId, preparedCredit) -> {
+            if (now - preparedCredit.preparedAt() < this.recoverAfterNanos) {
+                return;
+            }
+            TransferDecision decision = this.partitionClient.decision(
+                    preparedCredit.remoteCredit().getCoordinator(), transferId);
+            if (decision == TransferDecision.COMMITTED) {
+                commit(transferId);
+            } else if (decision == TransferDecision.ABORTED) {
+                abort(transferId);
+            }
+        });
+        this.decisions.forEach((transferId, decision) -> {
+            if (decision.state() == TransferDecision.COMMITTED && !decision.acknowledged()
+                    && now - decision.decidedAt() >= this.recoverAfterNanos) {
+                sendCommit(transferId);
+            }
+        });
+        this.decisions.values().removeIf(decision -> (decision.state() == TransferDecision.ABORTED || decision.acknowledged())
+                && now - decision.decidedAt() > this.decisionRetentionNanos);
+    }
+
+    /**
+     * Record the decision unless the transfer is already decided.
+     * @param transferId
+     * @param participant the node preparing the credit, null when not known
+     * @param state
+     * @return boolean true when the transfer is decided as requested
+     */
+    private boolean decide(String transferId, String participant, TransferDecision state) {
+        Decision decision = this.decisions.putIfAbsent(transferId,
+                new Decision(state, participant, System.nanoTime(), false));
+        return decision == null || decision.state() == state;
+    }
+
+    /**
+     * Send the commit to the participant, the decision is acknowledged once the participant has received it.
+     * @param transferId
+     */
+    private void sendCommit(String transferId) {
+        Decision decision = this.decisions.get(transferId);
+        if (this.partitionClient.commit(decision.participant(), transferId)) {
+            this.decisions.computeIfPresent(transferId, (id, committed) -> committed.acknowledge());
+        } else {
+            log.warn("commit of transfer {} not acknowledged by node {}, sent again later", transferId, decision.participant());
+        }
+    }
+
+    private record Decision(TransferDecision state, String participant, long decidedAt, boolean acknowledged) {
+
+        private Decision acknowledge() {
+            return new Decision(this.state, this.participant, this.decidedAt, true);
+        }
+    }
+
+    private record PreparedCredit(RemoteCredit remoteCredit, long preparedAt) {
+    }
+}
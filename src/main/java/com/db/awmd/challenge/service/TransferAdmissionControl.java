@@ -0,0 +1,99 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.exception.AccountNotFoundException;
+import com.db.awmd.challenge.exception.TransferRateLimitedException;
+import com.db.awmd.challenge.ratelimit.TokenBucket;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rejects transfers over the allowed rate before they reach TransferService, so an overloaded account
+ * <br /> or service answers straight away instead of holding a request thread while waiting for account locks.
+ * <br /> Buckets are only created for existing accounts and dropped once refilled, so there are never more of them
+ * <br /> than accounts recently sending transfers.
+ */
+@Service
+@Slf4j
+public class TransferAdmissionControl {
+
+    public static final String ACCOUNT_RATE_EXCEEDED = "Too many transfers for origin Account";
+    public static final String SERVICE_RATE_EXCEEDED = "Too many transfers, try again later";
+
+    private final Map<String, TokenBucket> accountBuckets = new ConcurrentHashMap<>();
+
+    private final AccountsRepository accountsRepository;
+
+    private final boolean enabled;
+
+    private final double accountPermitsPerSecond;
+
+    private final int accountBurst;
+
+    private final TokenBucket globalBucket;
+
+    @Autowired
+    public TransferAdmissionControl(AccountsRepository accountsRepository,
+                                    @Value("${transfer.admission.enabled:true}") boolean enabled,
+                                    @Value("${transfer.admission.account.permits-per-second:1000}") double accountPermitsPerSecond,
+                                    @Value("${transfer.admission.account.burst:1000}") int accountBurst,
+                                    @Value("${transfer.admission.global.permits-per-second:20000}") double globalPermitsPerSecond,
+                                    @Value("${transfer.admission.global.burst:20000}") int globalBurst) {
+        this.accountsRepository = accountsRepository;
+        this.enabled = enabled;
+        this.accountPermitsPerSecond = accountPermitsPerSecond;
+        this.accountBurst = accountBurst;
+        this.globalBucket = new TokenBucket(globalPermitsPerSecond, globalBurst);
+    }
+
+    /**
+     * Take a permit for the origin account of the transfer and one for the whole service. The account permit is
+     * <br /> given back when the service is over its rate.
+     *
+     * @param transferRequest the request to be admitted
+     * @exception AccountNotFoundException when the origin account does not exist
+     * @exception TransferRateLimitedException when the origin account or the service is over its rate
+     * */
+    public void admit(TransferRequest transferRequest) {
+        if (!this.enabled) {
+            return;
+        }
+        if (!this.accountsRepository.exists(transferRequest.getAccountFromId())) {
+            throw new AccountNotFoundException("Origin Account " + transferRequest.getAccountFromId() + " does not exist");
+        }
+
+        TokenBucket accountBucket = this.accountBuckets.computeIfAbsent(transferRequest.getAccountFromId(),
+                accountId -> new TokenBucket(this.accountPermitsPerSecond, this.accountBurst));
+        if (!accountBucket.tryAcquire()) {
+            log.info("transfer from {} rejected, account rate exceeded", transferRequest.getAccountFromId());
+            throw new TransferRateLimitedException(ACCOUNT_RATE_EXCEEDED);
+        }
+        if (!this.globalBucket.tryAcquire()) {
+            accountBucket.release();
+            log.info("transfer from {} rejected, service rate exceeded", transferRequest.getAccountFromId());
+            throw new TransferRateLimitedException(SERVICE_RATE_EXCEEDED);
+        }
+    }
+
+    /**
+     * Drop the buckets refilled since their last transfer, a new bucket would grant the same permits.
+     */
+    @Scheduled(fixedDelayString = "${transfer.admission.account.eviction-interval-ms:10000}")
+    public void evictIdleBuckets() {
+        this.accountBuckets.values().removeIf(TokenBucket::isFull);
+    }
+
+    /**
+     * @return int number of accounts with a bucket
+     */
+    public int getTrackedAccounts() {
+        return this.accountBuckets.size();
+    }
+}
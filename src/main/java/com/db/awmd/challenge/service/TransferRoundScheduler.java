@@ -0,0 +1,150 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.enums.Status;
+import com.db.awmd.challenge.exception.InsufficientAmountException;
+import com.db.awmd.challenge.exception.TransferNotCompletedException;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.TransferRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs a window of transfers in parallel without two of them ever touching the same account at once. Every
+ * <br /> transfer is given the round after the last round of its two accounts, so the transfers of a round share
+ * <br /> no account and run together on a fork join pool, while the transfers of an account run one round after
+ * <br /> the other in request order. The outcome of every transfer is the one of running the window in order,
+ * <br /> whatever the parallelism, as long as no other caller moves money of the same accounts meanwhile.
+ */
+@Service
+@Slf4j
+public class TransferRoundScheduler {
+
+    private final TransferService transferService;
+
+    private final TransferRepository transferRepository;
+
+    private final AccountsRepository accountsRepository;
+
+    private final NotificationService notificationService;
+
+    private final ForkJoinPool pool;
+
+    @Autowired
+    public TransferRoundScheduler(TransferService transferService,
+                                  TransferRepository transferRepository,
+                                  AccountsRepository accountsRepository,
+                                  NotificationService notificationService,
+                                  @Value("${transfer.rounds.parallelism:0}") int parallelism) {
+        this.transferService = transferService;
+        this.transferRepository = transferRepository;
+        this.accountsRepository = accountsRepository;
+        this.notificationService = notificationService;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void stop() {
+        this.pool.shutdown();
+    }
+
+    /**
+     * Execute a window of transfers, each one completed or failed on its own.
+     *
+     * @param transferRequests the requests to be executed, conflicting ones in this order
+     * @param deadline the {@link System#nanoTime()} after which a transfer gives up waiting for locks
+     * @return List<Transfer> the transfers created for the window, in request order
+     * */
+    public List<Transfer> makeTransfers(List<TransferRequest> transferRequests, long deadline) {
+        final List<Transfer> transfers = new ArrayList<>(transferRequests.size());
+        final List<List<RoundTransfer>> rounds = new ArrayList<>();
+        final Map<String, Integer> nextFreeRound = new HashMap<>();
+
+        for (TransferRequest transferRequest : transferRequests) {
+            Transfer transfer = this.transferRepository.getTransfer(this.transferRepository.createTransfer(transferRequest));
+            transfers.add(transfer);
+
+            Account originAccount = this.accountsRepository.getAccount(transferRequest.getAccountFromId());
+            Account destinationAccount = this.accountsRepository.getAccount(transferRequest.getAccountToId());
+            if (originAccount == null || destinationAccount == null) {
+                updateStatus(transfer, Status.ERROR);
+                continue;
+            }
+
+            int round = Math.max(nextFreeRound.getOrDefault(transferRequest.getAccountFromId(), 0),
+                    nextFreeRound.getOrDefault(transferRequest.getAccountToId(), 0));
+            nextFreeRound.put(transferRequest.getAccountFromId(), round + 1);
+            nextFreeRound.put(transferRequest.getAccountToId(), round + 1);
+            if (round == rounds.size()) {
+                rounds.add(new ArrayList<>());
+            }
+            rounds.get(round).add(new RoundTransfer(transfer, originAccount, destinationAccount));
+        }
+        log.info("window of {} transfers scheduled in {} rounds", transferRequests.size(), rounds.size());
+
+        for (List<RoundTransfer> round : rounds) {
+            if (round.size() == 1) {
+                apply(round.get(0), deadline);
+            } else {
+                this.pool.submit(() -> round.parallelStream().forEach(roundTransfer -> apply(roundTransfer, deadline))).join();
+            }
+        }
+
+        for (List<RoundTransfer> round : rounds) {
+            round.stream()
+                    .filter(roundTransfer -> roundTransfer.transfer().getStatus() == Status.COMPLETED)
+                    .forEach(roundTransfer -> {
+                        this.notificationService.notifyAboutTransfer(roundTransfer.originAccount(), TransferService.MONEY_SENT);
+                        this.notificationService.notifyAboutTransfer(roundTransfer.destinationAccount(), TransferService.MONEY_RECEIVED);
+                    });
+        }
+        return transfers;
+    }
+
+    /**
+     * Apply one transfer and record its outcome. Any failure only fails this transfer, the window goes on.
+     */
+    private void apply(RoundTransfer roundTransfer, long deadline) {
+        Transfer transfer = roundTransfer.transfer();
+        boolean applied = false;
+        try {
+            this.transferService.applyTransfer(transfer.getTransfer(),
+                    roundTransfer.originAccount(),
+                    roundTransfer.destinationAccount(),
+                    transfer.getId(),
+                    deadline);
+            applied = true;
+        } catch (InsufficientAmountException | TransferNotCompletedException e) {
+            log.info("transfer {} of the window not completed: {}", transfer.getId(), e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("error applying transfer {} of the window", transfer.getId(), e);
+        }
+        try {
+            updateStatus(transfer, applied ? Status.COMPLETED : Status.ERROR);
+        } catch (RuntimeException e) {
+            log.error("error recording transfer {} of the window", transfer.getId(), e);
+        }
+    }
+
+    private void updateStatus(Transfer transfer, Status status) {
+        transfer.setStatus(status);
+        this.transferRepository.updateStatus(transfer.getId(), status);
+    }
+
+    /**
+     * A transfer of a round with its accounts, looked up once when the window is scheduled.
+     */
+    private record RoundTransfer(Transfer transfer, Account originAccount, Account destinationAccount) {
+    }
+}
@@ -0,0 +1,171 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.config.TransferExecutorConfiguration;
+import com.db.awmd.challenge.domain.ScheduledTransferRequest;
+import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.exception.TransferNotCompletedException;
+import com.db.awmd.challenge.scheduler.ScheduledTransfer;
+import com.db.awmd.challenge.scheduler.ScheduledTransferJournal;
+import com.db.awmd.challenge.scheduler.TimingWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Executes transfers at their requested time, journaled so they survive a restart. The journal belongs to one node:
+ * <br /> its default name carries server.port, so nodes started from the same directory never share it. Not created on
+ * <br /> a replica, which only applies what the primary ships.
+ */
+@Service
+@ConditionalOnExpression("'${replication.role:none}' != 'replica'")
+@Slf4j
+public class TransferScheduler {
+
+    private final TransferService transferService;
+
+    private final ExecutorService transferExecutor;
+
+    private final ScheduledTransferJournal journal;
+
+    private final TimingWheel<ScheduledTransfer> timingWheel;
+
+    private final int batchSize;
+
+    /** Transfers already due when they were added to the wheel, released on the next tick */
+    private List<ScheduledTransfer> overdueTransfers = new ArrayList<>();
+
+    private final Lock wheelLock = new ReentrantLock();
+
+    @Autowired
+    public TransferScheduler(TransferService transferService,
+                             @Qualifier(TransferExecutorConfiguration.TRANSFER_EXECUTOR) ExecutorService transferExecutor,
+                             @Value("${transfer.scheduler.journal:scheduled-transfers-${server.port:8080}.journal}") String journalPath,
+                             @Value("${transfer.scheduler.journal-compaction-threshold-bytes:67108864}") long journalCompactionThresholdBytes,
+                             @Value("${transfer.scheduler.tick-ms:100}") long tickMs,
+                             @Value("${transfer.scheduler.wheel-size:512}") int wheelSize,
+                             @Value("${transfer.scheduler.batch-size:500}") int batchSize) {
+        this.transferService = transferService;
+        this.transferExecutor = transferExecutor;
+        this.journal = new ScheduledTransferJournal(Paths.get(journalPath), journalCompactionThresholdBytes);
+        this.timingWheel = new TimingWheel<>(tickMs, wheelSize, System.currentTimeMillis());
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Load into the wheel the scheduled transfers still pending in the journal.
+     */
+    @PostConstruct
+    public void recover() {
+        this.wheelLock.lock();
+        try {
+            this.journal.recover().forEach(this::addToWheel);
+        } finally {
+            this.wheelLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        this.wheelLock.lock();
+        try {
+            this.journal.close();
+        } finally {
+            this.wheelLock.unlock();
+        }
+    }
+
+    /**
+     * Schedule a transfer to be executed at the requested time, keeping it in the journal until it is executed.
+     *
+     * @param scheduledTransferRequest the transfer and its execution time
+     * @return String id of the scheduled transfer
+     * */
+    public String scheduleTransfer(ScheduledTransferRequest scheduledTransferRequest) {
+        ScheduledTransfer scheduledTransfer = new ScheduledTransfer()
+                .setId(UUID.randomUUID().toString())
+                .setExecuteAt(scheduledTransferRequest.getExecuteAt())
+                .setTransfer(scheduledTransferRequest.getTransfer());
+
+        this.wheelLock.lock();
+        try {
+            this.journal.scheduled(scheduledTransfer);
+            addToWheel(scheduledTransfer);
+        } finally {
+            this.wheelLock.unlock();
+        }
+
+        log.info("transfer {} scheduled at {}", scheduledTransfer.getId(), scheduledTransfer.getExecuteAt());
+        return scheduledTransfer.getId();
+    }
+
+    /**
+     * @return int number of scheduled transfers waiting for execution
+     */
+    public int getPendingTransfers() {
+        this.wheelLock.lock();
+        try {
+            return this.timingWheel.size() + this.overdueTransfers.size();
+        } finally {
+            this.wheelLock.unlock();
+        }
+    }
+
+    /**
+     * Advance the wheel and hand the due transfers to TransferService in batches, run on the transfer executor.
+     * <br /> Due transfers are marked as dispatched in the journal before executing them, so a crash while
+     * <br /> executing never runs a scheduled transfer twice.
+     */
+    @Scheduled(fixedDelayString = "${transfer.scheduler.tick-ms:100}")
+    public void executeDueTransfers() {
+        List<ScheduledTransfer> dueTransfers;
+        this.wheelLock.lock();
+        try {
+            dueTransfers = this.overdueTransfers;
+            this.overdueTransfers = new ArrayList<>();
+            this.timingWheel.advanceTo(System.currentTimeMillis(), dueTransfers::add);
+            if (!dueTransfers.isEmpty()) {
+                this.journal.dispatched(dueTransfers);
+            }
+        } finally {
+            this.wheelLock.unlock();
+        }
+
+        for (int from = 0; from < dueTransfers.size(); from += this.batchSize) {
+            List<TransferRequest> batch = dueTransfers.subList(from, Math.min(from + this.batchSize, dueTransfers.size()))
+                    .stream()
+                    .map(ScheduledTransfer::getTransfer)
+                    .collect(Collectors.toList());
+            this.transferExecutor.execute(() -> executeBatch(batch));
+        }
+    }
+
+    private void executeBatch(List<TransferRequest> batch) {
+        try {
+            this.transferService.makeTransfers(batch);
+        } catch (TransferNotCompletedException e) {
+            log.error("batch of {} scheduled transfers not completed", batch.size());
+        }
+    }
+
+    private void addToWheel(ScheduledTransfer scheduledTransfer) {
+        if (!this.timingWheel.add(scheduledTransfer.getExecuteAt(), scheduledTransfer)) {
+            this.overdueTransfers.add(scheduledTransfer);
+        }
+    }
+}
@@ -6,16 +6,22 @@ import com.db.awmd.challenge.domain.TransferRequest;
 import com.db.awmd.challenge.exception.AccountNotFoundException;
 import com.db.awmd.challenge.exception.InsufficientAmountException;
 import com.db.awmd.challenge.exception.TransferNotCompletedException;
+import com.db.awmd.challenge.ledger.Ledger;
 import com.db.awmd.challenge.repository.AccountsRepository;
 import com.db.awmd.challenge.repository.TransferRepository;
 import com.db.awmd.challenge.enums.Status;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
@@ -30,9 +36,19 @@ public class TransferService {
     public static final String MONEY_RECEIVED = "Money received";
     public static final String TRANSFER_CAN_NOT_BE_PERFORM = "Transfer can not be perform";
     public static final BigDecimal ZERO_VALUE = new BigDecimal(0);
-    public static final int FIVE_SECONDS = 5;
 
-    private Map<String, Lock> transferLocks = new ConcurrentHashMap<>();
+    private Map<String, ReentrantLock> transferLocks = new ConcurrentHashMap<>();
+
+    /** Maximum time a transfer waits for the locks of its accounts, also caps the budget sent by the client */
+    @Value("${transfer.lock.timeout-ms:5000}")
+    private long lockTimeoutMs;
+
+    /** Fail fast instead of waiting when too many transfers are already queued on an account lock */
+    @Value("${transfer.lock.adaptive.enabled:false}")
+    private boolean adaptiveLocking;
+
+    @Value("${transfer.lock.adaptive.max-queue-length:32}")
+    private int maxLockQueueLength;
 
     @Autowired
     private AccountsRepository accountsRepository;
@@ -43,6 +59,9 @@ public class TransferService {
     @Autowired
     private TransferRepository transferRepository;
 
+    @Autowired
+    private Ledger ledger;
+
     /**
      * Create a new transfer base on transfer request, validates all the inputs and executes the transfer
      *  <br /> while a transfer is being executed, locks both to prevent corruption of balance state.
@@ -52,56 +71,311 @@ public class TransferService {
      * @exception TransferNotCompletedException when there is an unexpected error executing the transfer
      * */
     public void makeTransfer(TransferRequest transferRequest) {
+        makeTransfer(transferRequest, deadlineAfter(null));
+    }
+
+    /**
+     * Same as {@link #makeTransfer(TransferRequest)}, waiting for the account locks only until the deadline.
+     *
+     * @param transferRequest the request to be executed
+     * @param deadline the {@link System#nanoTime()} after which the transfer gives up waiting for locks
+     * @exception AccountNotFoundException when one of accounts is not found
+     * @exception TransferNotCompletedException when the locks are not acquired before the deadline
+     * */
+    public void makeTransfer(TransferRequest transferRequest, long deadline) {
         log.info("transfer between {} and {} with amount {} started",
                 transferRequest.getAccountFromId(),
                 transferRequest.getAccountToId(),
                 transferRequest.getAmountTransfer());
 
+        if (!this.accountsRepository.exists(transferRequest.getAccountFromId())
+                || !this.accountsRepository.exists(transferRequest.getAccountToId())) {
+            throw new AccountNotFoundException("Origin or destination Account of the transfer does not exist");
+        }
+
         String transferId = transferRepository.createTransfer(transferRequest);
         final Account originAccount = getAccount(transferRequest.getAccountFromId());
         final Account destinationAccount = getAccount(transferRequest.getAccountToId());
-        final Transfer transfer = this.transferRepository.getTransfer(transferId);
 
         if (originAccount == null || destinationAccount == null) {
             markTransferAsError(transferId);
             throw new AccountNotFoundException("Origin or destination Account " + transferId + " does not exist");
         }
 
-        Lock fromLock = getAccountLock(originAccount);
         try {
-            if (fromLock.tryLock(FIVE_SECONDS, TimeUnit.SECONDS)) {
-                Lock toLock = getAccountLock(destinationAccount);
+            applyTransfer(transferRequest, originAccount, destinationAccount, transferId, deadline);
+        } catch (InsufficientAmountException | TransferNotCompletedException e) {
+            markTransferAsError(transferId);
+            throw e;
+        }
+        this.transferRepository.updateStatus(transferId, Status.COMPLETED);
+        notifyTransfer(originAccount, destinationAccount);
 
+        log.info("transfer between {} and {} with amount {} ended",
+                transferRequest.getAccountFromId(),
+                transferRequest.getAccountToId(),
+                transferRequest.getAmountTransfer());
+    }
+
+    /**
+     * Lock both accounts and move the amount between them, recording it into the Ledger. The Transfer record is
+     * <br /> left untouched, the caller records the outcome.
+     *
+     * @param transferRequest the request to be applied
+     * @param originAccount the account to be debited
+     * @param destinationAccount the account to be credited
+     * @param transferId the Transfer recorded into the Ledger
+     * @param deadline the {@link System#nanoTime()} after which it gives up waiting for locks
+     * @exception InsufficientAmountException when the origin account has not enough balance
+     * @exception TransferNotCompletedException when the locks are not acquired before the deadline
+     * */
+    public void applyTransfer(TransferRequest transferRequest,
+                              Account originAccount,
+                              Account destinationAccount,
+                              String transferId,
+                              long deadline) {
+        ReentrantLock fromLock = getAccountLock(originAccount);
+        try {
+            if (!tryLock(fromLock, deadline)) {
+                throw new TransferNotCompletedException(TRANSFER_CAN_NOT_BE_PERFORM);
+            }
+            try {
+                ReentrantLock toLock = getAccountLock(destinationAccount);
+                if (!tryLock(toLock, deadline)) {
+                    throw new TransferNotCompletedException(TRANSFER_CAN_NOT_BE_PERFORM);
+                }
                 try {
-                    if (toLock.tryLock(FIVE_SECONDS, TimeUnit.SECONDS)) {
-                        executeTransfer(transferRequest, originAccount, destinationAccount, transferId);
-                    } else {
-                        markTransferAsError(transferId);
-                        throw new TransferNotCompletedException(TRANSFER_CAN_NOT_BE_PERFORM);
-                    }
+                    executeTransfer(transferRequest, originAccount, destinationAccount, transferId);
                 } finally {
                     toLock.unlock();
                 }
-                transfer.setStatus(Status.COMPLETED);
+            } finally {
+                fromLock.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransferNotCompletedException(TRANSFER_CAN_NOT_BE_PERFORM);
+        }
+    }
+
+    /**
+     * Execute a batch of transfers collapsing them into one net balance delta per account, so each account
+     * <br /> is locked and updated only once for the whole batch. Every request keeps its own Transfer record.
+     * <br /> When the net result leaves any account below zero, the batch is applied transfer by transfer in
+     * <br /> request order and only the transfers without enough balance are marked as error.
+     *
+     * @param transferRequests the batch to be executed
+     * @return List<Transfer> the transfers created for the batch, in request order
+     * @exception TransferNotCompletedException when the accounts of the batch can not be locked
+     * */
+    public List<Transfer> makeTransfers(List<TransferRequest> transferRequests) {
+        return makeTransfers(transferRequests, deadlineAfter(null));
+    }
+
+    /**
+     * Same as {@link #makeTransfers(List)}, waiting for the account locks only until the deadline.
+     *
+     * @param transferRequests the batch to be executed
+     * @param deadline the {@link System#nanoTime()} after which the batch gives up waiting for locks
+     * @return List<Transfer> the transfers created for the batch, in request order
+     * @exception TransferNotCompletedException when the accounts of the batch are not locked before the deadline
+     * */
+    public List<Transfer> makeTransfers(List<TransferRequest> transferRequests, long deadline) {
+        log.info("batch of {} transfers started", transferRequests.size());
+
+        final List<Transfer> transfers = new ArrayList<>(transferRequests.size());
+        final List<Transfer> pendingTransfers = new ArrayList<>(transferRequests.size());
+        // Sorted by account id so every batch acquires its locks in the same order
+        final Map<String, Account> accounts = new TreeMap<>();
+
+        for (TransferRequest transferRequest : transferRequests) {
+            String transferId = transferRepository.createTransfer(transferRequest);
+            Transfer transfer = this.transferRepository.getTransfer(transferId);
+            transfers.add(transfer);
+
+            Account originAccount = accounts.computeIfAbsent(transferRequest.getAccountFromId(), this::getAccount);
+            Account destinationAccount = accounts.computeIfAbsent(transferRequest.getAccountToId(), this::getAccount);
+            if (originAccount == null || destinationAccount == null) {
+                updateStatus(transfer, Status.ERROR);
             } else {
-                markTransferAsError(transferId);
+                pendingTransfers.add(transfer);
+            }
+        }
+
+        final List<Lock> acquiredLocks = new ArrayList<>(accounts.size());
+        try {
+            for (Account account : accounts.values()) {
+                ReentrantLock lock = getAccountLock(account);
+                if (!tryLock(lock, deadline)) {
+                    pendingTransfers.forEach(transfer -> updateStatus(transfer, Status.ERROR));
+                    throw new TransferNotCompletedException(TRANSFER_CAN_NOT_BE_PERFORM);
+                }
+                acquiredLocks.add(lock);
+            }
+
+            Map<String, BigDecimal> netDeltas = netBalanceDeltas(pendingTransfers);
+            if (isSolvent(netDeltas, accounts)) {
+                netDeltas.forEach((accountId, delta) -> {
+                    Account account = accounts.get(accountId);
+                    account.setBalance(account.getBalance().add(delta));
+                });
+                pendingTransfers.forEach(transfer -> {
+                    postToLedger(transfer.getTransfer(), transfer.getId());
+                    updateStatus(transfer, Status.COMPLETED);
+                });
+            } else {
+                log.info("net result of batch is not solvent, applying {} transfers in order", pendingTransfers.size());
+                pendingTransfers.forEach(transfer -> executeTransferInBatch(transfer, accounts));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pendingTransfers.forEach(transfer -> updateStatus(transfer, Status.ERROR));
+            throw new TransferNotCompletedException(TRANSFER_CAN_NOT_BE_PERFORM);
+        } finally {
+            acquiredLocks.forEach(Lock::unlock);
+        }
+
+        pendingTransfers.stream()
+                .filter(transfer -> transfer.getStatus().equals(Status.COMPLETED))
+                .forEach(transfer -> notifyTransfer(
+                        accounts.get(transfer.getTransfer().getAccountFromId()),
+                        accounts.get(transfer.getTransfer().getAccountToId())));
+
+        log.info("batch of {} transfers ended", transferRequests.size());
+        return transfers;
+    }
+
+    /**
+     * Take the amount out of a single account under its lock, used for the origin side of a transfer whose
+     * <br /> destination lives on another node. Nothing is recorded into the Ledger, the caller posts it once decided.
+     *
+     * @param accountId the account to be debited
+     * @param amount the amount to take
+     * @param deadline the {@link System#nanoTime()} after which it gives up waiting for the lock
+     * @exception AccountNotFoundException when the account is not found
+     * @exception InsufficientAmountException when the account has not enough balance
+     * @exception TransferNotCompletedException when the lock is not acquired before the deadline
+     * */
+    public void withdraw(String accountId, BigDecimal amount, long deadline) {
+        final Account account = getAccount(accountId);
+        if (account == null) {
+            throw new AccountNotFoundException("Account " + accountId + " does not exist");
+        }
+
+        ReentrantLock lock = getAccountLock(account);
+        try {
+            if (!tryLock(lock, deadline)) {
                 throw new TransferNotCompletedException(TRANSFER_CAN_NOT_BE_PERFORM);
             }
         } catch (InterruptedException e) {
-            markTransferAsError(transferId);
+            Thread.currentThread().interrupt();
             throw new TransferNotCompletedException(TRANSFER_CAN_NOT_BE_PERFORM);
+        }
+        try {
+            if (account.getBalance().subtract(amount).compareTo(ZERO_VALUE) < 0) {
+                throw new InsufficientAmountException(INSUFFICIENT_AMOUNT);
+            }
+            account.setBalance(account.getBalance().subtract(amount));
         } finally {
-            fromLock.unlock();
+            lock.unlock();
         }
+    }
 
-        if(transfer.getStatus().equals(Status.COMPLETED)) {
-            notifyTransfer(originAccount, destinationAccount);
+    /**
+     * Add the amount to a single account under its lock. Money already taken from somewhere else can not be
+     * <br /> lost, so it waits for the lock without deadline.
+     *
+     * @param accountId the account to be credited
+     * @param amount the amount to add
+     * @exception AccountNotFoundException when the account is not found
+     * */
+    public void deposit(String accountId, BigDecimal amount) {
+        final Account account = getAccount(accountId);
+        if (account == null) {
+            throw new AccountNotFoundException("Account " + accountId + " does not exist");
         }
 
-        log.info("transfer between {} and {} with amount {} ended",
-                transferRequest.getAccountFromId(),
-                transferRequest.getAccountToId(),
-                transferRequest.getAmountTransfer());
+        ReentrantLock lock = getAccountLock(account);
+        lock.lock();
+        try {
+            account.setBalance(account.getBalance().add(amount));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Compute the deadline for a transfer from the time budget left to the client, never longer than
+     * <br /> the configured lock timeout.
+     *
+     * @param requestTimeoutMs the milliseconds the client is still willing to wait, null when not sent
+     * @return long the {@link System#nanoTime()} after which the transfer gives up waiting for locks
+     */
+    public long deadlineAfter(Long requestTimeoutMs) {
+        long timeoutMs = requestTimeoutMs == null ? this.lockTimeoutMs : Math.min(requestTimeoutMs, this.lockTimeoutMs);
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(timeoutMs, 0));
+    }
+
+    /**
+     * Try to acquire the lock until the deadline. In adaptive mode gives up straight away when there are
+     * <br /> more transfers queued on the lock than the configured maximum, since waiting would only make
+     * <br /> the queue longer.
+     * @param lock
+     * @param deadline
+     * @return boolean true when the lock has been acquired
+     * @throws InterruptedException
+     */
+    private boolean tryLock(ReentrantLock lock, long deadline) throws InterruptedException {
+        if (this.adaptiveLocking && lock.getQueueLength() > this.maxLockQueueLength) {
+            log.info("failing fast, {} transfers already waiting for the account lock", lock.getQueueLength());
+            return false;
+        }
+        return lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Collapse the transfers received by parameter into the net balance change of every account involved.
+     * @param transfers
+     * @return Map<String, BigDecimal>
+     */
+    private Map<String, BigDecimal> netBalanceDeltas(List<Transfer> transfers) {
+        Map<String, BigDecimal> netDeltas = new HashMap<>();
+        for (Transfer transfer : transfers) {
+            TransferRequest transferRequest = transfer.getTransfer();
+            netDeltas.merge(transferRequest.getAccountFromId(), transferRequest.getAmountTransfer().negate(), BigDecimal::add);
+            netDeltas.merge(transferRequest.getAccountToId(), transferRequest.getAmountTransfer(), BigDecimal::add);
+        }
+        return netDeltas;
+    }
+
+    /**
+     * Check that no account ends below zero once its net balance delta is applied.
+     * @param netDeltas
+     * @param accounts
+     * @return boolean
+     */
+    private boolean isSolvent(Map<String, BigDecimal> netDeltas, Map<String, Account> accounts) {
+        return netDeltas.entrySet().stream()
+                .allMatch(netDelta -> accounts.get(netDelta.getKey()).getBalance()
+                        .add(netDelta.getValue()).compareTo(ZERO_VALUE) >= 0);
+    }
+
+    /**
+     * Perform a single transfer of a batch whose accounts are already locked, marking it as Completed or Error.
+     * @param transfer
+     * @param accounts
+     */
+    private void executeTransferInBatch(Transfer transfer, Map<String, Account> accounts) {
+        try {
+            executeTransfer(transfer.getTransfer(),
+                    accounts.get(transfer.getTransfer().getAccountFromId()),
+                    accounts.get(transfer.getTransfer().getAccountToId()),
+                    transfer.getId());
+            updateStatus(transfer, Status.COMPLETED);
+        } catch (InsufficientAmountException e) {
+            updateStatus(transfer, Status.ERROR);
+            log.info("transfer {} of batch has insufficient amount", transfer.getId());
+        }
     }
 
     /**
@@ -109,18 +383,27 @@ public class TransferService {
      * @param transferId
      */
     private void markTransferAsError(String transferId) {
-        this.transferRepository.getTransfer(transferId).setStatus(Status.ERROR);
+        this.transferRepository.updateStatus(transferId, Status.ERROR);
+    }
+
+    /**
+     * Record the status of a transfer of a batch both into TransferRepository and into the copy returned to the caller.
+     * @param transfer
+     * @param status
+     */
+    private void updateStatus(Transfer transfer, Status status) {
+        transfer.setStatus(status);
+        this.transferRepository.updateStatus(transfer.getId(), status);
     }
 
     /**
      * Add into transferLocks map the account received by parameter using the account id as key and the lock as value.
      * Then return the lock for this account.
      * @param account
-     * @return Lock
+     * @return ReentrantLock
      */
-    private Lock getAccountLock(Account account) {
-        this.transferLocks.putIfAbsent(account.getAccountId(), new ReentrantLock());
-        return transferLocks.get(account.getAccountId());
+    private ReentrantLock getAccountLock(Account account) {
+        return this.transferLocks.computeIfAbsent(account.getAccountId(), accountId -> new ReentrantLock());
     }
 
     /**
@@ -158,10 +441,22 @@ public class TransferService {
         if (originAccount.getBalance().subtract(transferRequest.getAmountTransfer()).compareTo(ZERO_VALUE) >= 0) {
             originAccount.setBalance(originAccount.getBalance().subtract(transferRequest.getAmountTransfer()));
             destinationAccount.setBalance(destinationAccount.getBalance().add(transferRequest.getAmountTransfer()));
+            postToLedger(transferRequest, transferInRepoId);
         } else {
-            markTransferAsError(transferInRepoId);
             throw new InsufficientAmountException(INSUFFICIENT_AMOUNT);
         }
     }
 
+    /**
+     * Record the debit and credit of a transfer already applied to the balances into the Ledger.
+     * @param transferRequest
+     * @param transferInRepoId
+     */
+    private void postToLedger(TransferRequest transferRequest, String transferInRepoId) {
+        this.ledger.post(transferInRepoId,
+                transferRequest.getAccountFromId(),
+                transferRequest.getAccountToId(),
+                transferRequest.getAmountTransfer());
+    }
+
 }
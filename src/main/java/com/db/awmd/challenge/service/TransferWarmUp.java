@@ -0,0 +1,217 @@
+package com.db.awmd.challenge.service;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferBatchRequest;
+import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.ledger.Ledger;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.TransferRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggerConfiguration;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.boot.web.context.WebServerGracefulShutdownLifecycle;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a synthetic workload before the web server starts, so the first real transfers find the JSON binding,
+ * <br /> the validation and the transfer paths already loaded and compiled instead of interpreted. Transfers go through
+ * <br /> {@link TransferService}, {@link TransferService#makeTransfers(List, long)} and {@link TransferRoundScheduler}
+ * <br /> between accounts of its own, then the accounts, transfers and Ledger are emptied again. Only runs on a node
+ * <br /> starting empty and not replicating, where nothing but the warm-up can have been recorded yet. The application
+ * <br /> loggers are raised to WARN meanwhile, so its transfers and their notifications do not flood the log.
+ */
+@Component
+@ConditionalOnProperty(name = "warmup.enabled", havingValue = "true")
+@Slf4j
+public class TransferWarmUp implements SmartLifecycle {
+
+    private static final String WARM_UP_ACCOUNT = "warmup:";
+
+    private static final int BATCH_SIZE = 10;
+
+    private static final String APPLICATION_LOGGER = "com.db.awmd.challenge";
+
+    private final TransferService transferService;
+
+    private final TransferRoundScheduler transferRoundScheduler;
+
+    private final AccountsRepository accountsRepository;
+
+    private final TransferRepository transferRepository;
+
+    private final Ledger ledger;
+
+    private final ObjectMapper objectMapper;
+
+    private final Validator validator;
+
+    private final LoggingSystem loggingSystem;
+
+    private final int accounts;
+
+    private final int transfers;
+
+    private final long maxDurationMs;
+
+    private final String replicationRole;
+
+    private volatile boolean running;
+
+    private volatile int executedTransfers;
+
+    @Autowired
+    public TransferWarmUp(TransferService transferService,
+                          TransferRoundScheduler transferRoundScheduler,
+                          AccountsRepository accountsRepository,
+                          TransferRepository transferRepository,
+                          Ledger ledger,
+                          ObjectMapper objectMapper,
+                          Validator validator,
+                          LoggingSystem loggingSystem,
+                          @Value("${warmup.accounts:100}") int accounts,
+                          @Value("${warmup.transfers:20000}") int transfers,
+                          @Value("${warmup.max-duration-ms:15000}") long maxDurationMs,
+                          @Value("${replication.role:none}") String replicationRole) {
+        this.transferService = transferService;
+        this.transferRoundScheduler = transferRoundScheduler;
+        this.accountsRepository = accountsRepository;
+        this.transferRepository = transferRepository;
+        this.ledger = ledger;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.loggingSystem = loggingSystem;
+        this.accounts = accounts;
+        this.transfers = transfers;
+        this.maxDurationMs = maxDurationMs;
+        this.replicationRole = replicationRole;
+    }
+
+    /**
+     * 1024 phases below the lifecycle starting the web server, itself 1024 below its graceful shutdown, so the
+     * <br /> server only listens once the warm-up is over.
+     */
+    @Override
+    public int getPhase() {
+        return WebServerGracefulShutdownLifecycle.SMART_LIFECYCLE_PHASE - 2048;
+    }
+
+    /**
+     * @return int the number of transfers run by the last warm-up, 0 when it was skipped
+     */
+    public int getExecutedTransfers() {
+        return this.executedTransfers;
+    }
+
+    @Override
+    public void start() {
+        this.running = true;
+        if (!this.replicationRole.isEmpty() && !this.replicationRole.equals("none")) {
+            log.warn("warm-up skipped, its Ledger entries would be replicated");
+            return;
+        }
+        if (!this.accountsRepository.getAccounts().isEmpty() || this.ledger.size() > 0) {
+            log.warn("warm-up skipped, accounts were created before it");
+            return;
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(this.maxDurationMs);
+        int executed = 0;
+        LoggerConfiguration loggerConfiguration = this.loggingSystem.getLoggerConfiguration(APPLICATION_LOGGER);
+        this.loggingSystem.setLogLevel(APPLICATION_LOGGER, LogLevel.WARN);
+        try {
+            createAccounts();
+            executed = transfer(deadline);
+        } catch (IOException e) {
+            log.error("warm-up stopped", e);
+        } finally {
+            this.loggingSystem.setLogLevel(APPLICATION_LOGGER,
+                    loggerConfiguration == null ? null : loggerConfiguration.getConfiguredLevel());
+            this.transferRepository.clearTransfers();
+            this.accountsRepository.clearAccounts();
+            this.ledger.clear();
+        }
+        this.executedTransfers = executed;
+        log.info("warm-up of {} transfers took {} ms", executed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Override
+    public void stop() {
+        this.running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return this.running;
+    }
+
+    private void createAccounts() throws IOException {
+        for (int account = 0; account < this.accounts; account++) {
+            byte[] json = ("{\"accountId\":\"" + WARM_UP_ACCOUNT + account + "\",\"balance\":1000}").getBytes(StandardCharsets.UTF_8);
+            Account parsed = this.objectMapper.readValue(json, Account.class);
+            this.validator.validate(parsed);
+            this.accountsRepository.createAccount(parsed);
+        }
+    }
+
+    /**
+     * Random transfers bound from and to JSON like the HTTP API does: most one at a time, some as batches, netted
+     * <br /> or in parallel rounds, some too large to succeed.
+     * @return int the number of transfers executed before the deadline
+     */
+    private int transfer(long deadline) throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        List<TransferRequest> batch = new ArrayList<>(BATCH_SIZE);
+        int executed = 0;
+        int batches = 0;
+        while (executed < this.transfers && System.nanoTime() < deadline) {
+            String amount = random.nextInt(20) == 0 ? "5000" : (1 + random.nextInt(999)) + "." + random.nextInt(10) + random.nextInt(10);
+            byte[] json = ("{\"from\":\"" + WARM_UP_ACCOUNT + random.nextInt(this.accounts)
+                    + "\",\"to\":\"" + WARM_UP_ACCOUNT + random.nextInt(this.accounts)
+                    + "\",\"amount\":" + amount + "}").getBytes(StandardCharsets.UTF_8);
+            TransferRequest transferRequest = this.objectMapper.readValue(json, TransferRequest.class);
+            this.validator.validate(transferRequest);
+            executed++;
+
+            if (executed % 8 != 0) {
+                try {
+                    this.transferService.makeTransfer(transferRequest);
+                } catch (RuntimeException e) {
+                    // Insufficient amount, expected for the large transfers
+                }
+                continue;
+            }
+            batch.add(transferRequest);
+            if (batch.size() == BATCH_SIZE) {
+                TransferBatchRequest transferBatchRequest = new TransferBatchRequest().setTransfers(batch);
+                this.validator.validate(transferBatchRequest);
+                try {
+                    List<Transfer> batchTransfers = batches++ % 2 == 0
+                            ? this.transferRoundScheduler.makeTransfers(batch, this.transferService.deadlineAfter(null))
+                            : this.transferService.makeTransfers(batch);
+                    this.objectMapper.writeValueAsBytes(batchTransfers);
+                } catch (RuntimeException e) {
+                    // Lock timeout of a netted batch
+                }
+                batch = new ArrayList<>(BATCH_SIZE);
+            }
+        }
+        this.objectMapper.writeValueAsBytes(this.accountsRepository.getAccounts());
+        return executed;
+    }
+}
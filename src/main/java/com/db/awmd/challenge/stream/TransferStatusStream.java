@@ -0,0 +1,310 @@
+package com.db.awmd.challenge.stream;
+
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferStatusEvent;
+import com.db.awmd.challenge.repository.TransferStatusListener;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Pushes the status changes of transfers to the clients subscribed to an account, or to every account, as
+ * <br /> server-sent events. The thread recording a status only numbers the change and queues it, and nothing at all
+ * <br /> while nobody is subscribed; a single dispatcher thread fans the changes out to the subscribers of their two
+ * <br /> accounts, and each subscriber is written by its own virtual thread so a slow client only delays itself.
+ * <br /> A subscriber whose buffer overflows, or missing changes dropped from the full queue, gets a resync event
+ * <br /> carrying the number of the last change written to it: it replays the changes after it from the bounded
+ * <br /> history of the last changes numbered ({@link #changesAfter(String, long)}) and follows the stream again.
+ */
+@Component
+@Slf4j
+public class TransferStatusStream implements TransferStatusListener {
+
+    public static final String STATUS_EVENT = "status";
+
+    public static final String RESYNC_EVENT = "resync";
+
+    private final BlockingQueue<TransferStatusEvent> changes;
+
+    private final int bufferSize;
+
+    private final long timeoutMs;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /** The last changes numbered, the change n at the index n modulo the length */
+    private final AtomicReferenceArray<TransferStatusEvent> history;
+
+    private final AtomicBoolean changesDropped = new AtomicBoolean();
+
+    private final Set<Subscriber> allAccountsSubscribers = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, Set<Subscriber>> accountSubscribers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    private Thread dispatcher;
+
+    @Autowired
+    public TransferStatusStream(@Value("${transfer.stream.queue-capacity:65536}") int queueCapacity,
+                                @Value("${transfer.stream.buffer-size:256}") int bufferSize,
+                                @Value("${transfer.stream.timeout-ms:1800000}") long timeoutMs,
+                                @Value("${transfer.stream.history-size:65536}") int historySize) {
+        this.changes = new ArrayBlockingQueue<>(queueCapacity);
+        this.history = new AtomicReferenceArray<>(historySize);
+        this.bufferSize = bufferSize;
+        this.timeoutMs = timeoutMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        this.dispatcher = Thread.ofPlatform().daemon().name("transfer-status-dispatcher").start(this::dispatch);
+    }
+
+    @PreDestroy
+    public void stop() {
+        this.dispatcher.interrupt();
+        this.senders.shutdownNow();
+        this.allAccountsSubscribers.forEach(subscriber -> subscriber.emitter.complete());
+        this.accountSubscribers.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    @Override
+    public boolean isListening() {
+        return this.subscriberCount.get() > 0;
+    }
+
+    @Override
+    public void statusChanged(Transfer transfer) {
+        TransferStatusEvent change = new TransferStatusEvent()
+                .setSequence(this.sequence.incrementAndGet())
+                .setTransferId(transfer.getId())
+                .setAccountFromId(transfer.getTransfer().getAccountFromId())
+                .setAccountToId(transfer.getTransfer().getAccountToId())
+                .setAmount(transfer.getTransfer().getAmountTransfer())
+                .setStatus(transfer.getStatus());
+        this.history.set((int) (change.getSequence() % this.history.length()), change);
+        if (!this.changes.offer(change)) {
+            this.changesDropped.set(true);
+        }
+    }
+
+    /**
+     * Subscribe to the status changes of the transfers from or to an account.
+     * @param accountId null to follow every account
+     * @return SseEmitter the stream of the changes
+     */
+    public SseEmitter subscribe(String accountId) {
+        return subscribe(accountId, new SseEmitter(this.timeoutMs));
+    }
+
+    /**
+     * Same as {@link #subscribe(String)}, writing the changes into the given emitter.
+     * @param accountId null to follow every account
+     * @param emitter
+     * @return SseEmitter the given emitter
+     */
+    public SseEmitter subscribe(String accountId, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(accountId, emitter);
+        if (accountId == null) {
+            this.allAccountsSubscribers.add(subscriber);
+        } else {
+            this.accountSubscribers.compute(accountId, (id, subscribers) -> {
+                Set<Subscriber> accountSubscribers = subscribers == null ? ConcurrentHashMap.newKeySet() : subscribers;
+                accountSubscribers.add(subscriber);
+                return accountSubscribers;
+            });
+        }
+        this.subscriberCount.incrementAndGet();
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        log.info("subscriber of {} added, {} subscribers", accountId == null ? "every account" : accountId,
+                this.subscriberCount.get());
+        return emitter;
+    }
+
+    /**
+     * The changes numbered after the one given, for a subscriber replaying what a resync event made it miss.
+     * <br /> A change being numbered while reading may be missing, it is on its way to the stream.
+     * @param accountId null for every account
+     * @param after the number carried by the resync event
+     * @return List<TransferStatusEvent> the changes in order, null when the history no longer holds them all
+     */
+    public List<TransferStatusEvent> changesAfter(String accountId, long after) {
+        long last = this.sequence.get();
+        if (after < 0 || after > last) {
+            throw new IllegalArgumentException("No change " + after + ", the last change is " + last);
+        }
+        if (last - after > this.history.length()) {
+            return null;
+        }
+        List<TransferStatusEvent> changes = new ArrayList<>();
+        for (long number = after + 1; number <= last; number++) {
+            TransferStatusEvent change = this.history.get((int) (number % this.history.length()));
+            if (change == null || change.getSequence() < number) {
+                continue;
+            }
+            if (change.getSequence() > number) {
+                // Overwritten while reading
+                return null;
+            }
+            if (accountId == null || accountId.equals(change.getAccountFromId()) || accountId.equals(change.getAccountToId())) {
+                changes.add(change);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * @return int the number of open subscriptions
+     */
+    public int getSubscriberCount() {
+        return this.subscriberCount.get();
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        boolean removed;
+        if (subscriber.accountId == null) {
+            removed = this.allAccountsSubscribers.remove(subscriber);
+        } else {
+            AtomicBoolean removedFromAccount = new AtomicBoolean();
+            this.accountSubscribers.computeIfPresent(subscriber.accountId, (id, subscribers) -> {
+                removedFromAccount.set(subscribers.remove(subscriber));
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+            removed = removedFromAccount.get();
+        }
+        if (removed) {
+            this.subscriberCount.decrementAndGet();
+        }
+    }
+
+    private void dispatch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                TransferStatusEvent change = this.changes.poll(1, TimeUnit.SECONDS);
+                if (this.changesDropped.getAndSet(false)) {
+                    log.warn("transfer status changes dropped, every subscriber resyncs");
+                    this.allAccountsSubscribers.forEach(Subscriber::resync);
+                    this.accountSubscribers.values().forEach(subscribers -> subscribers.forEach(Subscriber::resync));
+                }
+                if (change != null) {
+                    deliver(this.allAccountsSubscribers, change);
+                    deliver(this.accountSubscribers.get(change.getAccountFromId()), change);
+                    if (!change.getAccountToId().equals(change.getAccountFromId())) {
+                        deliver(this.accountSubscribers.get(change.getAccountToId()), change);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.error("error dispatching transfer status changes", e);
+            }
+        }
+    }
+
+    private static void deliver(Set<Subscriber> subscribers, TransferStatusEvent change) {
+        if (subscribers != null) {
+            subscribers.forEach(subscriber -> subscriber.offer(change));
+        }
+    }
+
+    /**
+     * A client following the stream, with the changes not written to it yet.
+     */
+    private final class Subscriber {
+
+        private final String accountId;
+
+        private final SseEmitter emitter;
+
+        private final BlockingQueue<TransferStatusEvent> buffer = new ArrayBlockingQueue<>(TransferStatusStream.this.bufferSize);
+
+        private final AtomicBoolean resyncNeeded = new AtomicBoolean();
+
+        private final AtomicBoolean sending = new AtomicBoolean();
+
+        /** Number of the last change written, or of the last one numbered when subscribing */
+        private long lastSent;
+
+        private Subscriber(String accountId, SseEmitter emitter) {
+            this.accountId = accountId;
+            this.emitter = emitter;
+            this.lastSent = TransferStatusStream.this.sequence.get();
+        }
+
+        private void offer(TransferStatusEvent change) {
+            if (!this.buffer.offer(change)) {
+                this.resyncNeeded.set(true);
+            }
+            scheduleSend();
+        }
+
+        private void resync() {
+            this.resyncNeeded.set(true);
+            scheduleSend();
+        }
+
+        /**
+         * Start a sender unless one is already writing, at most one thread writes to the emitter at a time.
+         */
+        private void scheduleSend() {
+            if (this.sending.compareAndSet(false, true)) {
+                try {
+                    TransferStatusStream.this.senders.execute(this::send);
+                } catch (RejectedExecutionException e) {
+                    this.sending.set(false);
+                }
+            }
+        }
+
+        private void send() {
+            try {
+                do {
+                    if (this.resyncNeeded.getAndSet(false)) {
+                        // What is buffered has a gap before it, the client replays the changes after the last one written
+                        this.buffer.clear();
+                        this.emitter.send(SseEmitter.event().name(RESYNC_EVENT).data(this.lastSent));
+                    }
+                    TransferStatusEvent change;
+                    while (!this.resyncNeeded.get() && (change = this.buffer.poll()) != null) {
+                        this.emitter.send(SseEmitter.event()
+                                .id(Long.toString(change.getSequence()))
+                                .name(STATUS_EVENT)
+                                .data(change));
+                        this.lastSent = change.getSequence();
+                    }
+                    this.sending.set(false);
+                } while ((!this.buffer.isEmpty() || this.resyncNeeded.get()) && this.sending.compareAndSet(false, true));
+            } catch (IOException | IllegalStateException e) {
+                log.info("subscriber of {} gone: {}", this.accountId == null ? "every account" : this.accountId, e.getMessage());
+                unsubscribe(this);
+                this.emitter.completeWithError(e);
+            }
+        }
+    }
+}
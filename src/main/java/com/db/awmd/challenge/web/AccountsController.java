@@ -1,17 +1,39 @@
 package com.db.awmd.challenge.web;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountBalance;
+import com.db.awmd.challenge.domain.AccountImportResult;
+import com.db.awmd.challenge.domain.LedgerEntry;
+import com.db.awmd.challenge.domain.ScheduledTransferRequest;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferBatchRequest;
 import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.enums.AccountImportFormat;
 import com.db.awmd.challenge.exception.AccountNotFoundException;
 import com.db.awmd.challenge.exception.DuplicateAccountIdException;
 import com.db.awmd.challenge.exception.InsufficientAmountException;
 import com.db.awmd.challenge.exception.TransferNotCompletedException;
+import com.db.awmd.challenge.exception.TransferRateLimitedException;
+import com.db.awmd.challenge.partition.PartitionRouter;
+import com.db.awmd.challenge.pipeline.TransferPipeline;
+import com.db.awmd.challenge.service.AccountImportService;
 import com.db.awmd.challenge.service.AccountsService;
-import javax.validation.Valid;
+import com.db.awmd.challenge.service.PartitionedTransferService;
+import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
 
+import com.db.awmd.challenge.service.TransferAdmissionControl;
+import com.db.awmd.challenge.service.TransferRoundScheduler;
+import com.db.awmd.challenge.service.TransferScheduler;
 import com.db.awmd.challenge.service.TransferService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -19,7 +41,9 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -27,19 +51,50 @@ import org.springframework.web.bind.annotation.RestController;
 @Slf4j
 public class AccountsController {
 
+  /** Milliseconds the client is still willing to wait for the transfer */
+  public static final String REQUEST_TIMEOUT_HEADER = "X-Request-Timeout";
+
+  public static final String REQUEST_TIMEOUT_EXPIRED = "Request timeout expired";
+
   private final AccountsService accountsService;
   private final TransferService transferService;
+  /** Null on a replica */
+  private final TransferScheduler transferScheduler;
+  private final TransferRoundScheduler transferRoundScheduler;
+  private final TransferAdmissionControl transferAdmissionControl;
+  private final AccountImportService accountImportService;
+  private final PartitionedTransferService partitionedTransferService;
+  private final PartitionRouter partitionRouter;
+  /** Null unless transfer.pipeline.enabled */
+  private final TransferPipeline transferPipeline;
 
   @Autowired
   public AccountsController(AccountsService accountsService,
-          TransferService transferService) {
+          TransferService transferService,
+          Optional<TransferScheduler> transferScheduler,
+          TransferRoundScheduler transferRoundScheduler,
+          TransferAdmissionControl transferAdmissionControl,
+          AccountImportService accountImportService,
+          PartitionedTransferService partitionedTransferService,
+          PartitionRouter partitionRouter,
+          Optional<TransferPipeline> transferPipeline) {
     this.accountsService = accountsService;
     this.transferService = transferService;
+    this.transferScheduler = transferScheduler.orElse(null);
+    this.transferRoundScheduler = transferRoundScheduler;
+    this.transferAdmissionControl = transferAdmissionControl;
+    this.accountImportService = accountImportService;
+    this.partitionedTransferService = partitionedTransferService;
+    this.partitionRouter = partitionRouter;
+    this.transferPipeline = transferPipeline.orElse(null);
   }
 
   @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
   public ResponseEntity<Object> createAccount(@RequestBody @Valid Account account) {
     log.info("Creating account {}", account);
+    if (!this.partitionRouter.isLocal(account.getAccountId())) {
+      return redirectToOwner(account.getAccountId(), "");
+    }
 
     try {
       this.accountsService.createAccount(account);
@@ -50,19 +105,74 @@ public class AccountsController {
     return new ResponseEntity<>(HttpStatus.CREATED);
   }
 
+  @PostMapping(path = "/import", consumes = "text/csv")
+  public AccountImportResult importAccountsCsv(InputStream accounts) throws IOException {
+    log.info("Importing accounts from CSV");
+    return this.accountImportService.importAccounts(accounts, AccountImportFormat.CSV);
+  }
+
+  @PostMapping(path = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+  public AccountImportResult importAccountsNdjson(InputStream accounts) throws IOException {
+    log.info("Importing accounts from NDJSON");
+    return this.accountImportService.importAccounts(accounts, AccountImportFormat.NDJSON);
+  }
+
   @GetMapping(path = "/{accountId}")
-  public Account getAccount(@PathVariable String accountId) {
+  public ResponseEntity<Account> getAccount(@PathVariable String accountId) {
     log.info("Retrieving account for id {}", accountId);
-    return this.accountsService.getAccount(accountId);
+    if (!this.partitionRouter.isLocal(accountId)) {
+      return redirectToOwner(accountId, "/" + accountId);
+    }
+    return ResponseEntity.ok(this.accountsService.getAccount(accountId));
+  }
+
+  @GetMapping(path = "/{accountId}/balance")
+  public ResponseEntity<AccountBalance> getBalance(@PathVariable String accountId,
+          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant asOf) {
+    log.info("Retrieving balance for id {} as of {}", accountId, asOf);
+    if (!this.partitionRouter.isLocal(accountId)) {
+      return redirectToOwner(accountId, "/" + accountId + "/balance" + (asOf == null ? "" : "?asOf=" + asOf));
+    }
+    AccountBalance accountBalance = this.accountsService.getBalanceAt(accountId, asOf == null ? Instant.now() : asOf);
+    if (accountBalance == null) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    return new ResponseEntity<>(accountBalance, HttpStatus.OK);
+  }
+
+  @GetMapping(path = "/{accountId}/ledger")
+  public ResponseEntity<List<LedgerEntry>> getLedgerEntries(@PathVariable String accountId) {
+    log.info("Retrieving ledger entries for id {}", accountId);
+    if (!this.partitionRouter.isLocal(accountId)) {
+      return redirectToOwner(accountId, "/" + accountId + "/ledger");
+    }
+    return ResponseEntity.ok(this.accountsService.getLedgerEntries(accountId));
   }
 
   @PostMapping(path = "/transfer",
           consumes = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity transfer(@RequestBody @Valid TransferRequest transferRequest) {
+  public ResponseEntity transfer(@RequestBody @Valid TransferRequest transferRequest,
+          @RequestHeader(value = REQUEST_TIMEOUT_HEADER, required = false) Long requestTimeoutMs) {
     log.info("Transfer Request for {}", transferRequest);
+    if (isExpired(requestTimeoutMs)) {
+      return expired();
+    }
+    if (!this.partitionRouter.isLocal(transferRequest.getAccountFromId())) {
+      return redirectToOwner(transferRequest.getAccountFromId(), "/transfer");
+    }
     try {
-      transferService.makeTransfer(transferRequest);
+      transferAdmissionControl.admit(transferRequest);
+      long deadline = transferService.deadlineAfter(requestTimeoutMs);
+      if (this.transferPipeline != null && this.partitionRouter.isLocal(transferRequest.getAccountToId())) {
+        this.transferPipeline.execute(transferRequest, deadline);
+      } else {
+        partitionedTransferService.makeTransfer(transferRequest, deadline);
+      }
       return new ResponseEntity(HttpStatus.OK);
+    } catch (TransferRateLimitedException e) {
+      return ResponseEntity
+              .status(HttpStatus.TOO_MANY_REQUESTS)
+              .body(e.getMessage());
     } catch (InsufficientAmountException | AccountNotFoundException | TransferNotCompletedException e) {
       log.info("Transfer Request error for {}", transferRequest);
       return ResponseEntity
@@ -72,4 +182,85 @@ public class AccountsController {
 
   }
 
+  @PostMapping(path = "/transfer/batch",
+          consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity transferBatch(@RequestBody @Valid TransferBatchRequest transferBatchRequest,
+          @RequestHeader(value = REQUEST_TIMEOUT_HEADER, required = false) Long requestTimeoutMs) {
+    log.info("Transfer batch Request with {} transfers", transferBatchRequest.getTransfers().size());
+    if (isExpired(requestTimeoutMs)) {
+      return expired();
+    }
+    try {
+      List<Transfer> transfers = transferService.makeTransfers(transferBatchRequest.getTransfers(),
+              transferService.deadlineAfter(requestTimeoutMs));
+      return new ResponseEntity<>(transfers, HttpStatus.OK);
+    } catch (TransferNotCompletedException e) {
+      log.info("Transfer batch Request error with {} transfers", transferBatchRequest.getTransfers().size());
+      return ResponseEntity
+              .status(HttpStatus.BAD_REQUEST)
+              .body(e.getMessage());
+    }
+  }
+
+  /**
+   * Execute the transfers of the batch in parallel, each one on its own instead of netted, those sharing an account
+   * <br /> in the order of the batch.
+   * @param transferBatchRequest
+   * @param requestTimeoutMs
+   * @return ResponseEntity
+   */
+  @PostMapping(path = "/transfer/batch/parallel",
+          consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> transferBatchInParallel(@RequestBody @Valid TransferBatchRequest transferBatchRequest,
+          @RequestHeader(value = REQUEST_TIMEOUT_HEADER, required = false) Long requestTimeoutMs) {
+    log.info("Parallel transfer batch Request with {} transfers", transferBatchRequest.getTransfers().size());
+    if (isExpired(requestTimeoutMs)) {
+      return expired();
+    }
+    List<Transfer> transfers = transferRoundScheduler.makeTransfers(transferBatchRequest.getTransfers(),
+            transferService.deadlineAfter(requestTimeoutMs));
+    return new ResponseEntity<>(transfers, HttpStatus.OK);
+  }
+
+  @PostMapping(path = "/transfer/scheduled",
+          consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> scheduleTransfer(
+          @RequestBody @Valid ScheduledTransferRequest scheduledTransferRequest) {
+    log.info("Scheduled Transfer Request for {}", scheduledTransferRequest);
+    if (this.transferScheduler == null) {
+      return new ResponseEntity<>(HttpStatus.FORBIDDEN);
+    }
+    String scheduledTransferId = transferScheduler.scheduleTransfer(scheduledTransferRequest);
+    return new ResponseEntity<>(scheduledTransferId, HttpStatus.ACCEPTED);
+  }
+
+  /**
+   * A client sending no time left has already given up, the request is refused before taking any lock.
+   * @param requestTimeoutMs
+   * @return boolean
+   */
+  private static boolean isExpired(Long requestTimeoutMs) {
+    return requestTimeoutMs != null && requestTimeoutMs <= 0;
+  }
+
+  private static ResponseEntity<Object> expired() {
+    log.info("Transfer Request refused, {}", REQUEST_TIMEOUT_EXPIRED);
+    return ResponseEntity
+            .status(HttpStatus.BAD_REQUEST)
+            .body(REQUEST_TIMEOUT_EXPIRED);
+  }
+
+  /**
+   * Send the client to the node owning the account, keeping the method and body of the request.
+   * @param accountId
+   * @param path
+   * @return ResponseEntity
+   */
+  private <T> ResponseEntity<T> redirectToOwner(String accountId, String path) {
+    return ResponseEntity
+            .status(HttpStatus.TEMPORARY_REDIRECT)
+            .location(URI.create(this.partitionRouter.ownerOf(accountId) + "/v1/accounts" + path))
+            .build();
+  }
+
 }
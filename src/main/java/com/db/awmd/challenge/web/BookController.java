@@ -0,0 +1,28 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.BookSummary;
+import com.db.awmd.challenge.service.BookAggregationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/v1/book")
+@Slf4j
+public class BookController {
+
+  private final BookAggregationService bookAggregationService;
+
+  @Autowired
+  public BookController(BookAggregationService bookAggregationService) {
+    this.bookAggregationService = bookAggregationService;
+  }
+
+  @GetMapping(path = "/summary")
+  public BookSummary getSummary() {
+    log.info("Retrieving book summary");
+    return this.bookAggregationService.summarize();
+  }
+}
@@ -0,0 +1,86 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.Hold;
+import com.db.awmd.challenge.domain.HoldCaptureRequest;
+import com.db.awmd.challenge.domain.HoldRequest;
+import com.db.awmd.challenge.exception.AccountNotFoundException;
+import com.db.awmd.challenge.exception.HoldNotActiveException;
+import com.db.awmd.challenge.exception.InsufficientAmountException;
+import com.db.awmd.challenge.exception.TransferNotCompletedException;
+import com.db.awmd.challenge.service.HoldService;
+import com.db.awmd.challenge.service.TransferService;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/v1/holds")
+@Slf4j
+public class HoldsController {
+
+  private final HoldService holdService;
+  private final TransferService transferService;
+
+  @Autowired
+  public HoldsController(HoldService holdService, TransferService transferService) {
+    this.holdService = holdService;
+    this.transferService = transferService;
+  }
+
+  @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> reserve(@RequestBody @Valid HoldRequest holdRequest,
+          @RequestHeader(value = AccountsController.REQUEST_TIMEOUT_HEADER, required = false) Long requestTimeoutMs) {
+    log.info("Hold Request for {}", holdRequest);
+    try {
+      Hold hold = this.holdService.reserve(holdRequest, this.transferService.deadlineAfter(requestTimeoutMs));
+      return new ResponseEntity<>(hold, HttpStatus.CREATED);
+    } catch (InsufficientAmountException | AccountNotFoundException | TransferNotCompletedException e) {
+      log.info("Hold Request error for {}", holdRequest);
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+  }
+
+  @GetMapping(path = "/{holdId}")
+  public ResponseEntity<Hold> getHold(@PathVariable String holdId) {
+    log.info("Retrieving hold for id {}", holdId);
+    Hold hold = this.holdService.getHold(holdId);
+    if (hold == null) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    return new ResponseEntity<>(hold, HttpStatus.OK);
+  }
+
+  @PostMapping(path = "/{holdId}/capture", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> capture(@PathVariable String holdId,
+          @RequestBody @Valid HoldCaptureRequest holdCaptureRequest) {
+    log.info("Capturing hold {} to {}", holdId, holdCaptureRequest.getAccountToId());
+    try {
+      return new ResponseEntity<>(this.holdService.capture(holdId, holdCaptureRequest.getAccountToId()), HttpStatus.OK);
+    } catch (AccountNotFoundException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    } catch (HoldNotActiveException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+    }
+  }
+
+  @PostMapping(path = "/{holdId}/release")
+  public ResponseEntity<Object> release(@PathVariable String holdId) {
+    log.info("Releasing hold {}", holdId);
+    try {
+      return new ResponseEntity<>(this.holdService.release(holdId), HttpStatus.OK);
+    } catch (HoldNotActiveException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+    }
+  }
+
+}
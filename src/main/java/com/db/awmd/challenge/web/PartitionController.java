@@ -0,0 +1,67 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.RemoteCredit;
+import com.db.awmd.challenge.enums.TransferDecision;
+import com.db.awmd.challenge.exception.AccountNotFoundException;
+import com.db.awmd.challenge.exception.UnknownNodeException;
+import com.db.awmd.challenge.service.PartitionedTransferService;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Two phase endpoints called between the nodes for the transfers crossing partitions. Only registered when
+ * <br /> partition.nodes is set, callers are authenticated by {@link com.db.awmd.challenge.config.PartitionAuthenticationConfiguration}.
+ */
+@RestController
+@RequestMapping("/v1/partition")
+@ConditionalOnProperty(name = "partition.nodes")
+@Slf4j
+public class PartitionController {
+
+  private final PartitionedTransferService partitionedTransferService;
+
+  @Autowired
+  public PartitionController(PartitionedTransferService partitionedTransferService) {
+    this.partitionedTransferService = partitionedTransferService;
+  }
+
+  @PostMapping(path = "/prepare", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> prepare(@RequestBody @Valid RemoteCredit remoteCredit) {
+    log.info("Preparing credit {}", remoteCredit);
+    try {
+      this.partitionedTransferService.prepare(remoteCredit);
+    } catch (AccountNotFoundException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+    } catch (UnknownNodeException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.FORBIDDEN);
+    }
+    return new ResponseEntity<>(HttpStatus.OK);
+  }
+
+  @PostMapping(path = "/transfers/{transferId}/commit")
+  public void commit(@PathVariable String transferId) {
+    this.partitionedTransferService.commit(transferId);
+  }
+
+  @PostMapping(path = "/transfers/{transferId}/abort")
+  public void abort(@PathVariable String transferId) {
+    this.partitionedTransferService.abort(transferId);
+  }
+
+  @GetMapping(path = "/transfers/{transferId}/decision")
+  public TransferDecision decision(@PathVariable String transferId) {
+    return this.partitionedTransferService.decision(transferId);
+  }
+
+}
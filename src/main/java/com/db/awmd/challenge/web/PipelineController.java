@@ -0,0 +1,31 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.PipelineStageStatus;
+import com.db.awmd.challenge.pipeline.TransferPipeline;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/v1/pipeline")
+@ConditionalOnProperty(name = "transfer.pipeline.enabled", havingValue = "true")
+@Slf4j
+public class PipelineController {
+
+  private final TransferPipeline transferPipeline;
+
+  @Autowired
+  public PipelineController(TransferPipeline transferPipeline) {
+    this.transferPipeline = transferPipeline;
+  }
+
+  @GetMapping(path = "/stages")
+  public List<PipelineStageStatus> getStages() {
+    return this.transferPipeline.getStages();
+  }
+}
@@ -0,0 +1,79 @@
+package com.db.awmd.challenge.web;
+
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferStatusEvent;
+import com.db.awmd.challenge.repository.TransferRepository;
+import com.db.awmd.challenge.stream.TransferStatusStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/v1/transfers")
+@Slf4j
+public class TransfersController {
+
+  private final TransferRepository transferRepository;
+  private final TransferStatusStream transferStatusStream;
+
+  @Autowired
+  public TransfersController(TransferRepository transferRepository, TransferStatusStream transferStatusStream) {
+    this.transferRepository = transferRepository;
+    this.transferStatusStream = transferStatusStream;
+  }
+
+  /**
+   * Stream the status changes of the transfers of an account, or of every account, as server-sent events.
+   * <br /> After a resync event the client replays the changes it missed with {@link #getChangesAfter(String, long)}.
+   * @param accountId
+   * @return SseEmitter
+   */
+  @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamStatusChanges(@RequestParam(required = false) String accountId) {
+    log.info("Streaming transfer status changes of {}", accountId == null ? "every account" : accountId);
+    return this.transferStatusStream.subscribe(accountId);
+  }
+
+  /**
+   * The status changes numbered after the one carried by a resync event, for an account or for every account.
+   * <br /> Gone when they are no longer all in the history, the client then reads its transfers back one by one.
+   * @param accountId
+   * @param after
+   * @return ResponseEntity<Object>
+   */
+  @GetMapping(path = "/stream/changes")
+  public ResponseEntity<Object> getChangesAfter(@RequestParam(required = false) String accountId,
+                                                @RequestParam long after) {
+    log.info("Replaying transfer status changes of {} after {}", accountId == null ? "every account" : accountId, after);
+    List<TransferStatusEvent> changes;
+    try {
+      changes = this.transferStatusStream.changesAfter(accountId, after);
+    } catch (IllegalArgumentException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+    if (changes == null) {
+      return new ResponseEntity<>(HttpStatus.GONE);
+    }
+    return new ResponseEntity<>(changes, HttpStatus.OK);
+  }
+
+  @GetMapping(path = "/{transferId}")
+  public ResponseEntity<Transfer> getTransfer(@PathVariable String transferId) {
+    log.info("Retrieving transfer for id {}", transferId);
+    Transfer transfer = this.transferRepository.getTransfer(transferId);
+    if (transfer == null) {
+      return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+    }
+    return new ResponseEntity<>(transfer, HttpStatus.OK);
+  }
+}
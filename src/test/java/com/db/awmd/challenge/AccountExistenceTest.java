@@ -0,0 +1,52 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.ledger.Ledger;
+import com.db.awmd.challenge.repository.AccountBloomFilter;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountExistenceTest {
+
+    private static final int ACCOUNTS = 10000;
+
+    @Test
+    public void bloomFilterHasNoFalseNegativesAndFewFalsePositives() {
+        AccountBloomFilter filter = new AccountBloomFilter(ACCOUNTS, 0.01);
+        for (int account = 0; account < ACCOUNTS; account++) {
+            filter.add("account-" + account);
+        }
+
+        int falsePositives = 0;
+        for (int account = 0; account < ACCOUNTS; account++) {
+            assertThat(filter.mightContain("account-" + account)).isTrue();
+            if (filter.mightContain("unknown-" + account)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(ACCOUNTS / 50);
+    }
+
+    @Test
+    public void unknownAccountExistsOnceCreated() {
+        AccountsRepositoryInMemory accountsRepository = new AccountsRepositoryInMemory(new Ledger(), 16, 16, 0.01, 4);
+
+        assertThat(accountsRepository.exists("Id-1")).isFalse();
+        assertThat(accountsRepository.exists("Id-1")).isFalse();
+
+        accountsRepository.createAccount(new Account("Id-1", new BigDecimal(10)));
+        assertThat(accountsRepository.exists("Id-1")).isTrue();
+
+        for (int account = 2; account < 20; account++) {
+            assertThat(accountsRepository.exists("Id-" + account)).isFalse();
+        }
+        assertThat(accountsRepository.exists("Id-1")).isTrue();
+
+        accountsRepository.clearAccounts();
+        assertThat(accountsRepository.exists("Id-1")).isFalse();
+    }
+}
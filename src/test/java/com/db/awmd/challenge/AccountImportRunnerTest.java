@@ -0,0 +1,53 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.ledger.Ledger;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.service.TransferWarmUp;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"warmup.enabled=true", "warmup.accounts=20", "warmup.transfers=200"})
+public class AccountImportRunnerTest {
+
+    @Autowired
+    private AccountsRepository accountsRepository;
+
+    @Autowired
+    private Ledger ledger;
+
+    @Autowired
+    private TransferWarmUp transferWarmUp;
+
+    @DynamicPropertySource
+    static void importFile(DynamicPropertyRegistry registry) {
+        try {
+            Path file = Files.createTempFile("accounts", ".csv");
+            file.toFile().deleteOnExit();
+            Files.writeString(file, "accountId,balance\nimported-1,100\nimported-2,250.50\n");
+            registry.add("accounts.import.file", file::toString);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Test
+    public void importsAfterTheWarmUp() {
+        assertThat(this.transferWarmUp.getExecutedTransfers()).isEqualTo(200);
+        assertThat(this.accountsRepository.getAccount("imported-1").getBalance()).isEqualByComparingTo("100");
+        assertThat(this.accountsRepository.getAccount("imported-2").getBalance()).isEqualByComparingTo("250.50");
+        assertThat(this.ledger.size()).isEqualTo(2);
+    }
+}
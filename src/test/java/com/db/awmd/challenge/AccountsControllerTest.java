@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
 
@@ -15,9 +16,14 @@ import com.db.awmd.challenge.repository.TransferRepository;
 import com.db.awmd.challenge.service.AccountsService;
 import java.math.BigDecimal;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 import com.db.awmd.challenge.service.NotificationService;
 import com.db.awmd.challenge.service.TransferService;
+import com.db.awmd.challenge.web.AccountsController;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -27,6 +33,7 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.web.context.WebApplicationContext;
 
@@ -54,6 +61,10 @@ public class AccountsControllerTest {
   @MockBean
   private NotificationService notificationService;
 
+  private final CountDownLatch lockReleased = new CountDownLatch(1);
+
+  private Thread lockHolder;
+
   @Before
   public void prepareMockMvc() {
     this.mockMvc = webAppContextSetup(this.webApplicationContext).build();
@@ -294,13 +305,7 @@ public class AccountsControllerTest {
     assertThat(accountTo.getAccountId()).isEqualTo("2");
     assertThat(accountTo.getBalance()).isEqualByComparingTo("100");
 
-    Map<String, Transfer> allTransfers = this.transferRepository.getAllTransfers();
-    final String key = allTransfers.entrySet().iterator().next().getKey();
-    final TransferRequest transfer = allTransfers.get(key).getTransfer();
-    assertThat(transfer.getAccountFromId()).isEqualTo("3");
-    assertThat(transfer.getAccountToId()).isEqualTo("2");
-    assertThat(transfer.getAmountTransfer()).isEqualTo(new BigDecimal(90));
-    assertThat(allTransfers.get(key).getStatus()).isEqualTo(Status.ERROR);
+    assertThat(transferRepository.getAllTransfers().size()).isEqualTo(0);
   }
 
   @Test
@@ -322,12 +327,193 @@ public class AccountsControllerTest {
     assertThat(accountTo.getAccountId()).isEqualTo("2");
     assertThat(accountTo.getBalance()).isEqualByComparingTo("100");
 
+    assertThat(transferRepository.getAllTransfers().size()).isEqualTo(0);
+  }
+
+  @Test
+  public void makeTransferBatchNetted() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
+            .content("{\"accountId\":\"1\",\"balance\":0}")).andExpect(status().isCreated());
+
+    this.mockMvc.perform(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
+            .content("{\"accountId\":\"2\",\"balance\":100}")).andExpect(status().isCreated());
+
+    this.mockMvc.perform(post("/v1/accounts/transfer/batch").contentType(MediaType.APPLICATION_JSON)
+            .content("{\"transfers\":[{\"from\":\"1\",\"to\":\"2\",\"amount\":50},"
+                    + "{\"from\":\"2\",\"to\":\"1\",\"amount\":80}]}")).andExpect(status().isOk());
+
+    assertThat(accountsService.getAccount("1").getBalance()).isEqualByComparingTo("30");
+    assertThat(accountsService.getAccount("2").getBalance()).isEqualByComparingTo("70");
+
+    assertThat(transferRepository.getAllTransfers().size()).isEqualTo(2);
+    assertThat(transferRepository.getAllTransfers().values())
+            .extracting(Transfer::getStatus)
+            .containsOnly(Status.COMPLETED);
+  }
+
+  @Test
+  public void makeTransferBatchNotSolvent() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
+            .content("{\"accountId\":\"1\",\"balance\":10}")).andExpect(status().isCreated());
+
+    this.mockMvc.perform(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
+            .content("{\"accountId\":\"2\",\"balance\":100}")).andExpect(status().isCreated());
+
+    this.mockMvc.perform(post("/v1/accounts/transfer/batch").contentType(MediaType.APPLICATION_JSON)
+            .content("{\"transfers\":[{\"from\":\"1\",\"to\":\"2\",\"amount\":50},"
+                    + "{\"from\":\"2\",\"to\":\"1\",\"amount\":5},"
+                    + "{\"from\":\"3\",\"to\":\"1\",\"amount\":5}]}")).andExpect(status().isOk());
+
+    assertThat(accountsService.getAccount("1").getBalance()).isEqualByComparingTo("15");
+    assertThat(accountsService.getAccount("2").getBalance()).isEqualByComparingTo("95");
+
     Map<String, Transfer> allTransfers = this.transferRepository.getAllTransfers();
-    final String key = allTransfers.entrySet().iterator().next().getKey();
-    final TransferRequest transfer = allTransfers.get(key).getTransfer();
-    assertThat(transfer.getAccountFromId()).isEqualTo("1");
-    assertThat(transfer.getAccountToId()).isEqualTo("3");
-    assertThat(transfer.getAmountTransfer()).isEqualTo(new BigDecimal(90));
-    assertThat(allTransfers.get(key).getStatus()).isEqualTo(Status.ERROR);
+    assertThat(allTransfers.size()).isEqualTo(3);
+    assertThat(allTransfers.values().stream()
+            .filter(transfer -> transfer.getStatus().equals(Status.COMPLETED))
+            .map(transfer -> transfer.getTransfer().getAccountFromId())
+            .collect(Collectors.toList()))
+            .containsExactly("2");
+  }
+
+  @Test
+  public void expiredRequestTimeoutIsRejectedWithoutWaiting() throws Exception {
+    createAccounts();
+    ReentrantLock lock = holdAccountLock("1");
+    try {
+      long started = System.nanoTime();
+
+      this.mockMvc.perform(post("/v1/accounts/transfer").contentType(MediaType.APPLICATION_JSON)
+              .header(AccountsController.REQUEST_TIMEOUT_HEADER, "0")
+              .content("{\"from\":\"1\",\"to\":\"2\",\"amount\":10}"))
+              .andExpect(status().isBadRequest())
+              .andExpect(content().string(AccountsController.REQUEST_TIMEOUT_EXPIRED));
+
+      assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(1000);
+      assertThat(lock.getQueueLength()).isZero();
+      assertThat(transferRepository.getAllTransfers()).isEmpty();
+      assertThat(accountsService.getAccount("1").getBalance()).isEqualByComparingTo("100");
+    } finally {
+      releaseAccountLock(lock);
+    }
+  }
+
+  @Test
+  public void transferGivesUpAtTheRequestTimeoutUnderAHeldLock() throws Exception {
+    createAccounts();
+    ReentrantLock lock = holdAccountLock("1");
+    try {
+      long started = System.nanoTime();
+
+      this.mockMvc.perform(post("/v1/accounts/transfer").contentType(MediaType.APPLICATION_JSON)
+              .header(AccountsController.REQUEST_TIMEOUT_HEADER, "200")
+              .content("{\"from\":\"1\",\"to\":\"2\",\"amount\":10}"))
+              .andExpect(status().isBadRequest());
+
+      long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+      assertThat(elapsedMs).isBetween(200L, 2000L);
+      assertThat(transferRepository.getAllTransfers().values())
+              .extracting(Transfer::getStatus)
+              .containsExactly(Status.ERROR);
+      assertThat(accountsService.getAccount("1").getBalance()).isEqualByComparingTo("100");
+    } finally {
+      releaseAccountLock(lock);
+    }
+  }
+
+  @Test
+  public void adaptiveLockingFailsFastUnderAHeldLock() throws Exception {
+    createAccounts();
+    ReentrantLock lock = holdAccountLock("1");
+    Thread waiting = new Thread(() -> {
+      try {
+        lock.lockInterruptibly();
+        lock.unlock();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    ReflectionTestUtils.setField(transferService, "adaptiveLocking", true);
+    ReflectionTestUtils.setField(transferService, "maxLockQueueLength", 0);
+    try {
+      waiting.start();
+      while (lock.getQueueLength() == 0) {
+        Thread.sleep(10);
+      }
+      long started = System.nanoTime();
+
+      this.mockMvc.perform(post("/v1/accounts/transfer").contentType(MediaType.APPLICATION_JSON)
+              .content("{\"from\":\"1\",\"to\":\"2\",\"amount\":10}"))
+              .andExpect(status().isBadRequest());
+
+      assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(1000);
+      assertThat(accountsService.getAccount("1").getBalance()).isEqualByComparingTo("100");
+    } finally {
+      ReflectionTestUtils.setField(transferService, "adaptiveLocking", false);
+      ReflectionTestUtils.setField(transferService, "maxLockQueueLength", 32);
+      waiting.interrupt();
+      waiting.join();
+      releaseAccountLock(lock);
+    }
+  }
+
+  @Test
+  public void importAccounts() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
+            .content("{\"accountId\":\"2\",\"balance\":100}")).andExpect(status().isCreated());
+
+    this.mockMvc.perform(post("/v1/accounts/import").contentType("text/csv")
+            .content("accountId,balance\n1,10.5\n2,20\n3,-5\nnot-an-account\n4,0\n"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.imported").value(2))
+            .andExpect(jsonPath("$.duplicates").value(1))
+            .andExpect(jsonPath("$.rejected").value(2))
+            .andExpect(jsonPath("$.duplicateAccountIds[0]").value("2"));
+
+    assertThat(accountsService.getAccount("1").getBalance()).isEqualByComparingTo("10.5");
+    assertThat(accountsService.getAccount("2").getBalance()).isEqualByComparingTo("100");
+    assertThat(accountsService.getAccount("3")).isNull();
+    assertThat(accountsService.getAccount("4").getBalance()).isEqualByComparingTo("0");
+  }
+
+  private void createAccounts() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
+            .content("{\"accountId\":\"1\",\"balance\":100}")).andExpect(status().isCreated());
+
+    this.mockMvc.perform(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
+            .content("{\"accountId\":\"2\",\"balance\":100}")).andExpect(status().isCreated());
+  }
+
+  /**
+   * Lock the account from another thread, the way a transfer in progress does.
+   * @param accountId
+   * @return ReentrantLock the lock held until {@link #releaseAccountLock(ReentrantLock)}
+   */
+  @SuppressWarnings("unchecked")
+  private ReentrantLock holdAccountLock(String accountId) throws InterruptedException {
+    Map<String, ReentrantLock> transferLocks =
+            (Map<String, ReentrantLock>) ReflectionTestUtils.getField(transferService, "transferLocks");
+    ReentrantLock lock = transferLocks.computeIfAbsent(accountId, id -> new ReentrantLock());
+    CountDownLatch locked = new CountDownLatch(1);
+    this.lockHolder = new Thread(() -> {
+      lock.lock();
+      locked.countDown();
+      try {
+        this.lockReleased.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        lock.unlock();
+      }
+    });
+    this.lockHolder.start();
+    locked.await();
+    return lock;
+  }
+
+  private void releaseAccountLock(ReentrantLock lock) throws InterruptedException {
+    this.lockReleased.countDown();
+    this.lockHolder.join();
+    assertThat(lock.isLocked()).isFalse();
   }
 }
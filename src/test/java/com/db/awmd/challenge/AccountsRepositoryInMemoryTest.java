@@ -0,0 +1,86 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.exception.DuplicateAccountIdException;
+import com.db.awmd.challenge.ledger.Ledger;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountsRepositoryInMemoryTest {
+
+    private static final int ACCOUNTS = 2000;
+
+    private static final int WRITERS = 8;
+
+    private final Ledger ledger = new Ledger();
+
+    private final AccountsRepositoryInMemory accountsRepository = new AccountsRepositoryInMemory(ledger, 16);
+
+    @Test
+    public void batchReportsDuplicatesWithinAndAcrossBatches() {
+        accountsRepository.createAccount(new Account("Id-1", BigDecimal.ONE));
+
+        List<String> duplicates = accountsRepository.createAccounts(List.of(
+                new Account("Id-1", BigDecimal.TEN),
+                new Account("Id-2", BigDecimal.TEN),
+                new Account("Id-2", BigDecimal.ONE)));
+
+        assertThat(duplicates).containsExactly("Id-1", "Id-2");
+        assertThat(accountsRepository.getAccount("Id-1").getBalance()).isEqualByComparingTo("1");
+        assertThat(accountsRepository.getAccount("Id-2").getBalance()).isEqualByComparingTo("10");
+        assertThat(accountsRepository.exists("Id-2")).isTrue();
+        assertThat(ledger.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void everyAccountIsOpenedOnceUnderConcurrentCreations() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int writer = 0; writer < WRITERS; writer++) {
+            boolean batch = writer % 2 == 0;
+            writers.add(executor.submit(() -> {
+                List<Account> accounts = new ArrayList<>();
+                for (int account = 0; account < ACCOUNTS; account++) {
+                    accounts.add(new Account("Id-" + account, BigDecimal.TEN));
+                }
+                if (batch) {
+                    for (int from = 0; from < ACCOUNTS; from += 100) {
+                        created.addAndGet(100 - accountsRepository.createAccounts(accounts.subList(from, from + 100)).size());
+                    }
+                } else {
+                    for (Account account : accounts) {
+                        try {
+                            accountsRepository.createAccount(account);
+                            created.incrementAndGet();
+                        } catch (DuplicateAccountIdException e) {
+                            // created by another writer
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertThat(created.get()).isEqualTo(ACCOUNTS);
+        assertThat(ledger.size()).isEqualTo(ACCOUNTS);
+        for (int account = 0; account < ACCOUNTS; account++) {
+            assertThat(ledger.getEntries("Id-" + account)).hasSize(1);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.binary.BinaryTransferServer;
+import com.db.awmd.challenge.binary.TransferFrameCodec;
+import com.db.awmd.challenge.binary.TransferFrameCodec.TransferResponse;
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.enums.BinaryTransferStatus;
+import com.db.awmd.challenge.service.AccountsService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "binary.port=0")
+public class BinaryTransferServerTest {
+
+    @Autowired
+    private BinaryTransferServer binaryTransferServer;
+
+    @Autowired
+    private AccountsService accountsService;
+
+    private SocketChannel client;
+
+    private String from;
+
+    private String to;
+
+    @Before
+    public void connect() throws IOException {
+        from = "binary-from-" + System.nanoTime();
+        to = "binary-to-" + System.nanoTime();
+        accountsService.createAccount(new Account(from, new BigDecimal("100")));
+        accountsService.createAccount(new Account(to, BigDecimal.ZERO));
+        client = SocketChannel.open(new InetSocketAddress("localhost", binaryTransferServer.getPort()));
+    }
+
+    @After
+    public void disconnect() throws IOException {
+        client.close();
+    }
+
+    @Test
+    public void answersTransfer() throws IOException {
+        send(request(1, to, "10.50"));
+
+        assertThat(receive(1)).containsExactly(new TransferResponse(1, BinaryTransferStatus.COMPLETED));
+        assertThat(accountsService.getAccount(from).getBalance()).isEqualByComparingTo("89.50");
+        assertThat(accountsService.getAccount(to).getBalance()).isEqualByComparingTo("10.50");
+    }
+
+    @Test
+    public void answersPipelinedFramesInOrder() throws IOException {
+        ByteBuffer frames = ByteBuffer.allocate(4096);
+        frames.put(request(1, to, "60"))
+                .put(request(2, to, "60"))
+                .put(request(3, "binary-unknown", "1"))
+                .put(request(4, to, "-1"))
+                .put(request(5, to, "40"))
+                .flip();
+        send(frames);
+
+        assertThat(receive(5)).containsExactly(
+                new TransferResponse(1, BinaryTransferStatus.COMPLETED),
+                new TransferResponse(2, BinaryTransferStatus.INSUFFICIENT_AMOUNT),
+                new TransferResponse(3, BinaryTransferStatus.ACCOUNT_NOT_FOUND),
+                new TransferResponse(4, BinaryTransferStatus.INVALID),
+                new TransferResponse(5, BinaryTransferStatus.COMPLETED));
+        assertThat(accountsService.getAccount(from).getBalance()).isEqualByComparingTo("0");
+        assertThat(accountsService.getAccount(to).getBalance()).isEqualByComparingTo("100");
+    }
+
+    @Test
+    public void waitsForPartialFrames() throws IOException, InterruptedException {
+        ByteBuffer frame = request(7, to, "5");
+        while (frame.hasRemaining()) {
+            send(ByteBuffer.wrap(new byte[] {frame.get()}));
+            Thread.sleep(2);
+        }
+
+        assertThat(receive(1)).containsExactly(new TransferResponse(7, BinaryTransferStatus.COMPLETED));
+    }
+
+    @Test
+    public void closesConnectionOnMalformedFrame() throws IOException {
+        send(ByteBuffer.allocate(4).putInt(0, TransferFrameCodec.MAX_FRAME_LENGTH + 1));
+
+        assertThat(client.read(ByteBuffer.allocate(TransferFrameCodec.RESPONSE_FRAME_LENGTH))).isEqualTo(-1);
+    }
+
+    @Test
+    public void answersFramesBeforeAMalformedOne() throws IOException {
+        ByteBuffer frames = ByteBuffer.allocate(4096);
+        frames.put(request(1, to, "30"))
+                .putInt(TransferFrameCodec.MAX_FRAME_LENGTH + 1)
+                .flip();
+        send(frames);
+
+        assertThat(receive(1)).containsExactly(new TransferResponse(1, BinaryTransferStatus.COMPLETED));
+        assertThat(client.read(ByteBuffer.allocate(TransferFrameCodec.RESPONSE_FRAME_LENGTH))).isEqualTo(-1);
+        assertThat(accountsService.getAccount(to).getBalance()).isEqualByComparingTo("30");
+    }
+
+    @Test
+    public void refusesNegativeTimeoutAndAcceptsZeroAmount() throws IOException {
+        ByteBuffer frames = ByteBuffer.allocate(4096);
+        frames.put(request(1, to, "10", -1))
+                .put(request(2, to, "0"))
+                .flip();
+        send(frames);
+
+        assertThat(receive(2)).containsExactly(
+                new TransferResponse(1, BinaryTransferStatus.INVALID),
+                new TransferResponse(2, BinaryTransferStatus.COMPLETED));
+        assertThat(accountsService.getAccount(from).getBalance()).isEqualByComparingTo("100");
+    }
+
+    private ByteBuffer request(long correlationId, String accountToId, String amount) {
+        return request(correlationId, accountToId, amount, 0);
+    }
+
+    private ByteBuffer request(long correlationId, String accountToId, String amount, int timeoutMs) {
+        ByteBuffer buffer = ByteBuffer.allocate(TransferFrameCodec.MAX_FRAME_LENGTH + 4);
+        TransferFrameCodec.encodeRequest(buffer, correlationId, timeoutMs, new TransferRequest()
+                .setAccountFromId(from)
+                .setAccountToId(accountToId)
+                .setAmountTransfer(new BigDecimal(amount)));
+        return buffer.flip();
+    }
+
+    private void send(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            client.write(buffer);
+        }
+    }
+
+    private List<TransferResponse> receive(int count) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(count * TransferFrameCodec.RESPONSE_FRAME_LENGTH);
+        while (buffer.hasRemaining()) {
+            if (client.read(buffer) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        List<TransferResponse> responses = new ArrayList<>();
+        TransferResponse response;
+        while ((response = TransferFrameCodec.decodeResponse(buffer)) != null) {
+            responses.add(response);
+        }
+        return responses;
+    }
+}
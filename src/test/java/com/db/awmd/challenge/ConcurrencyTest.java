@@ -1,8 +1,10 @@
 package com.db.awmd.challenge;
 
 import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.BookSummary;
 import com.db.awmd.challenge.domain.TransferRequest;
 import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.BookAggregationService;
 import com.db.awmd.challenge.service.TransferService;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.Before;
@@ -43,6 +45,9 @@ public class ConcurrencyTest {
     @Autowired
     private TransferService transferService;
 
+    @Autowired
+    private BookAggregationService bookAggregationService;
+
     @Autowired
     private WebApplicationContext webApplicationContext;
 
@@ -191,4 +196,28 @@ public class ConcurrencyTest {
         assertThat(accountsService.getAccount("5").getBalance()).isEqualTo(new BigDecimal(900));
         assertThat(accountsService.getAccount("6").getBalance()).isEqualTo(new BigDecimal(100));
     }
+
+    /*
+    The book total is read while transfers run, it has to be the same in every summary.
+     */
+    @Test
+    public void bookTotalIsConstantDuringTransfers() throws Exception {
+        IntStream.range(0, 50).forEach(i -> accountsService.createAccount(new Account("book-" + i, new BigDecimal(100))));
+
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        IntStream.range(0, 5000)
+                .forEach(i -> executor.submit(() -> transferService.makeTransfer(new TransferRequest()
+                        .setAccountFromId("book-" + (i % 50))
+                        .setAccountToId("book-" + ((i * 7 + 1) % 50))
+                        .setAmountTransfer(new BigDecimal(3)))));
+        executor.shutdown();
+
+        while (!executor.isTerminated()) {
+            BookSummary bookSummary = bookAggregationService.summarize();
+            assertThat(bookSummary.getAccounts()).isEqualTo(50);
+            assertThat(bookSummary.getTotalBalance()).isEqualByComparingTo("5000");
+            assertThat(bookSummary.getNegativeBalances()).isEqualTo(0);
+        }
+        assertThat(bookAggregationService.summarize().getTotalBalance()).isEqualByComparingTo("5000");
+    }
 }
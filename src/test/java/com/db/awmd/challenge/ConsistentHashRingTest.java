@@ -0,0 +1,46 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.partition.ConsistentHashRing;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConsistentHashRingTest {
+
+    private static final int KEYS = 30000;
+
+    @Test
+    public void spreadsKeysEvenly() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("node-a", "node-b", "node-c"), 160);
+
+        Map<String, Integer> keysPerNode = new HashMap<>();
+        for (int key = 0; key < KEYS; key++) {
+            keysPerNode.merge(ring.nodeFor("account-" + key), 1, Integer::sum);
+        }
+
+        assertThat(keysPerNode).hasSize(3);
+        assertThat(keysPerNode.values()).allMatch(keys -> keys > KEYS / 3 * 0.8 && keys < KEYS / 3 * 1.2);
+    }
+
+    @Test
+    public void addingANodeOnlyMovesKeysToIt() {
+        ConsistentHashRing ring = new ConsistentHashRing(Arrays.asList("node-a", "node-b", "node-c"), 160);
+        ConsistentHashRing grownRing = new ConsistentHashRing(Arrays.asList("node-a", "node-b", "node-c", "node-d"), 160);
+
+        int movedKeys = 0;
+        for (int key = 0; key < KEYS; key++) {
+            String node = ring.nodeFor("account-" + key);
+            String newNode = grownRing.nodeFor("account-" + key);
+            if (!node.equals(newNode)) {
+                assertThat(newNode).isEqualTo("node-d");
+                movedKeys++;
+            }
+        }
+
+        assertThat(movedKeys).isBetween(KEYS / 4 * 8 / 10, KEYS / 4 * 12 / 10);
+    }
+}
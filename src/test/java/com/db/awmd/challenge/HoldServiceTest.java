@@ -0,0 +1,210 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Hold;
+import com.db.awmd.challenge.domain.HoldRequest;
+import com.db.awmd.challenge.enums.HoldStatus;
+import com.db.awmd.challenge.enums.Status;
+import com.db.awmd.challenge.exception.AccountNotFoundException;
+import com.db.awmd.challenge.exception.HoldNotActiveException;
+import com.db.awmd.challenge.exception.InsufficientAmountException;
+import com.db.awmd.challenge.ledger.Ledger;
+import com.db.awmd.challenge.repository.TransferRepository;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.BookAggregationService;
+import com.db.awmd.challenge.service.HoldService;
+import com.db.awmd.challenge.service.NotificationService;
+import com.db.awmd.challenge.service.TransferService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class HoldServiceTest {
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private AccountsService accountsService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @Autowired
+    private BookAggregationService bookAggregationService;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private Ledger ledger;
+
+    private String from;
+
+    private String to;
+
+    @Before
+    public void createAccounts() {
+        from = "hold-from-" + System.nanoTime();
+        to = "hold-to-" + System.nanoTime();
+        accountsService.createAccount(new Account(from, new BigDecimal("100")));
+        accountsService.createAccount(new Account(to, BigDecimal.ZERO));
+    }
+
+    @Test
+    public void captureMovesHeldAmount() {
+        BigDecimal heldBefore = bookAggregationService.summarize().getHeldBalance();
+        Hold hold = holdService.reserve(holdRequest("60", null), transferService.deadlineAfter(null));
+
+        assertThat(accountsService.getAccount(from).getBalance()).isEqualByComparingTo("40");
+        assertThat(bookAggregationService.summarize().getHeldBalance().subtract(heldBefore)).isEqualByComparingTo("60");
+        assertThatThrownBy(() -> holdService.reserve(holdRequest("50", null), transferService.deadlineAfter(null)))
+                .isInstanceOf(InsufficientAmountException.class);
+
+        holdService.capture(hold.getId(), to);
+
+        assertThat(hold.getStatus()).isEqualTo(HoldStatus.CAPTURED);
+        assertThat(accountsService.getAccount(from).getBalance()).isEqualByComparingTo("40");
+        assertThat(accountsService.getAccount(to).getBalance()).isEqualByComparingTo("60");
+        assertThat(transferRepository.getTransfer(hold.getTransferId()).getStatus()).isEqualTo(Status.COMPLETED);
+        assertThat(bookAggregationService.summarize().getHeldBalance()).isEqualByComparingTo(heldBefore);
+    }
+
+    @Test
+    public void releaseGivesAmountBack() {
+        Hold hold = holdService.reserve(holdRequest("60", null), transferService.deadlineAfter(null));
+        holdService.release(hold.getId());
+
+        assertThat(hold.getStatus()).isEqualTo(HoldStatus.RELEASED);
+        assertThat(accountsService.getAccount(from).getBalance()).isEqualByComparingTo("100");
+        assertThatThrownBy(() -> holdService.capture(hold.getId(), to)).isInstanceOf(HoldNotActiveException.class);
+        assertThat(accountsService.getAccount(to).getBalance()).isEqualByComparingTo("0");
+    }
+
+    @Test
+    public void expiredHoldIsReleased() throws Exception {
+        Hold hold = holdService.reserve(holdRequest("60", 50L), transferService.deadlineAfter(null));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (hold.getStatus() == HoldStatus.HELD && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertThat(hold.getStatus()).isEqualTo(HoldStatus.EXPIRED);
+        assertThat(accountsService.getAccount(from).getBalance()).isEqualByComparingTo("100");
+        assertThatThrownBy(() -> holdService.release(hold.getId())).isInstanceOf(HoldNotActiveException.class);
+    }
+
+    @Test
+    public void finishedHoldIsForgottenAfterRetention() {
+        HoldService shortRetention = new HoldService(transferService, transferRepository,
+                accountsService.getAccountsRepository(), notificationService, ledger, 600000, 0, 100, 512);
+        Hold released = shortRetention.reserve(holdRequest("10", null), transferService.deadlineAfter(null));
+        Hold held = shortRetention.reserve(holdRequest("10", null), transferService.deadlineAfter(null));
+        shortRetention.release(released.getId());
+
+        shortRetention.expireHolds();
+
+        assertThat(shortRetention.getHold(released.getId())).isNull();
+        assertThat(shortRetention.getHold(held.getId())).isSameAs(held);
+    }
+
+    @Test
+    public void failedCaptureLeavesHoldActive() {
+        TransferService failingDeposits = spy(transferService);
+        doThrow(new IllegalStateException("deposit failed")).when(failingDeposits).deposit(eq(to), any());
+        HoldService failingCaptures = new HoldService(failingDeposits, transferRepository,
+                accountsService.getAccountsRepository(), notificationService, ledger, 600000, 600000, 100, 512);
+        Hold hold = failingCaptures.reserve(holdRequest("60", null), transferService.deadlineAfter(null));
+
+        assertThatThrownBy(() -> failingCaptures.capture(hold.getId(), to)).isInstanceOf(IllegalStateException.class);
+
+        assertThat(hold.getStatus()).isEqualTo(HoldStatus.HELD);
+        assertThat(accountsService.getAccount(to).getBalance()).isEqualByComparingTo("0");
+        failingCaptures.release(hold.getId());
+        assertThat(accountsService.getAccount(from).getBalance()).isEqualByComparingTo("100");
+    }
+
+    @Test
+    public void captureToUnknownAccountLeavesHoldActive() {
+        Hold hold = holdService.reserve(holdRequest("60", null), transferService.deadlineAfter(null));
+
+        assertThatThrownBy(() -> holdService.capture(hold.getId(), "hold-unknown"))
+                .isInstanceOf(AccountNotFoundException.class);
+
+        assertThat(hold.getStatus()).isEqualTo(HoldStatus.HELD);
+        holdService.capture(hold.getId(), to);
+        assertThat(accountsService.getAccount(to).getBalance()).isEqualByComparingTo("60");
+    }
+
+    @Test
+    public void expiredHoldIsNotCaptured() throws Exception {
+        HoldService manualSweep = new HoldService(transferService, transferRepository,
+                accountsService.getAccountsRepository(), notificationService, ledger, 600000, 600000, 100, 512);
+        Hold hold = manualSweep.reserve(holdRequest("60", 1L), transferService.deadlineAfter(null));
+        Thread.sleep(5);
+
+        assertThatThrownBy(() -> manualSweep.capture(hold.getId(), to)).isInstanceOf(HoldNotActiveException.class);
+
+        assertThat(hold.getStatus()).isEqualTo(HoldStatus.HELD);
+        assertThat(accountsService.getAccount(to).getBalance()).isEqualByComparingTo("0");
+        sweepUntilFinished(manualSweep, hold);
+        assertThat(hold.getStatus()).isEqualTo(HoldStatus.EXPIRED);
+        assertThat(accountsService.getAccount(from).getBalance()).isEqualByComparingTo("100");
+    }
+
+    @Test
+    public void holdOfDeletedAccountFailsAndKeepsFundsInLedger() throws Exception {
+        TransferService deletedOrigin = spy(transferService);
+        doThrow(new AccountNotFoundException("deleted")).when(deletedOrigin).deposit(eq(from), any());
+        HoldService manualSweep = new HoldService(deletedOrigin, transferRepository,
+                accountsService.getAccountsRepository(), notificationService, ledger, 600000, 600000, 100, 512);
+        BigDecimal heldBefore = ledger.getBalance(HoldService.HELD_FUNDS_ACCOUNT);
+        BigDecimal unclaimedBefore = ledger.getBalance(HoldService.UNCLAIMED_FUNDS_ACCOUNT);
+        Hold hold = manualSweep.reserve(holdRequest("60", 1L), transferService.deadlineAfter(null));
+        Thread.sleep(5);
+
+        sweepUntilFinished(manualSweep, hold);
+
+        assertThat(hold.getStatus()).isEqualTo(HoldStatus.FAILED);
+        assertThat(ledger.getBalance(HoldService.HELD_FUNDS_ACCOUNT)).isEqualByComparingTo(orZero(heldBefore));
+        assertThat(ledger.getBalance(HoldService.UNCLAIMED_FUNDS_ACCOUNT).subtract(orZero(unclaimedBefore)))
+                .isEqualByComparingTo("60");
+    }
+
+    /**
+     * The wheel only fires a hold once the sweep interval it expires in is over.
+     */
+    private static void sweepUntilFinished(HoldService holdService, Hold hold) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (hold.getStatus() == HoldStatus.HELD && System.currentTimeMillis() < deadline) {
+            holdService.expireHolds();
+            Thread.sleep(20);
+        }
+    }
+
+    private static BigDecimal orZero(BigDecimal balance) {
+        return balance == null ? BigDecimal.ZERO : balance;
+    }
+
+    private HoldRequest holdRequest(String amount, Long ttlMs) {
+        return new HoldRequest().setAccountId(from).setAmount(new BigDecimal(amount)).setTtlMs(ttlMs);
+    }
+}
@@ -0,0 +1,83 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.ledger.Ledger;
+import com.db.awmd.challenge.replication.LedgerReplicaClient;
+import com.db.awmd.challenge.replication.LedgerShippingServer;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.net.Socket;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LedgerReplicationTest {
+
+    private final Ledger primaryLedger = new Ledger();
+
+    private final AccountsRepositoryInMemory primaryAccounts = new AccountsRepositoryInMemory(primaryLedger, 16);
+
+    private final Ledger replicaLedger = new Ledger();
+
+    private final AccountsRepositoryInMemory replicaAccounts = new AccountsRepositoryInMemory(replicaLedger, 16);
+
+    private LedgerShippingServer server;
+
+    private LedgerReplicaClient client;
+
+    @Before
+    public void start() throws Exception {
+        server = new LedgerShippingServer(primaryLedger, "127.0.0.1", 0, "secret", 3, 1);
+        server.start();
+        client = new LedgerReplicaClient(replicaLedger, replicaAccounts, "localhost", server.getPort(), "secret", 10);
+        client.start();
+    }
+
+    @After
+    public void stop() throws Exception {
+        client.stop();
+        server.stop();
+    }
+
+    @Test
+    public void replicaFollowsPrimary() throws Exception {
+        primaryAccounts.createAccount(new Account("1", new BigDecimal("100")));
+        primaryAccounts.createAccount(new Account("2", new BigDecimal("10")));
+        for (int i = 0; i < 20; i++) {
+            primaryLedger.post("transfer-" + i, "1", "2", new BigDecimal("1.5"));
+        }
+
+        awaitReplica(primaryLedger.size());
+
+        assertThat(replicaAccounts.getAccount("1").getBalance()).isEqualByComparingTo("70");
+        assertThat(replicaAccounts.getAccount("2").getBalance()).isEqualByComparingTo("40");
+        assertThat(replicaLedger.getEntries(0, replicaLedger.size()))
+                .containsExactlyElementsOf(primaryLedger.getEntries(0, primaryLedger.size()));
+    }
+
+    @Test
+    public void replicaWithoutTheSecretIsRefused() throws Exception {
+        primaryAccounts.createAccount(new Account("1", new BigDecimal("100")));
+
+        try (Socket intruder = new Socket("localhost", server.getPort())) {
+            DataOutputStream output = new DataOutputStream(intruder.getOutputStream());
+            output.writeUTF("guess");
+            output.writeInt(0);
+            output.flush();
+
+            assertThat(intruder.getInputStream().read()).isEqualTo(-1);
+        }
+    }
+
+    private void awaitReplica(int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (replicaLedger.size() < size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(replicaLedger.size()).isEqualTo(size);
+    }
+}
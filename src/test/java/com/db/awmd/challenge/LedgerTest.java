@@ -0,0 +1,82 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.LedgerEntry;
+import com.db.awmd.challenge.enums.LedgerEntryType;
+import com.db.awmd.challenge.ledger.Ledger;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LedgerTest {
+
+    @Test
+    public void recordsTransfersAsDebitAndCredit() {
+        Ledger ledger = new Ledger();
+        ledger.open("1", new BigDecimal("100"));
+        ledger.open("2", new BigDecimal("5.50"));
+        ledger.post("transfer-1", "1", "2", new BigDecimal("30.25"));
+
+        assertThat(ledger.size()).isEqualTo(4);
+        assertThat(ledger.getBalance("1")).isEqualByComparingTo("69.75");
+        assertThat(ledger.getBalance("2")).isEqualByComparingTo("35.75");
+
+        List<LedgerEntry> entries = ledger.getEntries("1");
+        assertThat(entries).extracting(LedgerEntry::getType)
+                .containsExactly(LedgerEntryType.OPENING, LedgerEntryType.DEBIT);
+        assertThat(entries.get(1).getTransferId()).isEqualTo("transfer-1");
+        assertThat(entries.get(1).getAmount()).isEqualByComparingTo("30.25");
+    }
+
+    @Test
+    public void replaysBalanceAtTime() throws Exception {
+        Ledger ledger = new Ledger();
+        ledger.open("1", new BigDecimal("100"));
+        ledger.open("2", BigDecimal.ZERO);
+        for (int i = 0; i < 10; i++) {
+            ledger.post("transfer-" + i, "1", "2", BigDecimal.ONE);
+        }
+        Thread.sleep(5);
+        long beforeLastTransfer = System.currentTimeMillis();
+        Thread.sleep(5);
+        ledger.post("transfer-last", "1", "2", new BigDecimal("50"));
+
+        assertThat(ledger.getBalanceAt("1", beforeLastTransfer)).isEqualByComparingTo("90");
+        assertThat(ledger.getBalanceAt("2", beforeLastTransfer)).isEqualByComparingTo("10");
+        assertThat(ledger.getBalance("1")).isEqualByComparingTo("40");
+        assertThat(ledger.getBalanceAt("unknown", beforeLastTransfer)).isNull();
+    }
+
+    @Test
+    public void keepsAmountsThatDoNotFitInALong() {
+        Ledger ledger = new Ledger();
+        BigDecimal bigAmount = new BigDecimal("123456789012345678901234567890.5");
+        ledger.open("1", bigAmount);
+        ledger.open("2", BigDecimal.ZERO);
+        ledger.post("transfer-1", "1", "2", bigAmount);
+
+        assertThat(ledger.getBalance("1")).isEqualByComparingTo("0");
+        assertThat(ledger.getBalance("2")).isEqualByComparingTo(bigAmount);
+    }
+
+    @Test
+    public void replaysFromCheckpoints() throws Exception {
+        Ledger ledger = new Ledger();
+        ledger.open("1", new BigDecimal("100000"));
+        ledger.open("2", BigDecimal.ZERO);
+        for (int i = 0; i < Ledger.CHECKPOINT_INTERVAL * 3 + 5; i++) {
+            ledger.post("transfer-" + i, "1", "2", BigDecimal.ONE);
+        }
+        Thread.sleep(5);
+        long checkpointed = System.currentTimeMillis();
+        BigDecimal balanceAtCheckpoint = ledger.getBalance("2");
+        Thread.sleep(5);
+        ledger.post("transfer-last", "2", "1", BigDecimal.TEN);
+
+        assertThat(ledger.getBalanceAt("2", checkpointed)).isEqualByComparingTo(balanceAtCheckpoint);
+        assertThat(ledger.getBalanceAt("2", Long.MAX_VALUE)).isEqualByComparingTo(ledger.getBalance("2"));
+        assertThat(ledger.getEntries("2")).hasSize(Ledger.CHECKPOINT_INTERVAL * 3 + 7);
+    }
+}
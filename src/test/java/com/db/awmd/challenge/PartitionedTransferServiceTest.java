@@ -0,0 +1,310 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.AccountImportResult;
+import com.db.awmd.challenge.domain.RemoteCredit;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.enums.AccountImportFormat;
+import com.db.awmd.challenge.enums.Status;
+import com.db.awmd.challenge.enums.TransferDecision;
+import com.db.awmd.challenge.exception.TransferNotCompletedException;
+import com.db.awmd.challenge.exception.UnknownNodeException;
+import com.db.awmd.challenge.ledger.Ledger;
+import com.db.awmd.challenge.partition.PartitionClient;
+import com.db.awmd.challenge.partition.PartitionRouter;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.repository.TransferRepositoryInMemory;
+import com.db.awmd.challenge.service.AccountImportService;
+import com.db.awmd.challenge.service.NotificationService;
+import com.db.awmd.challenge.service.PartitionedTransferService;
+import com.db.awmd.challenge.service.TransferService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Two nodes wired to each other in memory, the node owning the origin account coordinates the transfer.
+ */
+public class PartitionedTransferServiceTest {
+
+    private static final String NODE_A = "http://node-a";
+
+    private static final String NODE_B = "http://node-b";
+
+    private final Map<String, Node> nodes = new HashMap<>();
+
+    /** Nodes not answering anymore */
+    private final Set<String> down = new HashSet<>();
+
+    private Node coordinator;
+
+    private Node participant;
+
+    private String from;
+
+    private String to;
+
+    @Before
+    public void createNodes() {
+        coordinator = new Node(NODE_A, 600_000);
+        participant = new Node(NODE_B, 600_000);
+        from = accountOf(coordinator);
+        to = accountOf(participant);
+        coordinator.accountsRepository.createAccount(new Account(from, new BigDecimal("100")));
+        participant.accountsRepository.createAccount(new Account(to, BigDecimal.ZERO));
+    }
+
+    @Test
+    public void commitMovesMoneyAcrossNodes() {
+        String transferId = transfer("30");
+
+        assertThat(balance(coordinator, from)).isEqualByComparingTo("70");
+        assertThat(balance(participant, to)).isEqualByComparingTo("30");
+        assertThat(coordinator.transferRepository.getTransfer(transferId).getStatus()).isEqualTo(Status.COMPLETED);
+        assertThat(coordinator.ledger.getBalance(PartitionRouter.clearingAccount(NODE_B))).isEqualByComparingTo("30");
+        assertThat(participant.ledger.getBalance(PartitionRouter.clearingAccount(NODE_A))).isEqualByComparingTo("-30");
+    }
+
+    @Test
+    public void abortRefundsWhenParticipantRefuses() {
+        participant.accountsRepository.clearAccounts();
+
+        assertThatThrownBy(() -> transfer("30")).isInstanceOf(TransferNotCompletedException.class);
+
+        assertThat(balance(coordinator, from)).isEqualByComparingTo("100");
+        assertThat(coordinator.transferRepository.getAllTransfers().values())
+                .extracting(Transfer::getStatus).containsExactly(Status.ERROR);
+    }
+
+    @Test
+    public void abortRefundsWhenParticipantIsDown() {
+        down.add(NODE_B);
+
+        assertThatThrownBy(() -> transfer("30")).isInstanceOf(TransferNotCompletedException.class);
+
+        assertThat(balance(coordinator, from)).isEqualByComparingTo("100");
+        assertThat(balance(participant, to)).isEqualByComparingTo("0");
+    }
+
+    @Test
+    public void participantAbortsWhenCoordinatorCrashedBeforeDeciding() {
+        String transferId = "crashed-transfer";
+        participant.service.prepare(remoteCredit(transferId, NODE_A, "30"));
+
+        participant.service.recover();
+
+        assertThat(coordinator.service.decision(transferId)).isEqualTo(TransferDecision.ABORTED);
+        participant.service.commit(transferId);
+        assertThat(balance(participant, to)).isEqualByComparingTo("0");
+    }
+
+    @Test
+    public void participantKeepsCreditWhileCoordinatorIsDown() {
+        String transferId = "crashed-transfer";
+        participant.service.prepare(remoteCredit(transferId, NODE_A, "30"));
+        down.add(NODE_A);
+
+        participant.service.recover();
+        participant.service.commit(transferId);
+
+        assertThat(balance(participant, to)).isEqualByComparingTo("30");
+    }
+
+    @Test
+    public void participantRecoversLostCommit() {
+        participant.dropDecisions = true;
+        transfer("30");
+        assertThat(balance(participant, to)).isEqualByComparingTo("0");
+
+        participant.service.recover();
+
+        assertThat(balance(participant, to)).isEqualByComparingTo("30");
+        assertThat(balance(coordinator, from)).isEqualByComparingTo("70");
+    }
+
+    @Test
+    public void unacknowledgedCommitOutlivesTheRetention() {
+        coordinator = new Node(NODE_A, 0);
+        coordinator.accountsRepository.createAccount(new Account(from, new BigDecimal("100")));
+        participant.dropDecisions = true;
+        String transferId = transfer("30");
+
+        coordinator.service.recover();
+        participant.service.recover();
+
+        assertThat(coordinator.service.decision(transferId)).isEqualTo(TransferDecision.COMMITTED);
+        assertThat(balance(coordinator, from)).isEqualByComparingTo("70");
+        assertThat(balance(participant, to)).isEqualByComparingTo("30");
+    }
+
+    @Test
+    public void coordinatorSendsTheCommitAgainUntilAcknowledged() {
+        participant.dropDecisions = true;
+        transfer("30");
+        coordinator.service.recover();
+        assertThat(balance(participant, to)).isEqualByComparingTo("0");
+
+        participant.dropDecisions = false;
+        coordinator.service.recover();
+
+        assertThat(balance(participant, to)).isEqualByComparingTo("30");
+        assertThat(participant.ledger.getBalance(PartitionRouter.clearingAccount(NODE_A))).isEqualByComparingTo("-30");
+    }
+
+    @Test
+    public void prepareFromUnknownCoordinatorIsRefused() {
+        assertThatThrownBy(() -> participant.service.prepare(remoteCredit("forged", "http://intruder", "1000")))
+                .isInstanceOf(UnknownNodeException.class);
+        assertThatThrownBy(() -> participant.service.prepare(remoteCredit("forged", NODE_B, "1000")))
+                .isInstanceOf(UnknownNodeException.class);
+
+        participant.service.commit("forged");
+
+        assertThat(balance(participant, to)).isEqualByComparingTo("0");
+    }
+
+    @Test
+    public void importSkipsAccountsOwnedByAnotherNode() throws Exception {
+        AccountImportService importService = new AccountImportService(coordinator.accountsRepository,
+                coordinator.router, new ObjectMapper(), 10);
+        String local = "imported-" + from;
+        String remote = "imported-" + to;
+        while (!coordinator.router.isLocal(local)) {
+            local = local + "-a";
+        }
+        while (coordinator.router.isLocal(remote)) {
+            remote = remote + "-b";
+        }
+
+        AccountImportResult result = importService.importAccounts(new ByteArrayInputStream(
+                (local + ",10\n" + remote + ",20\n").getBytes(StandardCharsets.UTF_8)), AccountImportFormat.CSV);
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getNotOwned()).isEqualTo(1);
+        assertThat(result.getNotOwnedAccountIds()).containsExactly(remote);
+        assertThat(balance(coordinator, local)).isEqualByComparingTo("10");
+        assertThat(coordinator.accountsRepository.getAccount(remote)).isNull();
+    }
+
+    private String transfer(String amount) {
+        TransferRequest transferRequest = new TransferRequest()
+                .setAccountFromId(from)
+                .setAccountToId(to)
+                .setAmountTransfer(new BigDecimal(amount));
+        coordinator.service.makeTransfer(transferRequest, coordinator.transferService.deadlineAfter(null));
+        return coordinator.transferRepository.getAllTransfers().values().iterator().next().getId();
+    }
+
+    private RemoteCredit remoteCredit(String transferId, String coordinatorNode, String amount) {
+        return new RemoteCredit()
+                .setTransferId(transferId)
+                .setCoordinator(coordinatorNode)
+                .setAccountFromId(from)
+                .setAccountToId(to)
+                .setAmount(new BigDecimal(amount));
+    }
+
+    private static BigDecimal balance(Node node, String accountId) {
+        return node.accountsRepository.getAccount(accountId).getBalance();
+    }
+
+    private static String accountOf(Node node) {
+        for (int i = 0; ; i++) {
+            if (node.router.isLocal("account-" + i)) {
+                return "account-" + i;
+            }
+        }
+    }
+
+    private class Node {
+
+        final Ledger ledger = new Ledger();
+
+        final AccountsRepositoryInMemory accountsRepository = new AccountsRepositoryInMemory(ledger, 16);
+
+        final TransferRepositoryInMemory transferRepository = new TransferRepositoryInMemory(4);
+
+        final TransferService transferService = new TransferService();
+
+        final NotificationService notificationService = (account, description) -> { };
+
+        final PartitionRouter router;
+
+        final PartitionedTransferService service;
+
+        /** Commits and aborts sent to this node are lost */
+        boolean dropDecisions;
+
+        Node(String self, long decisionRetentionMs) {
+            router = new PartitionRouter(NODE_A + "," + NODE_B, self, 160);
+            ReflectionTestUtils.setField(transferService, "lockTimeoutMs", 1000L);
+            ReflectionTestUtils.setField(transferService, "accountsRepository", accountsRepository);
+            ReflectionTestUtils.setField(transferService, "notificationService", notificationService);
+            ReflectionTestUtils.setField(transferService, "transferRepository", transferRepository);
+            ReflectionTestUtils.setField(transferService, "ledger", ledger);
+            service = new PartitionedTransferService(transferService, transferRepository, accountsRepository,
+                    notificationService, ledger, router, new InMemoryClient(), 0, decisionRetentionMs);
+            nodes.put(self, this);
+        }
+    }
+
+    /**
+     * Calls the other node straight away, a node that is down answers like an unreachable one.
+     */
+    private class InMemoryClient extends PartitionClient {
+
+        InMemoryClient() {
+            super(new RestTemplateBuilder(), 1000, "secret");
+        }
+
+        @Override
+        public boolean prepare(String node, RemoteCredit remoteCredit) {
+            if (down.contains(node)) {
+                return false;
+            }
+            try {
+                nodes.get(node).service.prepare(remoteCredit);
+                return true;
+            } catch (RuntimeException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public boolean commit(String node, String transferId) {
+            if (down.contains(node) || nodes.get(node).dropDecisions) {
+                return false;
+            }
+            nodes.get(node).service.commit(transferId);
+            return true;
+        }
+
+        @Override
+        public boolean abort(String node, String transferId) {
+            if (down.contains(node) || nodes.get(node).dropDecisions) {
+                return false;
+            }
+            nodes.get(node).service.abort(transferId);
+            return true;
+        }
+
+        @Override
+        public TransferDecision decision(String node, String transferId) {
+            return down.contains(node) ? null : nodes.get(node).service.decision(transferId);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.service.TransferScheduler;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A replica starts without the parts of a node that write on their own.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"replication.role=replica", "replication.port=1", "replication.retry-ms=60000",
+        "partition.secret=secret"})
+public class ReplicaContextTest {
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Test
+    public void runsNoTransferScheduler() {
+        assertThat(this.applicationContext.getBeansOfType(TransferScheduler.class)).isEmpty();
+    }
+}
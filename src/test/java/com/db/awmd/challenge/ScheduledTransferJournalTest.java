@@ -0,0 +1,78 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.scheduler.ScheduledTransfer;
+import com.db.awmd.challenge.scheduler.ScheduledTransferJournal;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ScheduledTransferJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recoversOnlyPendingTransfers() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("scheduled.journal");
+        ScheduledTransfer executed = scheduledTransfer("1", 1000L);
+        ScheduledTransfer pending = scheduledTransfer("2", 2000L);
+
+        try (ScheduledTransferJournal journal = new ScheduledTransferJournal(path, 1024 * 1024)) {
+            assertThat(journal.recover()).isEmpty();
+            journal.scheduled(executed);
+            journal.scheduled(pending);
+            journal.dispatched(Collections.singletonList(executed));
+        }
+
+        try (ScheduledTransferJournal journal = new ScheduledTransferJournal(path, 1024 * 1024)) {
+            List<ScheduledTransfer> recovered = journal.recover();
+            assertThat(recovered).hasSize(1);
+            assertThat(recovered.get(0).getId()).isEqualTo("2");
+            assertThat(recovered.get(0).getExecuteAt()).isEqualTo(2000L);
+            assertThat(recovered.get(0).getTransfer().getAmountTransfer()).isEqualByComparingTo("12.50");
+        }
+    }
+
+    @Test
+    public void compactsOnceTheThresholdIsReached() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("scheduled.journal");
+        ScheduledTransfer pending = scheduledTransfer("pending", 2000L);
+
+        try (ScheduledTransferJournal journal = new ScheduledTransferJournal(path, 4096)) {
+            journal.recover();
+            journal.scheduled(pending);
+            long largest = 0;
+            for (int transfer = 0; transfer < 500; transfer++) {
+                ScheduledTransfer executed = scheduledTransfer("executed-" + transfer, 1000L);
+                journal.scheduled(executed);
+                largest = Math.max(largest, journal.size());
+                journal.dispatched(Collections.singletonList(executed));
+            }
+
+            assertThat(largest).isLessThan(2 * 4096);
+            assertThat(journal.size()).isLessThan(4096);
+        }
+
+        try (ScheduledTransferJournal journal = new ScheduledTransferJournal(path, 4096)) {
+            assertThat(journal.recover()).extracting(ScheduledTransfer::getId).containsExactly("pending");
+        }
+    }
+
+    private ScheduledTransfer scheduledTransfer(String id, long executeAt) {
+        return new ScheduledTransfer()
+                .setId(id)
+                .setExecuteAt(executeAt)
+                .setTransfer(new TransferRequest()
+                        .setAccountFromId("1")
+                        .setAccountToId("2")
+                        .setAmountTransfer(new BigDecimal("12.50")));
+    }
+}
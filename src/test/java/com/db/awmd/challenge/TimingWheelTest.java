@@ -0,0 +1,64 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.scheduler.TimingWheel;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    @Test
+    public void releasesValuesOnceTheirTimeHasElapsed() {
+        TimingWheel<String> timingWheel = new TimingWheel<>(100, 8, START);
+        assertThat(timingWheel.add(START + 250, "near")).isTrue();
+        assertThat(timingWheel.add(START + 60_000, "far")).isTrue();
+        assertThat(timingWheel.size()).isEqualTo(2);
+
+        List<String> released = new ArrayList<>();
+        timingWheel.advanceTo(START + 200, released::add);
+        assertThat(released).isEmpty();
+
+        timingWheel.advanceTo(START + 400, released::add);
+        assertThat(released).containsExactly("near");
+
+        timingWheel.advanceTo(START + 59_900, released::add);
+        assertThat(released).containsExactly("near");
+
+        timingWheel.advanceTo(START + 60_200, released::add);
+        assertThat(released).containsExactly("near", "far");
+        assertThat(timingWheel.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void neverReleasesValuesBeforeTheirTime() {
+        TimingWheel<Long> timingWheel = new TimingWheel<>(10, 16, START);
+        for (long expiration = START + 10; expiration < START + 500_000; expiration += 7) {
+            timingWheel.add(expiration, expiration);
+        }
+
+        List<Long> early = new ArrayList<>();
+        for (long now = START; now <= START + 500_100; now += 13) {
+            final long currentTime = now;
+            timingWheel.advanceTo(now, expiration -> {
+                if (expiration > currentTime) {
+                    early.add(expiration);
+                }
+            });
+        }
+
+        assertThat(early).isEmpty();
+        assertThat(timingWheel.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void rejectsValuesAlreadyDue() {
+        TimingWheel<String> timingWheel = new TimingWheel<>(100, 8, START);
+        assertThat(timingWheel.add(START - 1, "past")).isFalse();
+        assertThat(timingWheel.size()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,55 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.ratelimit.TokenBucket;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TokenBucketTest {
+
+    @Test
+    public void grantsBurstThenRefillsAtRate() {
+        AtomicLong clock = new AtomicLong(0);
+        TokenBucket tokenBucket = new TokenBucket(10, 3, clock::get);
+
+        assertThat(tokenBucket.tryAcquire()).isTrue();
+        assertThat(tokenBucket.tryAcquire()).isTrue();
+        assertThat(tokenBucket.tryAcquire()).isTrue();
+        assertThat(tokenBucket.tryAcquire()).isFalse();
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(tokenBucket.tryAcquire()).isTrue();
+        assertThat(tokenBucket.tryAcquire()).isFalse();
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertThat(tokenBucket.tryAcquire()).isTrue();
+        assertThat(tokenBucket.tryAcquire()).isTrue();
+        assertThat(tokenBucket.tryAcquire()).isTrue();
+        assertThat(tokenBucket.tryAcquire()).isFalse();
+    }
+
+    @Test
+    public void releaseGivesPermitBackUntilFull() {
+        AtomicLong clock = new AtomicLong(0);
+        TokenBucket tokenBucket = new TokenBucket(10, 2, clock::get);
+        assertThat(tokenBucket.isFull()).isTrue();
+
+        assertThat(tokenBucket.tryAcquire()).isTrue();
+        assertThat(tokenBucket.tryAcquire()).isTrue();
+        assertThat(tokenBucket.isFull()).isFalse();
+        tokenBucket.release();
+        assertThat(tokenBucket.tryAcquire()).isTrue();
+        assertThat(tokenBucket.tryAcquire()).isFalse();
+
+        tokenBucket.release();
+        tokenBucket.release();
+        tokenBucket.release();
+        assertThat(tokenBucket.isFull()).isTrue();
+        assertThat(tokenBucket.tryAcquire()).isTrue();
+        assertThat(tokenBucket.tryAcquire()).isTrue();
+        assertThat(tokenBucket.tryAcquire()).isFalse();
+    }
+}
@@ -0,0 +1,81 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.exception.AccountNotFoundException;
+import com.db.awmd.challenge.exception.TransferRateLimitedException;
+import com.db.awmd.challenge.ledger.Ledger;
+import com.db.awmd.challenge.repository.AccountsRepositoryInMemory;
+import com.db.awmd.challenge.service.TransferAdmissionControl;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TransferAdmissionControlTest {
+
+    private final AccountsRepositoryInMemory accountsRepository = new AccountsRepositoryInMemory(new Ledger(), 16);
+
+    @Before
+    public void createAccounts() {
+        accountsRepository.createAccount(new Account("Id-1", new BigDecimal(100)));
+        accountsRepository.createAccount(new Account("Id-2", new BigDecimal(100)));
+    }
+
+    @Test
+    public void unknownOriginAccountGetsNoBucket() {
+        TransferAdmissionControl admissionControl = new TransferAdmissionControl(accountsRepository, true, 10, 10, 10, 10);
+
+        for (int account = 0; account < 100; account++) {
+            int unknown = account;
+            assertThatThrownBy(() -> admissionControl.admit(transfer("unknown-" + unknown)))
+                    .isInstanceOf(AccountNotFoundException.class);
+        }
+
+        assertThat(admissionControl.getTrackedAccounts()).isZero();
+    }
+
+    @Test
+    public void serviceRejectionGivesAccountPermitBack() {
+        TransferAdmissionControl admissionControl = new TransferAdmissionControl(accountsRepository, true, 0.001, 2, 0.001, 1);
+        admissionControl.admit(transfer("Id-1"));
+
+        for (int attempt = 0; attempt < 5; attempt++) {
+            assertThatThrownBy(() -> admissionControl.admit(transfer("Id-1")))
+                    .isInstanceOf(TransferRateLimitedException.class)
+                    .hasMessage(TransferAdmissionControl.SERVICE_RATE_EXCEEDED);
+        }
+    }
+
+    @Test
+    public void refilledBucketsAreEvicted() throws InterruptedException {
+        TransferAdmissionControl admissionControl = new TransferAdmissionControl(accountsRepository, true, 1000, 1, 1000, 1000);
+        admissionControl.admit(transfer("Id-1"));
+        admissionControl.admit(transfer("Id-2"));
+        assertThat(admissionControl.getTrackedAccounts()).isEqualTo(2);
+
+        Thread.sleep(20);
+        admissionControl.evictIdleBuckets();
+
+        assertThat(admissionControl.getTrackedAccounts()).isZero();
+    }
+
+    @Test
+    public void bucketsStillRefillingAreKept() {
+        TransferAdmissionControl admissionControl = new TransferAdmissionControl(accountsRepository, true, 0.001, 1, 1000, 1000);
+        admissionControl.admit(transfer("Id-1"));
+
+        admissionControl.evictIdleBuckets();
+
+        assertThat(admissionControl.getTrackedAccounts()).isEqualTo(1);
+        assertThatThrownBy(() -> admissionControl.admit(transfer("Id-1")))
+                .hasMessage(TransferAdmissionControl.ACCOUNT_RATE_EXCEEDED);
+    }
+
+    private TransferRequest transfer(String from) {
+        return new TransferRequest().setAccountFromId(from).setAccountToId("Id-2").setAmountTransfer(BigDecimal.ONE);
+    }
+}
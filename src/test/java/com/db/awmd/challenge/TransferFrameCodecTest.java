@@ -0,0 +1,88 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.binary.TransferFrameCodec;
+import com.db.awmd.challenge.binary.TransferFrameCodec.TransferFrame;
+import com.db.awmd.challenge.binary.TransferFrameCodec.TransferResponse;
+import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.enums.BinaryTransferStatus;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TransferFrameCodecTest {
+
+    @Test
+    public void decodesPipelinedRequests() {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        TransferFrameCodec.encodeRequest(buffer, 1, 0, transfer("account-1", "account-2", "10.25"));
+        TransferFrameCodec.encodeRequest(buffer, 2, 250, transfer("3", "4", "0.001"));
+        buffer.flip();
+
+        TransferFrame first = TransferFrameCodec.decodeRequest(buffer);
+        TransferFrame second = TransferFrameCodec.decodeRequest(buffer);
+
+        assertThat(first.correlationId()).isEqualTo(1);
+        assertThat(first.timeoutMs()).isEqualTo(0);
+        assertThat(first.transferRequest()).isEqualTo(transfer("account-1", "account-2", "10.25"));
+        assertThat(second.correlationId()).isEqualTo(2);
+        assertThat(second.timeoutMs()).isEqualTo(250);
+        assertThat(second.transferRequest()).isEqualTo(transfer("3", "4", "0.001"));
+        assertThat(buffer.hasRemaining()).isFalse();
+    }
+
+    @Test
+    public void waitsForTheWholeFrame() {
+        ByteBuffer encoded = ByteBuffer.allocate(1024);
+        TransferFrameCodec.encodeRequest(encoded, 7, 0, transfer("1", "2", "5"));
+        encoded.flip();
+
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.put(encoded.array(), 0, encoded.limit() - 1).flip();
+        assertThat(TransferFrameCodec.decodeRequest(buffer)).isNull();
+        assertThat(buffer.position()).isEqualTo(0);
+
+        buffer.compact().put(encoded.array(), encoded.limit() - 1, 1).flip();
+        assertThat(TransferFrameCodec.decodeRequest(buffer).correlationId()).isEqualTo(7);
+    }
+
+    @Test
+    public void rejectsMalformedFrames() {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.putInt(TransferFrameCodec.MAX_FRAME_LENGTH + 1).flip();
+        assertThatThrownBy(() -> TransferFrameCodec.decodeRequest(buffer)).isInstanceOf(IllegalArgumentException.class);
+
+        ByteBuffer mismatch = ByteBuffer.allocate(1024);
+        TransferFrameCodec.encodeRequest(mismatch, 1, 0, transfer("1", "2", "5"));
+        mismatch.put(16, (byte) 200).flip();
+        assertThatThrownBy(() -> TransferFrameCodec.decodeRequest(mismatch)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void rejectsAccountIdLongerThanTheBuffer() {
+        ByteBuffer encoded = ByteBuffer.allocate(1024);
+        TransferFrameCodec.encodeRequest(encoded, 1, 0, transfer("", "", "5"));
+        encoded.flip();
+        ByteBuffer buffer = ByteBuffer.allocate(encoded.limit());
+        buffer.put(encoded).put(16, (byte) 255).flip();
+
+        assertThatThrownBy(() -> TransferFrameCodec.decodeRequest(buffer)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void encodesResponses() {
+        ByteBuffer buffer = ByteBuffer.allocate(TransferFrameCodec.RESPONSE_FRAME_LENGTH);
+        TransferFrameCodec.encodeResponse(buffer, 42, BinaryTransferStatus.INSUFFICIENT_AMOUNT);
+        buffer.flip();
+
+        assertThat(TransferFrameCodec.decodeResponse(buffer))
+                .isEqualTo(new TransferResponse(42, BinaryTransferStatus.INSUFFICIENT_AMOUNT));
+    }
+
+    private TransferRequest transfer(String from, String to, String amount) {
+        return new TransferRequest().setAccountFromId(from).setAccountToId(to).setAmountTransfer(new BigDecimal(amount));
+    }
+}
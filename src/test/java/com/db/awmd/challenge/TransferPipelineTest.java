@@ -0,0 +1,181 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.enums.Status;
+import com.db.awmd.challenge.exception.InsufficientAmountException;
+import com.db.awmd.challenge.exception.TransferNotCompletedException;
+import com.db.awmd.challenge.pipeline.TransferPipeline;
+import com.db.awmd.challenge.repository.TransferRepositoryInMemory;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.NotificationService;
+import com.db.awmd.challenge.service.TransferService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class TransferPipelineTest {
+
+    /** Amount making the resolve stage fail */
+    private static final BigDecimal FAILING_AMOUNT = new BigDecimal("13");
+
+    /** Amount making the resolve stage wait for {@link #release} */
+    private static final BigDecimal BLOCKING_AMOUNT = new BigDecimal("17");
+
+    @Autowired
+    private AccountsService accountsService;
+
+    @Autowired
+    private TransferService transferService;
+
+    /** Amount whose completion takes longer to record than the deadline of the caller */
+    private static final BigDecimal SLOW_AMOUNT = new BigDecimal("19");
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final TransferRepositoryInMemory transferRepository = new TransferRepositoryInMemory(4) {
+        @Override
+        public String createTransfer(TransferRequest transferRequest) {
+            if (transferRequest.getAmountTransfer().equals(FAILING_AMOUNT)) {
+                throw new IllegalStateException("transfer repository unavailable");
+            }
+            if (transferRequest.getAmountTransfer().equals(BLOCKING_AMOUNT)) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.createTransfer(transferRequest);
+        }
+
+        @Override
+        public void updateStatus(String transferId, Status status) {
+            if (status == Status.COMPLETED
+                    && getTransfer(transferId).getTransfer().getAmountTransfer().equals(SLOW_AMOUNT)) {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            super.updateStatus(transferId, status);
+        }
+    };
+
+    private final NotificationService failingNotificationService = (account, description) -> {
+        throw new IllegalStateException("mail server down");
+    };
+
+    private TransferPipeline transferPipeline;
+
+    private String from;
+
+    private String to;
+
+    @Before
+    public void startPipeline() {
+        from = "pipeline-from-" + System.nanoTime();
+        to = "pipeline-to-" + System.nanoTime();
+        accountsService.createAccount(new Account(from, new BigDecimal("100")));
+        accountsService.createAccount(new Account(to, BigDecimal.ZERO));
+        transferPipeline = new TransferPipeline(transferService, transferRepository,
+                accountsService.getAccountsRepository(), failingNotificationService, 16, 4, 1, 1, 1, 1);
+        transferPipeline.start();
+    }
+
+    @After
+    public void stopPipeline() {
+        release.countDown();
+        transferPipeline.stop();
+    }
+
+    @Test
+    public void executesTransfersDespiteFailingNotifications() {
+        Transfer transfer = transferPipeline.execute(transfer("30"), transferService.deadlineAfter(null));
+
+        assertThat(transfer.getStatus()).isEqualTo(Status.COMPLETED);
+        assertThat(accountsService.getAccount(from).getBalance()).isEqualByComparingTo("70");
+        assertThat(accountsService.getAccount(to).getBalance()).isEqualByComparingTo("30");
+        assertThatThrownBy(() -> transferPipeline.execute(transfer("80"), transferService.deadlineAfter(null)))
+                .isInstanceOf(InsufficientAmountException.class);
+    }
+
+    @Test
+    public void failureInAStageOnlyFailsItsTransfer() {
+        CompletableFuture<Transfer> failing = transferPipeline.submit(transfer("13"), transferService.deadlineAfter(null));
+        CompletableFuture<Transfer> next = transferPipeline.submit(transfer("20"), transferService.deadlineAfter(null));
+
+        assertThatThrownBy(() -> failing.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(next.join().getStatus()).isEqualTo(Status.COMPLETED);
+        assertThat(accountsService.getAccount(from).getBalance()).isEqualByComparingTo("80");
+    }
+
+    @Test
+    public void executeGivesUpAtTheDeadline() {
+        long started = System.nanoTime();
+
+        assertThatThrownBy(() -> transferPipeline.execute(transfer("17"), transferService.deadlineAfter(200L)))
+                .isInstanceOf(TransferNotCompletedException.class);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(2000);
+
+        release.countDown();
+        assertThat(transferPipeline.execute(transfer("10"), transferService.deadlineAfter(null)).getStatus())
+                .isEqualTo(Status.COMPLETED);
+        assertThat(accountsService.getAccount(from).getBalance()).isEqualByComparingTo("90");
+        assertThat(transferRepository.getAllTransfers().values())
+                .filteredOn(transfer -> transfer.getTransfer().getAmountTransfer().equals(BLOCKING_AMOUNT))
+                .extracting(Transfer::getStatus)
+                .containsExactly(Status.ERROR);
+    }
+
+    @Test
+    public void appliedTransferIsAnsweredWithItsOutcomeAfterTheDeadline() {
+        Transfer transfer = transferPipeline.execute(transfer("19"), transferService.deadlineAfter(200L));
+
+        assertThat(transfer.getStatus()).isEqualTo(Status.COMPLETED);
+        assertThat(accountsService.getAccount(from).getBalance()).isEqualByComparingTo("81");
+    }
+
+    @Test
+    public void stopFailsQueuedTransfers() {
+        List<CompletableFuture<Transfer>> results = new ArrayList<>();
+        results.add(transferPipeline.submit(transfer("17"), transferService.deadlineAfter(null)));
+        for (int i = 0; i < 8; i++) {
+            results.add(transferPipeline.submit(transfer("1"), transferService.deadlineAfter(null)));
+        }
+
+        transferPipeline.stop();
+
+        for (CompletableFuture<Transfer> result : results) {
+            assertThat(result).isCompletedExceptionally();
+        }
+        assertThat(accountsService.getAccount(from).getBalance()).isEqualByComparingTo("100");
+        assertThatThrownBy(() -> transferPipeline.execute(transfer("1"), transferService.deadlineAfter(null)))
+                .isInstanceOf(TransferNotCompletedException.class);
+    }
+
+    private TransferRequest transfer(String amount) {
+        return new TransferRequest().setAccountFromId(from).setAccountToId(to).setAmountTransfer(new BigDecimal(amount));
+    }
+}
@@ -0,0 +1,57 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.enums.Status;
+import com.db.awmd.challenge.repository.TransferRepositoryInMemory;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransferRepositoryInMemoryTest {
+
+    private final TransferRepositoryInMemory transferRepository = new TransferRepositoryInMemory(4);
+
+    @Test
+    public void readsBackTransfersAcrossSegments() {
+        Set<String> transferIds = new HashSet<>();
+        for (int transfer = 0; transfer < 100; transfer++) {
+            transferIds.add(this.transferRepository.createTransfer(request("Id-" + transfer % 3, "Id-3", new BigDecimal(transfer).movePointLeft(2))));
+        }
+        String largeTransferId = this.transferRepository.createTransfer(
+                request("Id-1", "Id-2", new BigDecimal("12345678901234567890123.45")));
+
+        Transfer transfer = this.transferRepository.getTransfer(largeTransferId);
+        assertThat(transfer.getId()).isEqualTo(largeTransferId);
+        assertThat(transfer.getTransfer().getAccountFromId()).isEqualTo("Id-1");
+        assertThat(transfer.getTransfer().getAccountToId()).isEqualTo("Id-2");
+        assertThat(transfer.getTransfer().getAmountTransfer()).isEqualTo(new BigDecimal("12345678901234567890123.45"));
+        assertThat(transfer.getStatus()).isEqualTo(Status.CREATED);
+
+        assertThat(this.transferRepository.getAllTransfers()).hasSize(101);
+        assertThat(this.transferRepository.getAllTransfers().keySet()).containsAll(transferIds);
+        assertThat(this.transferRepository.getTransfer("unknown")).isNull();
+    }
+
+    @Test
+    public void updatesStatusAndForgetsIdsOnClear() {
+        String transferId = this.transferRepository.createTransfer(request("Id-1", "Id-2", new BigDecimal(90)));
+
+        this.transferRepository.updateStatus(transferId, Status.COMPLETED);
+        assertThat(this.transferRepository.getTransfer(transferId).getStatus()).isEqualTo(Status.COMPLETED);
+        assertThat(this.transferRepository.getTransfer(transferId).getTransfer().getAmountTransfer()).isEqualTo(new BigDecimal(90));
+
+        this.transferRepository.clearTransfers();
+        this.transferRepository.createTransfer(request("Id-1", "Id-2", new BigDecimal(90)));
+        assertThat(this.transferRepository.getTransfer(transferId)).isNull();
+        assertThat(this.transferRepository.getAllTransfers()).hasSize(1);
+    }
+
+    private static TransferRequest request(String accountFromId, String accountToId, BigDecimal amount) {
+        return new TransferRequest().setAccountFromId(accountFromId).setAccountToId(accountToId).setAmountTransfer(amount);
+    }
+}
@@ -0,0 +1,135 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.enums.Status;
+import com.db.awmd.challenge.repository.TransferRepository;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.NotificationService;
+import com.db.awmd.challenge.service.TransferRoundScheduler;
+import com.db.awmd.challenge.service.TransferService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class TransferRoundSchedulerTest {
+
+    private static final int ACCOUNTS = 50;
+
+    private static final int TRANSFERS = 2000;
+
+    @Autowired
+    private AccountsService accountsService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private TransferRoundScheduler transferRoundScheduler;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Test
+    public void parallelRoundsGiveTheOutcomeOfRunningInOrder() {
+        String sequentialPrefix = "sequential-" + System.nanoTime() + "-";
+        String roundsPrefix = "rounds-" + System.nanoTime() + "-";
+        createAccounts(sequentialPrefix);
+        createAccounts(roundsPrefix);
+
+        List<Status> sequentialStatuses = new ArrayList<>();
+        for (TransferRequest transferRequest : workload(sequentialPrefix)) {
+            try {
+                this.transferService.makeTransfer(transferRequest);
+                sequentialStatuses.add(Status.COMPLETED);
+            } catch (RuntimeException e) {
+                sequentialStatuses.add(Status.ERROR);
+            }
+        }
+
+        List<Transfer> transfers = this.transferRoundScheduler.makeTransfers(workload(roundsPrefix),
+                this.transferService.deadlineAfter(null));
+
+        assertThat(transfers).extracting(Transfer::getStatus).containsExactlyElementsOf(sequentialStatuses);
+        assertThat(sequentialStatuses).contains(Status.COMPLETED, Status.ERROR);
+        for (int account = 0; account < ACCOUNTS; account++) {
+            assertThat(this.accountsService.getAccount(roundsPrefix + account).getBalance())
+                    .isEqualByComparingTo(this.accountsService.getAccount(sequentialPrefix + account).getBalance());
+        }
+    }
+
+    @Test
+    public void unexpectedFailureOnlyFailsItsTransfer() {
+        String prefix = "failing-" + System.nanoTime() + "-";
+        createAccounts(prefix);
+        TransferService failingTransferService = spy(this.transferService);
+        doThrow(new IllegalStateException("ledger unavailable")).when(failingTransferService).applyTransfer(
+                argThat(transferRequest -> transferRequest.getAmountTransfer().equals(new BigDecimal("1.30"))),
+                any(), any(), anyString(), anyLong());
+        TransferRoundScheduler failingScheduler = new TransferRoundScheduler(failingTransferService,
+                this.transferRepository, this.accountsService.getAccountsRepository(), this.notificationService, 2);
+        try {
+            List<Transfer> transfers = failingScheduler.makeTransfers(List.of(
+                    transfer(prefix, 0, 1, "1.30"),
+                    transfer(prefix, 2, 3, "1.00"),
+                    transfer(prefix, 0, 1, "2.00")),
+                    this.transferService.deadlineAfter(null));
+
+            assertThat(transfers).extracting(Transfer::getStatus)
+                    .containsExactly(Status.ERROR, Status.COMPLETED, Status.COMPLETED);
+            assertThat(this.accountsService.getAccount(prefix + 0).getBalance()).isEqualByComparingTo("8.00");
+            assertThat(this.accountsService.getAccount(prefix + 1).getBalance()).isEqualByComparingTo("12.00");
+        } finally {
+            failingScheduler.stop();
+        }
+    }
+
+    private static TransferRequest transfer(String prefix, int from, int to, String amount) {
+        return new TransferRequest()
+                .setAccountFromId(prefix + from)
+                .setAccountToId(prefix + to)
+                .setAmountTransfer(new BigDecimal(amount));
+    }
+
+    private void createAccounts(String prefix) {
+        for (int account = 0; account < ACCOUNTS; account++) {
+            this.accountsService.createAccount(new Account(prefix + account, new BigDecimal("10.00")));
+        }
+    }
+
+    /**
+     * The same random transfers for both runs, small balances so that some of them fail for insufficient amount.
+     */
+    private static List<TransferRequest> workload(String prefix) {
+        SplittableRandom random = new SplittableRandom(42);
+        List<TransferRequest> workload = new ArrayList<>(TRANSFERS);
+        for (int transfer = 0; transfer < TRANSFERS; transfer++) {
+            workload.add(new TransferRequest()
+                    .setAccountFromId(prefix + random.nextInt(ACCOUNTS))
+                    .setAccountToId(prefix + random.nextInt(ACCOUNTS))
+                    .setAmountTransfer(BigDecimal.valueOf(1 + random.nextInt(800), 2)));
+        }
+        return workload;
+    }
+}
@@ -0,0 +1,169 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.domain.TransferStatusEvent;
+import com.db.awmd.challenge.enums.Status;
+import com.db.awmd.challenge.stream.TransferStatusStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TransferStatusStreamTest {
+
+    private final TransferStatusStream transferStatusStream = new TransferStatusStream(1024, 4, 60000, 32);
+
+    @Before
+    public void start() {
+        this.transferStatusStream.start();
+    }
+
+    @After
+    public void stop() {
+        this.transferStatusStream.stop();
+    }
+
+    @Test
+    public void streamsTheChangesOfTheSubscribedAccount() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        this.transferStatusStream.subscribe("Id-1", emitter);
+        assertThat(this.transferStatusStream.isListening()).isTrue();
+
+        this.transferStatusStream.statusChanged(transfer("T-1", "Id-1", "Id-2", Status.CREATED));
+        this.transferStatusStream.statusChanged(transfer("T-2", "Id-3", "Id-2", Status.CREATED));
+        this.transferStatusStream.statusChanged(transfer("T-1", "Id-1", "Id-2", Status.COMPLETED));
+
+        awaitEvents(emitter, 2);
+        assertThat(emitter.events).extracting(event -> ((TransferStatusEvent) event).getTransferId()).containsExactly("T-1", "T-1");
+        assertThat(emitter.events).extracting(event -> ((TransferStatusEvent) event).getStatus())
+                .containsExactly(Status.CREATED, Status.COMPLETED);
+    }
+
+    @Test
+    public void slowSubscriberResyncs() throws Exception {
+        CountDownLatch firstSendReleased = new CountDownLatch(1);
+        RecordingEmitter emitter = new RecordingEmitter(firstSendReleased);
+        this.transferStatusStream.subscribe(null, emitter);
+
+        for (int transfer = 0; transfer < 20; transfer++) {
+            this.transferStatusStream.statusChanged(transfer("T-" + transfer, "Id-1", "Id-2", Status.CREATED));
+        }
+        Thread.sleep(200);
+        firstSendReleased.countDown();
+        // Once the resync is sent the buffer is empty again, a change sent earlier could still find it full
+        awaitEvents(emitter, 1, event -> event instanceof Long);
+        this.transferStatusStream.statusChanged(transfer("T-last", "Id-1", "Id-2", Status.COMPLETED));
+
+        awaitEvents(emitter, 1, event -> event instanceof TransferStatusEvent
+                && ((TransferStatusEvent) event).getTransferId().equals("T-last"));
+        assertThat(emitter.events.size()).isLessThan(21);
+    }
+
+    @Test
+    public void resyncedSubscriberReplaysTheChangesItMissed() throws Exception {
+        CountDownLatch firstSendReleased = new CountDownLatch(1);
+        RecordingEmitter emitter = new RecordingEmitter(firstSendReleased);
+        this.transferStatusStream.subscribe("Id-1", emitter);
+
+        for (int transfer = 0; transfer < 10; transfer++) {
+            this.transferStatusStream.statusChanged(transfer("T-" + transfer, "Id-1", "Id-2", Status.CREATED));
+            this.transferStatusStream.statusChanged(transfer("U-" + transfer, "Id-3", "Id-2", Status.CREATED));
+        }
+        Thread.sleep(200);
+        firstSendReleased.countDown();
+
+        awaitEvents(emitter, 1, event -> event instanceof Long);
+        long resyncedAfter = (Long) emitter.events.stream().filter(event -> event instanceof Long).findFirst().get();
+        List<TransferStatusEvent> replayed = this.transferStatusStream.changesAfter("Id-1", resyncedAfter);
+
+        assertThat(replayed).isNotEmpty();
+        assertThat(replayed).extracting(TransferStatusEvent::getSequence).isSorted().allMatch(number -> number > resyncedAfter);
+        List<Object> followed = new ArrayList<>();
+        emitter.events.stream()
+                .filter(event -> event instanceof TransferStatusEvent
+                        && ((TransferStatusEvent) event).getSequence() <= resyncedAfter)
+                .forEach(followed::add);
+        followed.addAll(replayed);
+        assertThat(followed).extracting(event -> ((TransferStatusEvent) event).getTransferId())
+                .containsExactly("T-0", "T-1", "T-2", "T-3", "T-4", "T-5", "T-6", "T-7", "T-8", "T-9");
+    }
+
+    @Test
+    public void changesNoLongerInTheHistoryAreGone() {
+        this.transferStatusStream.subscribe(null, new RecordingEmitter(null));
+        for (int transfer = 0; transfer < 40; transfer++) {
+            this.transferStatusStream.statusChanged(transfer("T-" + transfer, "Id-1", "Id-2", Status.CREATED));
+        }
+
+        assertThat(this.transferStatusStream.changesAfter(null, 0)).isNull();
+        assertThat(this.transferStatusStream.changesAfter(null, 30)).extracting(TransferStatusEvent::getTransferId)
+                .containsExactly("T-30", "T-31", "T-32", "T-33", "T-34", "T-35", "T-36", "T-37", "T-38", "T-39");
+        assertThatThrownBy(() -> this.transferStatusStream.changesAfter(null, 41))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void awaitEvents(RecordingEmitter emitter, int count) throws InterruptedException {
+        awaitEvents(emitter, count, event -> true);
+    }
+
+    private static void awaitEvents(RecordingEmitter emitter, int count,
+                                    Predicate<Object> matching) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (emitter.events.stream().filter(matching).count() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(emitter.events.stream().filter(matching).count()).isGreaterThanOrEqualTo(count);
+    }
+
+    private static Transfer transfer(String transferId, String accountFromId, String accountToId, Status status) {
+        return new Transfer()
+                .setId(transferId)
+                .setTransfer(new TransferRequest()
+                        .setAccountFromId(accountFromId)
+                        .setAccountToId(accountToId)
+                        .setAmountTransfer(new BigDecimal(10)))
+                .setStatus(status);
+    }
+
+    /**
+     * Keeps the data of the events sent, the first send waiting for the latch when there is one.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<Object> events = new CopyOnWriteArrayList<>();
+
+        private final CountDownLatch firstSendReleased;
+
+        private RecordingEmitter(CountDownLatch firstSendReleased) {
+            this.firstSendReleased = firstSendReleased;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (this.firstSendReleased != null) {
+                try {
+                    this.firstSendReleased.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            builder.build().stream()
+                    .map(dataWithMediaType -> dataWithMediaType.getData())
+                    .filter(data -> data instanceof TransferStatusEvent || data instanceof Long)
+                    .forEach(this.events::add);
+        }
+    }
+}
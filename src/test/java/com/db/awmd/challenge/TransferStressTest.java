@@ -0,0 +1,345 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.binary.BinaryTransferServer;
+import com.db.awmd.challenge.binary.TransferFrameCodec;
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.domain.Hold;
+import com.db.awmd.challenge.domain.HoldRequest;
+import com.db.awmd.challenge.domain.ScheduledTransferRequest;
+import com.db.awmd.challenge.domain.Transfer;
+import com.db.awmd.challenge.domain.TransferRequest;
+import com.db.awmd.challenge.enums.Status;
+import com.db.awmd.challenge.ledger.Ledger;
+import com.db.awmd.challenge.pipeline.TransferPipeline;
+import com.db.awmd.challenge.repository.TransferRepository;
+import com.db.awmd.challenge.service.AccountsService;
+import com.db.awmd.challenge.service.HoldService;
+import com.db.awmd.challenge.service.NotificationService;
+import com.db.awmd.challenge.service.TransferRoundScheduler;
+import com.db.awmd.challenge.service.TransferScheduler;
+import com.db.awmd.challenge.service.TransferService;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.rules.SpringClassRule;
+import org.springframework.test.context.junit4.rules.SpringMethodRule;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the same seeded random workload concurrently through every way of moving money and checks the invariants
+ * <br /> that must hold whatever the interleaving: money is conserved, no balance goes below zero, the Ledger
+ * <br /> agrees with every balance and every Transfer ends as COMPLETED or ERROR. The seed is in the test name and
+ * <br /> fixes the transfers of every worker, not their interleaving, which is left to the thread scheduler: a failing
+ * <br /> seed replays the same workload, and may need a few runs to hit the same schedule again.
+ * <br /> PartitionedTransferService is not an engine here: on this single node it hands every transfer to
+ * <br /> TransferService like SINGLE does, and its two phase path needs several nodes, see PartitionedTransferServiceTest.
+ */
+@RunWith(Parameterized.class)
+@SpringBootTest(properties = "binary.port=0")
+public class TransferStressTest {
+
+    private static final int ACCOUNTS = 2000;
+    private static final int WORKERS = 8;
+    private static final int TRANSFERS_PER_WORKER = 750;
+    private static final int BATCH_SIZE = 25;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("100.00");
+
+    @ClassRule
+    public static final SpringClassRule SPRING_CLASS_RULE = new SpringClassRule();
+
+    @Rule
+    public final SpringMethodRule springMethodRule = new SpringMethodRule();
+
+    @Parameterized.Parameters(name = "{0} seed {1}")
+    public static Collection<Object[]> engines() {
+        List<Object[]> parameters = new ArrayList<>();
+        for (Engine engine : Engine.values()) {
+            for (long seed : new long[]{7, 1234567}) {
+                parameters.add(new Object[]{engine, seed});
+            }
+        }
+        return parameters;
+    }
+
+    private final Engine engine;
+
+    private final long seed;
+
+    @Autowired
+    private AccountsService accountsService;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private HoldService holdService;
+
+    @Autowired
+    private TransferRoundScheduler transferRoundScheduler;
+
+    @Autowired
+    private TransferScheduler transferScheduler;
+
+    @Autowired
+    private BinaryTransferServer binaryTransferServer;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @Autowired
+    private Ledger ledger;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    /** Started for the pipeline engine only, shared by its workers */
+    private TransferPipeline transferPipeline;
+
+    public TransferStressTest(Engine engine, long seed) {
+        this.engine = engine;
+        this.seed = seed;
+    }
+
+    @Test
+    public void invariantsHoldUnderConcurrentTransfers() throws Exception {
+        accountsService.getAccountsRepository().clearAccounts();
+        transferRepository.clearTransfers();
+        String prefix = "stress-" + engine + "-" + seed + "-" + System.nanoTime() + "-";
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountsService.createAccount(new Account(prefix + i, INITIAL_BALANCE));
+        }
+
+        List<List<TransferRequest>> workloads = workloads(prefix);
+        if (engine == Engine.PIPELINE) {
+            transferPipeline = new TransferPipeline(transferService, transferRepository,
+                    accountsService.getAccountsRepository(), notificationService, 256, 16, 2, 8, 2, 1);
+            transferPipeline.start();
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(WORKERS);
+        List<Future<?>> workers = new ArrayList<>();
+        for (List<TransferRequest> workload : workloads) {
+            workers.add(executor.submit(() -> {
+                start.await();
+                engine.execute(this, workload);
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+        if (transferPipeline != null) {
+            transferPipeline.stop();
+        }
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < ACCOUNTS; i++) {
+            Account account = accountsService.getAccount(prefix + i);
+            assertThat(account.getBalance().signum()).as("balance of %s", account.getAccountId()).isNotNegative();
+            assertThat(ledger.getBalance(account.getAccountId()))
+                    .as("ledger balance of %s", account.getAccountId())
+                    .isEqualByComparingTo(account.getBalance());
+            total = total.add(account.getBalance());
+        }
+        assertThat(total).isEqualByComparingTo(INITIAL_BALANCE.multiply(new BigDecimal(ACCOUNTS)));
+
+        List<Transfer> unfinished = new ArrayList<>();
+        for (Transfer transfer : transferRepository.getAllTransfers().values()) {
+            if (transfer.getStatus() != Status.COMPLETED && transfer.getStatus() != Status.ERROR) {
+                unfinished.add(transfer);
+            }
+        }
+        assertThat(unfinished).isEmpty();
+        assertThat(transferRepository.getAllTransfers().values())
+                .extracting(Transfer::getStatus)
+                .contains(Status.COMPLETED);
+    }
+
+    /**
+     * Random transfers between the accounts, with some to unknown accounts, some to the same account and some
+     * <br /> larger than any balance. Every worker gets its own list, generated from the seed.
+     */
+    private List<List<TransferRequest>> workloads(String prefix) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<List<TransferRequest>> workloads = new ArrayList<>();
+        for (int worker = 0; worker < WORKERS; worker++) {
+            List<TransferRequest> workload = new ArrayList<>(TRANSFERS_PER_WORKER);
+            for (int i = 0; i < TRANSFERS_PER_WORKER; i++) {
+                // A hot range of accounts gets half of the transfers, to create contention
+                int from = random.nextBoolean() ? random.nextInt(20) : random.nextInt(ACCOUNTS);
+                int to = random.nextBoolean() ? random.nextInt(20) : random.nextInt(ACCOUNTS);
+                int kind = random.nextInt(100);
+                String toAccountId = kind < 2 ? "missing-" + to : prefix + (kind < 3 ? from : to);
+                BigDecimal amount = kind < 5
+                        ? INITIAL_BALANCE.multiply(new BigDecimal(ACCOUNTS))
+                        : BigDecimal.valueOf(1 + random.nextInt(5000), 2);
+                workload.add(new TransferRequest()
+                        .setAccountFromId(prefix + from)
+                        .setAccountToId(toAccountId)
+                        .setAmountTransfer(amount));
+            }
+            workloads.add(workload);
+        }
+        return workloads;
+    }
+
+    /**
+     * Wait until every transfer of the workloads has been created and has ended, the scheduled ones are executed
+     * <br /> on the transfer executor after the worker scheduling them is done.
+     */
+    private void awaitEndedTransfers() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+        while (System.currentTimeMillis() < deadline) {
+            long ended = transferRepository.getAllTransfers().values().stream()
+                    .filter(transfer -> transfer.getStatus() == Status.COMPLETED || transfer.getStatus() == Status.ERROR)
+                    .count();
+            if (transferScheduler.getPendingTransfers() == 0 && ended >= WORKERS * TRANSFERS_PER_WORKER) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    public enum Engine {
+
+        SINGLE {
+            @Override
+            void execute(TransferStressTest test, List<TransferRequest> workload) {
+                for (TransferRequest transferRequest : workload) {
+                    try {
+                        test.transferService.makeTransfer(transferRequest);
+                    } catch (RuntimeException e) {
+                        // Insufficient amount, unknown account or lock timeout, checked through the Transfer status
+                    }
+                }
+            }
+        },
+
+        NETTED_BATCH {
+            @Override
+            void execute(TransferStressTest test, List<TransferRequest> workload) {
+                for (int from = 0; from < workload.size(); from += BATCH_SIZE) {
+                    try {
+                        test.transferService.makeTransfers(workload.subList(from, Math.min(from + BATCH_SIZE, workload.size())));
+                    } catch (RuntimeException e) {
+                        // Lock timeout of the whole batch, checked through the Transfer status
+                    }
+                }
+            }
+        },
+
+        ROUNDS {
+            @Override
+            void execute(TransferStressTest test, List<TransferRequest> workload) {
+                for (int from = 0; from < workload.size(); from += BATCH_SIZE) {
+                    test.transferRoundScheduler.makeTransfers(workload.subList(from, Math.min(from + BATCH_SIZE, workload.size())),
+                            test.transferService.deadlineAfter(null));
+                }
+            }
+        },
+
+        PIPELINE {
+            @Override
+            void execute(TransferStressTest test, List<TransferRequest> workload) {
+                List<CompletableFuture<Transfer>> results = new ArrayList<>(workload.size());
+                for (TransferRequest transferRequest : workload) {
+                    results.add(test.transferPipeline.submit(transferRequest, test.transferService.deadlineAfter(null)));
+                }
+                // Outcomes are checked through the Transfer status
+                results.forEach(result -> result.exceptionally(error -> null).join());
+            }
+        },
+
+        BINARY {
+            @Override
+            void execute(TransferStressTest test, List<TransferRequest> workload) throws IOException {
+                try (SocketChannel client = SocketChannel.open(
+                        new InetSocketAddress("localhost", test.binaryTransferServer.getPort()))) {
+                    ByteBuffer frames = ByteBuffer.allocate(BATCH_SIZE * (TransferFrameCodec.MAX_FRAME_LENGTH + 4));
+                    ByteBuffer responses = ByteBuffer.allocate(BATCH_SIZE * TransferFrameCodec.RESPONSE_FRAME_LENGTH);
+                    for (int from = 0; from < workload.size(); from += BATCH_SIZE) {
+                        // Pipelined frames, outcomes are checked through the Transfer status
+                        frames.clear();
+                        int to = Math.min(from + BATCH_SIZE, workload.size());
+                        for (int i = from; i < to; i++) {
+                            TransferFrameCodec.encodeRequest(frames, i, 0, workload.get(i));
+                        }
+                        frames.flip();
+                        while (frames.hasRemaining()) {
+                            client.write(frames);
+                        }
+                        responses.clear().limit((to - from) * TransferFrameCodec.RESPONSE_FRAME_LENGTH);
+                        while (responses.hasRemaining() && client.read(responses) >= 0) {
+                            // Reads until every frame of the chunk is answered
+                        }
+                    }
+                }
+            }
+        },
+
+        SCHEDULED {
+            @Override
+            void execute(TransferStressTest test, List<TransferRequest> workload) throws InterruptedException {
+                for (TransferRequest transferRequest : workload) {
+                    test.transferScheduler.scheduleTransfer(new ScheduledTransferRequest()
+                            .setTransfer(transferRequest)
+                            .setExecuteAt(System.currentTimeMillis()));
+                }
+                test.awaitEndedTransfers();
+            }
+        },
+
+        HOLD_AND_CAPTURE {
+            @Override
+            void execute(TransferStressTest test, List<TransferRequest> workload) {
+                for (int i = 0; i < workload.size(); i++) {
+                    TransferRequest transferRequest = workload.get(i);
+                    Hold hold;
+                    try {
+                        hold = test.holdService.reserve(new HoldRequest()
+                                .setAccountId(transferRequest.getAccountFromId())
+                                .setAmount(transferRequest.getAmountTransfer()),
+                                test.transferService.deadlineAfter(null));
+                    } catch (RuntimeException e) {
+                        continue;
+                    }
+                    try {
+                        if (i % 5 == 0) {
+                            test.holdService.release(hold.getId());
+                        } else {
+                            test.holdService.capture(hold.getId(), transferRequest.getAccountToId());
+                        }
+                    } catch (RuntimeException e) {
+                        test.holdService.release(hold.getId());
+                    }
+                }
+            }
+        };
+
+        abstract void execute(TransferStressTest test, List<TransferRequest> workload) throws Exception;
+    }
+}
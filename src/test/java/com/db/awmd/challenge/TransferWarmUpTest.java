@@ -0,0 +1,176 @@
+package com.db.awmd.challenge;
+
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.ledger.Ledger;
+import com.db.awmd.challenge.repository.AccountsRepository;
+import com.db.awmd.challenge.repository.TransferRepository;
+import com.db.awmd.challenge.service.EmailNotificationService;
+import com.db.awmd.challenge.service.NotificationService;
+import com.db.awmd.challenge.service.TransferWarmUp;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT,
+        properties = {"warmup.enabled=true", "warmup.accounts=20", "warmup.transfers=2000"})
+public class TransferWarmUpTest {
+
+    private static final int PORT = freePort();
+
+    @Autowired
+    private AccountsRepository accountsRepository;
+
+    @Autowired
+    private TransferRepository transferRepository;
+
+    @Autowired
+    private Ledger ledger;
+
+    @Autowired
+    private TransferWarmUp transferWarmUp;
+
+    @Autowired
+    private PortProbe portProbe;
+
+    @Autowired
+    private LevelRecordingNotificationService notificationService;
+
+    @DynamicPropertySource
+    static void serverPort(DynamicPropertyRegistry registry) {
+        registry.add("server.port", () -> PORT);
+    }
+
+    @Test
+    public void leavesNothingBehind() {
+        assertThat(this.transferWarmUp.getExecutedTransfers()).isEqualTo(2000);
+        assertThat(this.accountsRepository.getAccounts()).isEmpty();
+        assertThat(this.transferRepository.getAllTransfers()).isEmpty();
+        assertThat(this.ledger.size()).isZero();
+    }
+
+    @Test
+    public void portStaysClosedUntilTheWarmUpIsOver() {
+        assertThat(this.portProbe.warmUpDoneWhenProbed).isTrue();
+        assertThat(this.portProbe.portOpenWhenProbed).isFalse();
+        assertThat(isOpen(PORT)).isTrue();
+    }
+
+    @Test
+    public void logsOnlyWarningsDuringTheWarmUp() {
+        assertThat(this.notificationService.notifications.get()).isPositive();
+        assertThat(this.notificationService.loggedAtInfo.get()).isZero();
+        assertThat(LoggerFactory.getLogger(EmailNotificationService.class).isInfoEnabled()).isTrue();
+    }
+
+    private static boolean isOpen(int port) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress("localhost", port), 500);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static int freePort() {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            return serverSocket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @TestConfiguration
+    static class PortProbeConfiguration {
+
+        @Bean
+        PortProbe portProbe(TransferWarmUp transferWarmUp) {
+            return new PortProbe(transferWarmUp);
+        }
+
+        @Bean
+        @Primary
+        LevelRecordingNotificationService levelRecordingNotificationService() {
+            return new LevelRecordingNotificationService();
+        }
+    }
+
+    /**
+     * Records whether the notifications would have been logged at INFO when they were sent.
+     */
+    static class LevelRecordingNotificationService implements NotificationService {
+
+        private final Logger emailLogger = LoggerFactory.getLogger(EmailNotificationService.class);
+
+        private final AtomicInteger notifications = new AtomicInteger();
+
+        private final AtomicInteger loggedAtInfo = new AtomicInteger();
+
+        @Override
+        public void notifyAboutTransfer(Account account, String transferDescription) {
+            this.notifications.incrementAndGet();
+            if (this.emailLogger.isInfoEnabled()) {
+                this.loggedAtInfo.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Started in the phase right after the warm-up, still before the web server: tries the port once.
+     */
+    static class PortProbe implements SmartLifecycle {
+
+        private final TransferWarmUp transferWarmUp;
+
+        private volatile boolean running;
+
+        private volatile boolean warmUpDoneWhenProbed;
+
+        private volatile boolean portOpenWhenProbed;
+
+        PortProbe(TransferWarmUp transferWarmUp) {
+            this.transferWarmUp = transferWarmUp;
+        }
+
+        @Override
+        public void start() {
+            this.warmUpDoneWhenProbed = this.transferWarmUp.getExecutedTransfers() > 0;
+            this.portOpenWhenProbed = isOpen(PORT);
+            this.running = true;
+        }
+
+        @Override
+        public void stop() {
+            this.running = false;
+        }
+
+        @Override
+        public boolean isRunning() {
+            return this.running;
+        }
+
+        @Override
+        public int getPhase() {
+            return this.transferWarmUp.getPhase() + 1;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.db.awmd.challenge.benchmark;
+
+import com.db.awmd.challenge.DevChallengeApplication;
+import com.db.awmd.challenge.domain.Account;
+import com.db.awmd.challenge.service.AccountsService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the same contended transfer workload against the application started with platform request threads
+ * <br /> and with virtual request threads, and prints throughput and latency percentiles of each mode.
+ * <br /> Run with {@code gradle benchmark}.
+ */
+public class ExecutionModeBenchmark {
+
+    private static final int ACCOUNTS = 20;
+    private static final int CONCURRENT_CLIENTS = 2000;
+    private static final int TRANSFERS_PER_CLIENT = 25;
+    private static final int WARM_UP_CLIENTS = 200;
+
+    public static void main(String[] args) throws Exception {
+        run("platform threads", false);
+        run("virtual threads", true);
+    }
+
+    private static void run(String mode, boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DevChallengeApplication.class)
+                .properties("server.port=0",
+                        "spring.threads.virtual.enabled=" + virtualThreads,
+                        "transfer.admission.enabled=false",
+                        "transfer.scheduler.journal=" + Files.createTempFile("benchmark", ".journal"),
+                        "logging.level.com.db.awmd.challenge=WARN")
+                .run()) {
+            AccountsService accountsService = context.getBean(AccountsService.class);
+            for (int i = 0; i < ACCOUNTS; i++) {
+                accountsService.createAccount(new Account("bench-" + i, new BigDecimal(1_000_000_000)));
+            }
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI transferUri = URI.create("http://localhost:" + port + "/v1/accounts/transfer");
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+
+            runWorkload(client, transferUri, WARM_UP_CLIENTS);
+            long[] latencies = new long[CONCURRENT_CLIENTS * TRANSFERS_PER_CLIENT];
+            AtomicInteger failures = new AtomicInteger();
+            long elapsed = runWorkload(client, transferUri, CONCURRENT_CLIENTS, latencies, failures);
+
+            Arrays.sort(latencies);
+            System.out.printf("%-17s %8.0f transfers/s  p50 %6.1f ms  p99 %7.1f ms  p99.9 %7.1f ms  max %7.1f ms  failures %d%n",
+                    mode,
+                    latencies.length / (elapsed / 1e9),
+                    percentile(latencies, 0.50),
+                    percentile(latencies, 0.99),
+                    percentile(latencies, 0.999),
+                    latencies[latencies.length - 1] / 1e6,
+                    failures.get());
+        }
+    }
+
+    private static long runWorkload(HttpClient client, URI transferUri, int clients) throws InterruptedException {
+        return runWorkload(client, transferUri, clients, new long[clients * TRANSFERS_PER_CLIENT], new AtomicInteger());
+    }
+
+    /**
+     * Every client sends its transfers one after the other between random accounts of a small set, so requests
+     * <br /> queue on the account locks. Returns the elapsed nanoseconds.
+     */
+    private static long runWorkload(HttpClient client, URI transferUri, int clients,
+                                    long[] latencies, AtomicInteger failures) throws InterruptedException {
+        AtomicInteger recorded = new AtomicInteger();
+        long start = System.nanoTime();
+        ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+        for (int c = 0; c < clients; c++) {
+            final Random random = new Random(c);
+            clientThreads.execute(() -> {
+                for (int t = 0; t < TRANSFERS_PER_CLIENT; t++) {
+                    int from = random.nextInt(ACCOUNTS);
+                    int to = (from + 1 + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+                    HttpRequest request = HttpRequest.newBuilder(transferUri)
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(
+                                    "{\"from\":\"bench-" + from + "\",\"to\":\"bench-" + to + "\",\"amount\":1}"))
+                            .build();
+                    long sent = System.nanoTime();
+                    try {
+                        if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    }
+                    latencies[recorded.getAndIncrement()] = System.nanoTime() - sent;
+                }
+            });
+        }
+        clientThreads.shutdown();
+        clientThreads.awaitTermination(10, TimeUnit.MINUTES);
+        return System.nanoTime() - start;
+    }
+
+    private static double percentile(long[] sortedLatencies, double percentile) {
+        return sortedLatencies[(int) Math.min(sortedLatencies.length - 1, sortedLatencies.length * percentile)] / 1e6;
+    }
+}